@@ -0,0 +1,69 @@
+#!/usr/bin/env python3
+"""
+Compares two JMH result files written with "-rf json", e.g. of the current
+version and of a dependency upgrade, and reports regressions.
+
+Usage: compare-results.py <baseline.json> <candidate.json> [threshold-percent]
+
+Exits with status 1 if any benchmark got slower than the threshold (default
+10 percent) allows.
+"""
+
+import json
+import sys
+
+
+def load(path):
+    with open(path) as f:
+        results = json.load(f)
+
+    scores = {}
+    for r in results:
+        params = ",".join("%s=%s" % kv for kv in sorted(r.get("params", {}).items()))
+        name = r["benchmark"].replace("middleware.benchmarks.", "")
+        key = name + ("(" + params + ")" if params else "")
+        metric = r["primaryMetric"]
+        scores[key] = (r["mode"], metric["score"], metric.get("scoreError", 0.0), metric["scoreUnit"])
+
+    return scores
+
+
+def main(args):
+    if len(args) < 2:
+        print(__doc__.strip())
+        return 2
+
+    baseline = load(args[0])
+    candidate = load(args[1])
+    threshold = float(args[2]) if len(args) > 2 else 10.0
+    regressions = 0
+    keys = sorted(baseline.keys() | candidate.keys())
+    width = max([len(k) for k in keys] + [len("Benchmark")])
+
+    print("%-*s %14s %14s %9s" % (width, "Benchmark", "Baseline", "Candidate", "Change"))
+
+    for key in keys:
+        if key not in baseline or key not in candidate:
+            print("%-*s %s" % (width, key, "only in candidate" if key in candidate else "only in baseline"))
+            continue
+
+        mode, old, _, unit = baseline[key]
+        _, new, _, _ = candidate[key]
+        change = (new - old) / old * 100.0 if old else 0.0
+
+        # Lower is better for times, higher is better for throughput.
+        worse = change > threshold if mode in ("avgt", "sample", "ss") else change < -threshold
+        marker = "  REGRESSION" if worse else ""
+        regressions += worse
+
+        print("%-*s %11.3f %s %11.3f %s %+8.1f%%%s" % (width, key, old, unit[:2], new, unit[:2], change, marker))
+
+    if regressions:
+        print("\n%d benchmark(s) regressed by more than %.1f%%." % (regressions, threshold))
+        return 1
+
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main(sys.argv[1:]))
@@ -0,0 +1,79 @@
+package middleware.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payloads shared by the benchmarks.
+ *
+ * @author keim
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Reads the booking of the test resource "booking.json" the given number of
+     * times, each with a unique ID.
+     *
+     * @param mapper
+     * @param count
+     * @return
+     * @throws IOException
+     */
+    static List<Booking> loadBookings(ObjectMapper mapper, int count) throws IOException {
+        byte[] json;
+
+        try (var in = BenchmarkData.class.getResourceAsStream("/booking.json")) {
+            json = in.readAllBytes();
+        }
+
+        var bookings = new ArrayList<Booking>(count);
+
+        for (int i = 0; i < count; ++i) {
+            var booking = mapper.readValue(json, Booking.class);
+            booking.setId("booking-" + i);
+            bookings.add(booking);
+        }
+
+        return bookings;
+    }
+
+    /**
+     * Creates options similar to those of a typical sharing provider, each
+     * with a leg that has a geo path of 20 points.
+     *
+     * @param count
+     * @return
+     */
+    static List<Option> createOptions(int count) {
+        var options = new ArrayList<Option>(count);
+        var start = ZonedDateTime.parse("2020-05-01T12:00:00+02:00");
+
+        for (int i = 0; i < count; ++i) {
+            var geoPath = new ArrayList<Coordinates>();
+            for (int j = 0; j < 20; ++j) {
+                geoPath.add(new Coordinates(48.74 + j * 0.001, 9.31 + i * 0.001));
+            }
+
+            var leg = new Leg(Place.fromCoordinates(48.74, 9.31 + i * 0.001), start)
+                    .setTo(new Place("place-" + i).setLat(48.78).setLon(9.18).setName("Place " + i))
+                    .setEndTime(start.plusMinutes(i))
+                    .setGeoPath(geoPath)
+                    .setDistanceMeter(1000 + i);
+
+            options.add(new Option("service", leg, false).setOptionReference("option-" + i));
+        }
+
+        return options;
+    }
+}
@@ -0,0 +1,75 @@
+package middleware.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareModelModule;
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.utils.FlexibleZonedDateTimeDeserializer;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the serialization of booking lists, using the booking of the test
+ * resource "booking.json" as fixture.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec}.
+ *
+ * @author keim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingSerializationBenchmark {
+
+    private static final TypeReference<List<Booking>> BOOKING_LIST = new TypeReference<>() {
+    };
+
+    @Param({"1", "100"})
+    private int bookings;
+
+    private ObjectMapper mapper;
+    private List<Booking> bookingList;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .registerModule(new SimpleModule().addDeserializer(ZonedDateTime.class, new FlexibleZonedDateTimeDeserializer()))
+                .registerModule(new MiddlewareModelModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        bookingList = BenchmarkData.loadBookings(mapper, bookings);
+        json = mapper.writeValueAsBytes(bookingList);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return mapper.writeValueAsBytes(bookingList);
+    }
+
+    @Benchmark
+    public List<Booking> deserialize() throws Exception {
+        return mapper.readValue(json, BOOKING_LIST);
+    }
+}
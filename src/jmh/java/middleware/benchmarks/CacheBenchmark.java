@@ -0,0 +1,78 @@
+package middleware.benchmarks;
+
+import de.hsesslingen.keim.efs.middleware.utils.Cache;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Cache} as used for credentials and tokens: Mostly hits from
+ * several threads, some misses and sets that evict items when the cache is
+ * full.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec}.
+ *
+ * @author keim
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CacheBenchmark {
+
+    @Param({"1000"})
+    private int size;
+
+    private Cache<String, String> cache;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        cache = new Cache<>(Duration.ofMinutes(10), size);
+        keys = new String[size * 2];
+
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = "token-" + i;
+        }
+        for (int i = 0; i < size; ++i) {
+            cache.set(keys[i], "credentials-" + i);
+        }
+    }
+
+    @Benchmark
+    public Optional<String> getHit(Cursor cursor) {
+        return cache.get(keys[cursor.next++ % size]);
+    }
+
+    @Benchmark
+    public Optional<String> getMiss(Cursor cursor) {
+        return cache.get(keys[size + cursor.next++ % size]);
+    }
+
+    @Benchmark
+    public void set(Cursor cursor) {
+        var key = keys[cursor.next++ % keys.length];
+        cache.set(key, key);
+    }
+}
@@ -0,0 +1,102 @@
+package middleware.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareModelModule;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the CPU cost of gzip compression of option lists on the provider
+ * side and of decompression on the consumer side. The payload sizes and the
+ * resulting transfer times on a 10 MBit/s link are printed during setup, so
+ * that the CPU cost can be weighed against the saved transfer time.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec}.
+ *
+ * @author keim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final TypeReference<List<Option>> OPTION_LIST = new TypeReference<>() {
+    };
+
+    private static final double LINK_BYTES_PER_MILLI = 10_000_000 / 8 / 1000.0;
+
+    @Param({"10", "100"})
+    private int options;
+
+    private ObjectMapper mapper;
+    private List<Option> optionList;
+    private byte[] json;
+    private byte[] gzippedJson;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .registerModule(new MiddlewareModelModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        optionList = BenchmarkData.createOptions(options);
+        json = mapper.writeValueAsBytes(optionList);
+        gzippedJson = writeGzipped();
+
+        System.out.printf("%n%d options: %d bytes plain (%.1f ms at 10 MBit/s), %d bytes gzipped (%.1f ms at 10 MBit/s)%n",
+                options,
+                json.length, json.length / LINK_BYTES_PER_MILLI,
+                gzippedJson.length, gzippedJson.length / LINK_BYTES_PER_MILLI);
+    }
+
+    @Benchmark
+    public byte[] writePlain() throws Exception {
+        return mapper.writeValueAsBytes(optionList);
+    }
+
+    @Benchmark
+    public byte[] writeGzipped() throws Exception {
+        var out = new ByteArrayOutputStream(json != null ? json.length / 4 : 1024);
+
+        try (var gzip = new GZIPOutputStream(out)) {
+            mapper.writeValue(gzip, optionList);
+        }
+
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Option> readPlain() throws Exception {
+        return mapper.readValue(json, OPTION_LIST);
+    }
+
+    @Benchmark
+    public List<Option> readGzipped() throws Exception {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzippedJson))) {
+            return mapper.readValue(in, OPTION_LIST);
+        }
+    }
+}
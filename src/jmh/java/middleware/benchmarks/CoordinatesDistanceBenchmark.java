@@ -0,0 +1,88 @@
+package middleware.benchmarks;
+
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.ICoordinates;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the ways of calculating distances from one point to many points,
+ * as done e.g. for radius filtering.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec}.
+ *
+ * @author keim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinatesDistanceBenchmark {
+
+    @Param({"1000"})
+    private int points;
+
+    private Coordinates origin;
+    private Coordinates[] coordinates;
+    private double[] packedLatLons;
+    private double[] result;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+
+        origin = new Coordinates(48.74, 9.31);
+        coordinates = new Coordinates[points];
+        packedLatLons = new double[points * 2];
+        result = new double[points];
+
+        for (int i = 0; i < points; ++i) {
+            var lat = 48.74 + random.nextDouble() * 0.2 - 0.1;
+            var lon = 9.31 + random.nextDouble() * 0.2 - 0.1;
+
+            coordinates[i] = new Coordinates(lat, lon);
+            packedLatLons[2 * i] = lat;
+            packedLatLons[2 * i + 1] = lon;
+        }
+    }
+
+    @Benchmark
+    public void haversineBoxed(Blackhole bh) {
+        for (var c : coordinates) {
+            bh.consume(ICoordinates.distanceKmBetween(origin, c));
+        }
+    }
+
+    @Benchmark
+    public void haversinePrimitive(Blackhole bh) {
+        for (int i = 0; i < points; ++i) {
+            bh.consume(ICoordinates.distanceKm(48.74, 9.31, packedLatLons[2 * i], packedLatLons[2 * i + 1]));
+        }
+    }
+
+    @Benchmark
+    public void equirectangular(Blackhole bh) {
+        for (int i = 0; i < points; ++i) {
+            bh.consume(ICoordinates.approxDistanceKm(48.74, 9.31, packedLatLons[2 * i], packedLatLons[2 * i + 1]));
+        }
+    }
+
+    @Benchmark
+    public double[] haversineBulk() {
+        return ICoordinates.distancesKm(48.74, 9.31, packedLatLons, result);
+    }
+}
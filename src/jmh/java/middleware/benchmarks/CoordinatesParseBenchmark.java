@@ -0,0 +1,45 @@
+package middleware.benchmarks;
+
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.ICoordinates;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of "lat,lon" strings, as done for every position given
+ * as query parameter.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec}.
+ *
+ * @author keim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinatesParseBenchmark {
+
+    @Param({"48.7411,9.3106", "48.741123456789,9.310612345678", "-33.8688, 151.2093", "1e1,2e1"})
+    private String value;
+
+    @Benchmark
+    public Coordinates parse() {
+        return Coordinates.parse(value);
+    }
+
+    @Benchmark
+    public Coordinates parseLatLonAndValidate() {
+        return ICoordinates.parseLatLonAndValidate(value, Coordinates::new, () -> null);
+    }
+}
@@ -0,0 +1,93 @@
+package middleware.benchmarks;
+
+import de.hsesslingen.keim.efs.middleware.utils.FlexibleZonedDateTimeParser;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link FlexibleZonedDateTimeParser} with the former implementation,
+ * which tried all parsers in sequence until one did not throw, for every
+ * supported format.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec}.
+ *
+ * @author keim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlexibleZonedDateTimeParserBenchmark {
+
+    private static final Pattern MILLIS_PATTERN = Pattern.compile("^[0-9]+$");
+
+    @Param({
+        "1583935200000",
+        "2020-03-11T15:00+01:00[Europe/Berlin]",
+        "2020-03-11T15:00:00+01:00",
+        "2020-03-11T15:00:00",
+        "2020-03-11",
+        "15:00+01:00",
+        "15:00"
+    })
+    private String value;
+
+    @Benchmark
+    public ZonedDateTime current() {
+        return FlexibleZonedDateTimeParser.tryParseZonedDateTime(value);
+    }
+
+    @Benchmark
+    public ZonedDateTime exceptionDriven() {
+        if (MILLIS_PATTERN.matcher(value).matches()) {
+            return Instant.ofEpochMilli(Long.parseLong(value)).atZone(ZoneId.systemDefault());
+        }
+
+        try {
+            return ZonedDateTime.parse(value);
+        } catch (Exception ex) {
+        }
+
+        try {
+            return OffsetDateTime.parse(value).toZonedDateTime();
+        } catch (Exception ex) {
+        }
+
+        try {
+            return LocalDateTime.parse(value).atZone(ZoneId.systemDefault());
+        } catch (Exception ex) {
+        }
+
+        try {
+            return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault());
+        } catch (Exception ex) {
+        }
+
+        try {
+            return OffsetTime.parse(value).atDate(LocalDate.now()).toZonedDateTime();
+        } catch (Exception ex) {
+        }
+
+        return LocalTime.parse(value).atDate(LocalDate.now()).atZone(ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,90 @@
+package middleware.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareModelModule;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.OptionView;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the reflective serialization of option lists with the streaming
+ * serializers of {@link MiddlewareModelModule}, and with reading the lists
+ * into {@link OptionView} objects.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec}.
+ *
+ * @author keim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionSerializationBenchmark {
+
+    private static final TypeReference<List<Option>> OPTION_LIST = new TypeReference<>() {
+    };
+
+    private static final TypeReference<List<OptionView>> OPTION_VIEW_LIST = new TypeReference<>() {
+    };
+
+    @Param({"100"})
+    private int options;
+
+    private ObjectMapper reflective;
+    private ObjectMapper streaming;
+    private List<Option> optionList;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        reflective = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        streaming = reflective.copy().registerModule(new MiddlewareModelModule());
+
+        optionList = BenchmarkData.createOptions(options);
+        json = reflective.writeValueAsBytes(optionList);
+    }
+
+    @Benchmark
+    public byte[] serializeReflective() throws Exception {
+        return reflective.writeValueAsBytes(optionList);
+    }
+
+    @Benchmark
+    public byte[] serializeStreaming() throws Exception {
+        return streaming.writeValueAsBytes(optionList);
+    }
+
+    @Benchmark
+    public List<Option> deserializeReflective() throws Exception {
+        return reflective.readValue(json, OPTION_LIST);
+    }
+
+    @Benchmark
+    public List<Option> deserializeStreaming() throws Exception {
+        return streaming.readValue(json, OPTION_LIST);
+    }
+
+    @Benchmark
+    public List<OptionView> deserializeViews() throws Exception {
+        return streaming.readValue(json, OPTION_VIEW_LIST);
+    }
+}
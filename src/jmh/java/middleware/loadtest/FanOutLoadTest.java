@@ -0,0 +1,260 @@
+package middleware.loadtest;
+
+import de.hsesslingen.keim.efs.middleware.consumer.MiddlewareService;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToLongFunction;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures the fan-out of {@link MiddlewareService#getOptions},
+ * {@link MiddlewareService#searchPlaces} and
+ * {@link MiddlewareService#getBookings} under load. It starts a
+ * {@link StubServiceDirectory} and a number of providers backed by
+ * {@link SimulatedProviderService}, lets a consumer discover them and then
+ * sends fan-out requests at a fixed target rate. The share of places and
+ * bookings requests is configured in {@link LoadTestSettings}.
+ * <p>
+ * Requests are sent on a fixed schedule, regardless of how long earlier
+ * requests take. Their latency is measured from the time they were scheduled,
+ * so that a stalled consumer shows up in the percentiles instead of hiding
+ * behind a lower request rate. Requests that are dropped because all workers
+ * are busy are recorded with the maximum latency, so that they raise the
+ * percentiles instead of disappearing from them.
+ * <p>
+ * Run with
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.main=middleware.loadtest.FanOutLoadTest -Djmh.args="providers=10 rps=50"}.
+ * See {@link LoadTestSettings} for all settings.
+ *
+ * @author keim
+ */
+public class FanOutLoadTest {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    enum Endpoint {
+        OPTIONS, PLACES, BOOKINGS
+    }
+
+    private final LoadTestSettings settings;
+    private final MiddlewareService service;
+    private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong incomplete = new AtomicLong();
+    private final AtomicLong optionRequests = new AtomicLong();
+    private final AtomicLong options = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public FanOutLoadTest(LoadTestSettings settings, MiddlewareService service) {
+        this.settings = settings;
+        this.service = service;
+
+        for (var endpoint : Endpoint.values()) {
+            histograms.put(endpoint, new ConcurrentHistogram(MAX_LATENCY_NANOS, 3));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var settings = LoadTestSettings.parse(args);
+        System.out.println("Load test with " + settings);
+
+        var providers = new ArrayList<ConfigurableApplicationContext>();
+        ConfigurableApplicationContext consumer = null;
+
+        try (var directory = new StubServiceDirectory()) {
+            for (int i = 0; i < settings.providers; ++i) {
+                providers.add(LoadTestApplications.startProvider("simulated-" + i, directory.getUrl(), settings));
+            }
+
+            consumer = LoadTestApplications.startConsumer(directory.getUrl());
+            LoadTestApplications.awaitProviders(consumer, settings.providers);
+
+            var test = new FanOutLoadTest(settings, consumer.getBean(MiddlewareService.class));
+
+            System.out.println("Warming up for " + settings.warmupSeconds + " s...");
+            test.run(settings.warmupSeconds);
+            test.reset();
+
+            System.out.println("Measuring for " + settings.durationSeconds + " s...");
+            long elapsed = test.run(settings.durationSeconds);
+            test.report(elapsed);
+        } finally {
+            if (consumer != null) {
+                consumer.close();
+            }
+            providers.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    /**
+     * Sends requests at the target rate for the given duration and waits for
+     * all of them to complete.
+     *
+     * @param seconds
+     * @return The elapsed time in nanoseconds.
+     * @throws InterruptedException
+     */
+    long run(int seconds) throws InterruptedException {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / settings.rps);
+        long total = (long) (settings.rps * seconds);
+        var permits = new Semaphore(settings.concurrency);
+        var workers = Executors.newFixedThreadPool(settings.concurrency);
+
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; ++i) {
+            long scheduled = start + i * interval;
+            var endpoint = nextEndpoint();
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            // A request that cannot start because all workers are busy is
+            // dropped rather than silently delaying the schedule. It is
+            // recorded as if it never completed.
+            if (!permits.tryAcquire()) {
+                histograms.get(endpoint).recordValue(MAX_LATENCY_NANOS);
+                dropped.incrementAndGet();
+                continue;
+            }
+
+            workers.execute(() -> {
+                try {
+                    send(endpoint, scheduled);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.MINUTES);
+
+        return System.nanoTime() - start;
+    }
+
+    private Endpoint nextEndpoint() {
+        double r = ThreadLocalRandom.current().nextDouble();
+
+        if (r < settings.placesRatio) {
+            return Endpoint.PLACES;
+        }
+        if (r < settings.placesRatio + settings.bookingsRatio) {
+            return Endpoint.BOOKINGS;
+        }
+
+        return Endpoint.OPTIONS;
+    }
+
+    private void send(Endpoint endpoint, long scheduled) {
+        try {
+            switch (endpoint) {
+                case PLACES:
+                    service.searchPlaces("Place", new Coordinates(48.78, 9.18), 5000, null, serviceId -> null).count();
+                    break;
+                case BOOKINGS:
+                    service.getBookings((Set<String>) null, serviceId -> null).count();
+                    break;
+                default:
+                    sendGetOptions();
+            }
+        } catch (Exception ex) {
+            failed.incrementAndGet();
+        } finally {
+            histograms.get(endpoint).recordValue(Math.min(System.nanoTime() - scheduled, MAX_LATENCY_NANOS));
+            completed.incrementAndGet();
+        }
+    }
+
+    private void sendGetOptions() {
+        long count = service.getOptions(
+                new Coordinates(48.74, 9.31),
+                new Coordinates(48.78, 9.18),
+                ZonedDateTime.now().plusMinutes(5),
+                null, null, null, null, null, settings.geoPathPoints > 0,
+                serviceId -> null
+        ).count();
+
+        optionRequests.incrementAndGet();
+        options.addAndGet(count);
+
+        if (count < (long) settings.providers * settings.optionsPerResponse) {
+            incomplete.incrementAndGet();
+        }
+    }
+
+    void reset() {
+        histograms.values().forEach(Histogram::reset);
+        completed.set(0);
+        failed.set(0);
+        incomplete.set(0);
+        optionRequests.set(0);
+        options.set(0);
+        dropped.set(0);
+    }
+
+    void report(long elapsedNanos) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        long done = completed.get();
+        long optionCount = optionRequests.get();
+
+        var histogram = new Histogram(MAX_LATENCY_NANOS, 3);
+        histograms.values().forEach(histogram::add);
+
+        System.out.println();
+        System.out.printf("Requests:     %d completed, %d failed, %d dropped (%.2f%%)%n",
+                done, failed.get(), dropped.get(), 100.0 * dropped.get() / Math.max(1, done + dropped.get()));
+        System.out.printf("Throughput:   %.1f requests/s (target %.1f)%n", done / seconds, settings.rps);
+        System.out.printf("Incomplete:   %d options requests with missing provider results%n", incomplete.get());
+        System.out.printf("Options:      %.1f per request%n", optionCount == 0 ? 0.0 : (double) options.get() / optionCount);
+        System.out.println("Latency (ms), dropped requests at the maximum of " + MAX_LATENCY_NANOS / 1_000_000 + " ms:");
+        System.out.printf("  %-7s %10s", "", "all");
+        for (var endpoint : Endpoint.values()) {
+            System.out.printf(" %10s", endpoint.name().toLowerCase());
+        }
+        System.out.println();
+
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            printLatencies("p" + percentile, histogram, h -> h.getValueAtPercentile(percentile));
+        }
+        printLatencies("max", histogram, Histogram::getMaxValue);
+
+        if (settings.histogramFile != null && !settings.histogramFile.isEmpty()) {
+            var file = Path.of(settings.histogramFile);
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (var out = new PrintStream(new FileOutputStream(file.toFile()))) {
+                histogram.outputPercentileDistribution(out, 1e6);
+            }
+            System.out.println("Full latency distribution written to " + file);
+        }
+    }
+
+    private void printLatencies(String label, Histogram all, ToLongFunction<Histogram> value) {
+        System.out.printf("  %-7s %10.2f", label, value.applyAsLong(all) / 1e6);
+        for (var endpoint : Endpoint.values()) {
+            System.out.printf(" %10.2f", value.applyAsLong(histograms.get(endpoint)) / 1e6);
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,32 @@
+package middleware.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A log-normal distribution of response times, defined by its median and its
+ * 99th percentile. Response times of real services usually have such a long
+ * tail.
+ *
+ * @author keim
+ */
+class LatencyDistribution {
+
+    private static final double Z_99 = 2.3263;
+
+    private final double median;
+    private final double sigma;
+
+    LatencyDistribution(double medianMs, double p99Ms) {
+        this.median = medianMs;
+        this.sigma = p99Ms > medianMs ? Math.log(p99Ms / medianMs) / Z_99 : 0;
+    }
+
+    /**
+     * Draws a response time in milliseconds.
+     *
+     * @return
+     */
+    long sampleMillis() {
+        return Math.round(median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
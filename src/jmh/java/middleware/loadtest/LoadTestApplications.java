@@ -0,0 +1,117 @@
+package middleware.loadtest;
+
+import de.hsesslingen.keim.efs.middleware.consumer.MiddlewareService;
+import de.hsesslingen.keim.efs.middleware.consumer.ProviderCache;
+import java.io.IOException;
+import java.net.ServerSocket;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the simulated providers and the consumer of a load test as separate
+ * spring contexts within the same JVM. Each context only gets the middleware
+ * beans through auto configuration, just like a real provider or consumer.
+ *
+ * @author keim
+ */
+final class LoadTestApplications {
+
+    private LoadTestApplications() {
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class Provider {
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class Consumer {
+    }
+
+    /**
+     * Starts a provider with the given service id, which registers itself at
+     * the given service directory when it is ready.
+     *
+     * @param serviceId
+     * @param serviceDirectoryUrl
+     * @param settings
+     * @return
+     * @throws IOException
+     */
+    static ConfigurableApplicationContext startProvider(String serviceId, String serviceDirectoryUrl, LoadTestSettings settings) throws IOException {
+        int port = findFreePort();
+
+        return new SpringApplicationBuilder(Provider.class)
+                .initializers(ctx -> ctx.getBeanFactory().registerSingleton("simulatedProviderService", new SimulatedProviderService(serviceId, settings)))
+                .properties(
+                        "server.port=" + port,
+                        "server.tomcat.threads.max=" + Math.max(200, settings.concurrency),
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "middleware.service-directory-url=" + serviceDirectoryUrl,
+                        "middleware.provider.mobility-service.id=" + serviceId,
+                        "middleware.provider.mobility-service.provider-name=Simulated Provider",
+                        "middleware.provider.mobility-service.service-name=" + serviceId,
+                        "middleware.provider.mobility-service.service-url=http://localhost:" + port + "/api",
+                        "middleware.provider.mobility-service.service-area=Esslingen",
+                        "middleware.provider.mobility-service.mobility-types=FREE_RIDE",
+                        "middleware.provider.mobility-service.modes=BICYCLE",
+                        "middleware.provider.mobility-service.apis=OPTIONS_API,PLACES_API,BOOKING_API"
+                )
+                .run();
+    }
+
+    /**
+     * Starts a consumer without web server that gets the providers from the
+     * given service directory.
+     *
+     * @param serviceDirectoryUrl
+     * @return
+     */
+    static ConfigurableApplicationContext startConsumer(String serviceDirectoryUrl) {
+        return new SpringApplicationBuilder(Consumer.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "middleware.consumer.api.enabled=true",
+                        "middleware.service-directory-url=" + serviceDirectoryUrl
+                )
+                .run();
+    }
+
+    /**
+     * Refreshes the provider cache of the consumer until it knows the expected
+     * number of providers.
+     *
+     * @param consumer
+     * @param expected
+     * @throws InterruptedException
+     */
+    static void awaitProviders(ConfigurableApplicationContext consumer, int expected) throws InterruptedException {
+        var cache = consumer.getBean(ProviderCache.class);
+        var service = consumer.getBean(MiddlewareService.class);
+
+        for (int attempt = 0; attempt < 50; ++attempt) {
+            cache.refreshAvailableProviders();
+
+            if (service.getProviders().size() >= expected) {
+                return;
+            }
+
+            Thread.sleep(200);
+        }
+
+        throw new IllegalStateException("The consumer only found " + service.getProviders().size() + " of " + expected + " providers.");
+    }
+
+    private static int findFreePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package middleware.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of a {@link FanOutLoadTest}, given as arguments in the form
+ * {@code key=value}. See the fields of this class for the available keys and
+ * their defaults.
+ *
+ * @author keim
+ */
+class LoadTestSettings {
+
+    /**
+     * Number of simulated providers.
+     */
+    int providers = 5;
+
+    /**
+     * Target rate of fan-out requests sent to all providers per second.
+     */
+    double rps = 20;
+
+    /**
+     * Ratio of fan-out requests that search places or get bookings. All other
+     * requests get options.
+     */
+    double placesRatio = 0.1;
+    double bookingsRatio = 0.1;
+
+    int warmupSeconds = 5;
+    int durationSeconds = 30;
+
+    /**
+     * Maximum number of fan-out requests in progress at the same time.
+     */
+    int concurrency = 64;
+
+    /**
+     * Median and 99th percentile of the response time of a provider. Response
+     * times follow a log-normal distribution defined by these two values.
+     */
+    double latencyMedianMs = 50;
+    double latencyP99Ms = 400;
+
+    /**
+     * Ratio of provider requests that fail with an internal server error.
+     */
+    double errorRate = 0.01;
+
+    /**
+     * Number of options returned by each provider and the number of points in
+     * the geo path of each option.
+     */
+    int optionsPerResponse = 20;
+    int geoPathPoints = 0;
+
+    /**
+     * Optional file to which the full latency distribution is written in the
+     * format of HdrHistogram.
+     */
+    String histogramFile = "target/loadtest.hgrm";
+
+    static LoadTestSettings parse(String[] args) {
+        var values = new HashMap<String, String>();
+
+        for (var arg : args) {
+            int i = arg.indexOf('=');
+            if (i < 1) {
+                throw new IllegalArgumentException("Arguments must be given as key=value, but got \"" + arg + "\".");
+            }
+            values.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+
+        var settings = new LoadTestSettings();
+        settings.providers = getInt(values, "providers", settings.providers);
+        settings.rps = getDouble(values, "rps", settings.rps);
+        settings.placesRatio = getDouble(values, "placesRatio", settings.placesRatio);
+        settings.bookingsRatio = getDouble(values, "bookingsRatio", settings.bookingsRatio);
+        settings.warmupSeconds = getInt(values, "warmupSeconds", settings.warmupSeconds);
+        settings.durationSeconds = getInt(values, "durationSeconds", settings.durationSeconds);
+        settings.concurrency = getInt(values, "concurrency", settings.concurrency);
+        settings.latencyMedianMs = getDouble(values, "latencyMedianMs", settings.latencyMedianMs);
+        settings.latencyP99Ms = getDouble(values, "latencyP99Ms", settings.latencyP99Ms);
+        settings.errorRate = getDouble(values, "errorRate", settings.errorRate);
+        settings.optionsPerResponse = getInt(values, "optionsPerResponse", settings.optionsPerResponse);
+        settings.geoPathPoints = getInt(values, "geoPathPoints", settings.geoPathPoints);
+        settings.histogramFile = values.getOrDefault("histogramFile", settings.histogramFile);
+
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown settings: " + values.keySet());
+        }
+        if (settings.placesRatio < 0 || settings.bookingsRatio < 0 || settings.placesRatio + settings.bookingsRatio > 1) {
+            throw new IllegalArgumentException("placesRatio and bookingsRatio must not be negative and add up to at most 1.");
+        }
+
+        return settings;
+    }
+
+    private static int getInt(Map<String, String> values, String key, int defaultValue) {
+        var value = values.remove(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static double getDouble(Map<String, String> values, String key, double defaultValue) {
+        var value = values.remove(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    @Override
+    public String toString() {
+        return "providers=" + providers + ", rps=" + rps
+                + ", placesRatio=" + placesRatio + ", bookingsRatio=" + bookingsRatio
+                + ", warmupSeconds=" + warmupSeconds + ", durationSeconds=" + durationSeconds
+                + ", concurrency=" + concurrency
+                + ", latencyMedianMs=" + latencyMedianMs + ", latencyP99Ms=" + latencyP99Ms
+                + ", errorRate=" + errorRate
+                + ", optionsPerResponse=" + optionsPerResponse + ", geoPathPoints=" + geoPathPoints;
+    }
+}
@@ -0,0 +1,164 @@
+package middleware.loadtest;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.BookingAction;
+import de.hsesslingen.keim.efs.middleware.model.BookingState;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.ICoordinates;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.NewBooking;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+import de.hsesslingen.keim.efs.middleware.provider.IBookingService;
+import de.hsesslingen.keim.efs.middleware.provider.IOptionsService;
+import de.hsesslingen.keim.efs.middleware.provider.IPlacesService;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.AbstractCredentials;
+import static de.hsesslingen.keim.efs.mobility.exception.HttpException.internalServerError;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A provider that answers after a simulated response time, fails with the
+ * configured error rate and returns a fixed number of options per request, a
+ * fixed list of places and the bookings created so far, starting with a few
+ * existing ones.
+ *
+ * @author keim
+ */
+public class SimulatedProviderService implements IOptionsService, IPlacesService, IBookingService {
+
+    private final String serviceId;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final List<Option> options;
+    private final List<Place> places;
+    private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+
+    public SimulatedProviderService(String serviceId, LoadTestSettings settings) {
+        this.serviceId = serviceId;
+        this.latency = new LatencyDistribution(settings.latencyMedianMs, settings.latencyP99Ms);
+        this.errorRate = settings.errorRate;
+        this.options = createOptions(serviceId, settings.optionsPerResponse, settings.geoPathPoints);
+        this.places = options.stream().map(o -> o.getLeg().getTo()).limit(10).collect(toList());
+
+        // Some existing bookings, so that getting bookings returns results.
+        options.stream().limit(5).forEach(o -> {
+            var booking = new Booking()
+                    .setServiceId(serviceId)
+                    .setId(o.getOptionReference() + "-booking")
+                    .setState(BookingState.BOOKED);
+            booking.setLeg(o.getLeg());
+            bookings.put(booking.getId(), booking);
+        });
+    }
+
+    private static List<Option> createOptions(String serviceId, int count, int geoPathPoints) {
+        var options = new ArrayList<Option>(count);
+        var start = ZonedDateTime.now().withNano(0);
+
+        for (int i = 0; i < count; ++i) {
+            var leg = new Leg(Place.fromCoordinates(48.74, 9.31 + i * 0.001), start)
+                    .setTo(new Place(serviceId + "-place-" + i).setLat(48.78).setLon(9.18).setName("Place " + i))
+                    .setEndTime(start.plusMinutes(10 + i))
+                    .setDistanceMeter(1000 + i);
+
+            if (geoPathPoints > 0) {
+                var geoPath = new ArrayList<Coordinates>(geoPathPoints);
+                for (int j = 0; j < geoPathPoints; ++j) {
+                    geoPath.add(new Coordinates(48.74 + j * 0.001, 9.31 + i * 0.001));
+                }
+                leg.setGeoPath(geoPath);
+            }
+
+            options.add(new Option(serviceId, leg, false).setOptionReference(serviceId + "-option-" + i));
+        }
+
+        return options;
+    }
+
+    /**
+     * Blocks the calling thread for a simulated response time and fails with
+     * the configured error rate.
+     */
+    private void simulateWork() {
+        try {
+            Thread.sleep(latency.sampleMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            throw internalServerError("Simulated failure of provider " + serviceId + ".");
+        }
+    }
+
+    @Override
+    public List<Option> getOptions(Place from, Place to, ZonedDateTime startTime, ZonedDateTime endTime, Integer radiusMeter, Boolean sharingAllowed, Set modesAllowed, Integer limitTo, Boolean includeGeoPaths, AbstractCredentials credentials) {
+        simulateWork();
+
+        if (limitTo != null && limitTo < options.size()) {
+            return options.subList(0, limitTo);
+        }
+
+        return options;
+    }
+
+    @Override
+    public List<Place> search(String query, ICoordinates areaCenter, Integer radiusMeter, Integer limitTo, AbstractCredentials credentials) {
+        simulateWork();
+        return places;
+    }
+
+    @Override
+    public List<Booking> getBookings(BookingState state, AbstractCredentials credentials) {
+        simulateWork();
+
+        return bookings.values().stream()
+                .filter(b -> state == null || b.getState() == state)
+                .collect(toList());
+    }
+
+    @Override
+    public Booking getBookingById(String id, AbstractCredentials credentials) {
+        simulateWork();
+        return bookings.get(id);
+    }
+
+    @Override
+    public Booking createNewBooking(NewBooking newBooking, String optionReference, AbstractCredentials credentials) {
+        simulateWork();
+
+        var booking = new Booking()
+                .setServiceId(serviceId)
+                .setId(UUID.randomUUID().toString())
+                .setState(BookingState.BOOKED);
+        booking.setLeg(newBooking.getLeg());
+        booking.setCustomer(newBooking.getCustomer());
+
+        bookings.put(booking.getId(), booking);
+        return booking;
+    }
+
+    @Override
+    public Booking modifyBooking(String id, Booking booking, AbstractCredentials credentials) {
+        simulateWork();
+
+        booking.setId(id);
+        booking.setServiceId(serviceId);
+        bookings.put(id, booking);
+        return booking;
+    }
+
+    @Override
+    public Booking performAction(String bookingId, BookingAction action, String secret, AbstractCredentials credentials) {
+        simulateWork();
+        return bookings.get(bookingId);
+    }
+}
@@ -0,0 +1,88 @@
+package middleware.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.hsesslingen.keim.efs.mobility.service.MobilityService;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A minimal in-process service directory: Providers register themselves with
+ * "POST /api/services" and deregister with "DELETE /api/services/{id}".
+ * Consumers get all of them with "GET /api/search". Filters of the search are
+ * ignored.
+ *
+ * @author keim
+ */
+class StubServiceDirectory implements AutoCloseable {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, MobilityService> services = new ConcurrentHashMap<>();
+    private final HttpServer server;
+
+    StubServiceDirectory() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/api/services", this::register);
+        server.createContext("/api/search", this::search);
+        server.start();
+    }
+
+    /**
+     * The URL to be used as "middleware.service-directory-url".
+     *
+     * @return
+     */
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api";
+    }
+
+    int size() {
+        return services.size();
+    }
+
+    private void register(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if ("DELETE".equals(exchange.getRequestMethod())) {
+                var path = exchange.getRequestURI().getPath();
+                services.remove(path.substring(path.lastIndexOf('/') + 1));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            var service = mapper.readValue(exchange.getRequestBody(), MobilityService.class);
+            services.put(service.getId(), service);
+            respond(exchange, service);
+        }
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            respond(exchange, new ArrayList<>(services.values()));
+        }
+    }
+
+    private void respond(HttpExchange exchange, Object body) throws IOException {
+        var bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+}
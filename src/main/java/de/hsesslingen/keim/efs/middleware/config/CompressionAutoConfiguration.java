@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.config;
+
+import de.hsesslingen.keim.efs.middleware.consumer.GzipResponseInterceptor;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareMediaTypes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Enables gzip compression of larger responses of providers and of responses
+ * received by consumers. Options with geo paths and assets are very
+ * repetitive and usually shrink to a fraction of their size.
+ * <p>
+ * On the provider side, the compression of the embedded web server is enabled
+ * for JSON and Smile responses larger than
+ * "middleware.compression.min-response-size" (2KB by default), unless the
+ * application configures "server.compression.enabled" itself.
+ * <p>
+ * On the consumer side, rest templates created from the
+ * {@link org.springframework.boot.web.client.RestTemplateBuilder} ask for gzip
+ * compressed responses and decompress them while reading. This includes the
+ * default {@link de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequestTemplate},
+ * which is used by the
+ * {@link de.hsesslingen.keim.efs.middleware.consumer.ProviderProxy}, see
+ * {@link RestUtilsAutoConfiguration}.
+ * <p>
+ * This is opt-in. Set "middleware.compression.enabled" to true to enable both.
+ *
+ * @author keim
+ */
+@Configuration
+@ConditionalOnProperty(name = "middleware.compression.enabled", havingValue = "true")
+public class CompressionAutoConfiguration {
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> compressionWebServerFactoryCustomizer(
+            Environment environment,
+            @Value("${middleware.compression.min-response-size:2KB}") DataSize minResponseSize
+    ) {
+        return factory -> {
+            if (environment.containsProperty("server.compression.enabled")) {
+                // Explicit server configuration of the application takes precedence.
+                return;
+            }
+
+            var compression = new Compression();
+            compression.setEnabled(true);
+            compression.setMinResponseSize(minResponseSize);
+            compression.setMimeTypes(new String[]{
+                MediaType.APPLICATION_JSON_VALUE,
+                MiddlewareMediaTypes.APPLICATION_SMILE_VALUE
+            });
+
+            factory.setCompression(compression);
+        };
+    }
+
+    @Bean
+    public RestTemplateCustomizer gzipRestTemplateCustomizer() {
+        var interceptor = new GzipResponseInterceptor();
+        return restTemplate -> restTemplate.getInterceptors().add(interceptor);
+    }
+}
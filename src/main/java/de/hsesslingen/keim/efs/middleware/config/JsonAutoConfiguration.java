@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.config;
+
+import com.fasterxml.jackson.databind.Module;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareModelModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the {@link MiddlewareModelModule} in the object mapper that is
+ * auto-configured by Spring Boot, which is used by the controllers of
+ * providers as well as by the rest templates of consumers, if the property
+ * "middleware.json.model-module.enabled" is set to true.
+ * <p>
+ * The module is opt-in because its hand-written serializers always produce
+ * the default JSON of the model classes. Mapper settings like
+ * "spring.jackson.default-property-inclusion", naming strategies or views are
+ * not applied to options, legs and places while it is registered.
+ *
+ * @author keim
+ */
+@Configuration
+@ConditionalOnProperty(name = "middleware.json.model-module.enabled", havingValue = "true")
+public class JsonAutoConfiguration {
+
+    @Bean
+    public Module middlewareModelModule() {
+        return new MiddlewareModelModule();
+    }
+}
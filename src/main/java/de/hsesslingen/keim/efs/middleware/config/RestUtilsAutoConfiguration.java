@@ -25,7 +25,9 @@ package de.hsesslingen.keim.efs.middleware.config;
 
 import de.hsesslingen.keim.efs.mobility.requests.DefaultRequestTemplate;
 import de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequestTemplate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.DefaultResponseErrorHandler;
@@ -43,10 +45,19 @@ public class RestUtilsAutoConfiguration {
         return new DefaultResponseErrorHandler();
     }
 
+    /**
+     * The rest template of the request template is created from the
+     * {@link RestTemplateBuilder}, so that all
+     * {@link org.springframework.boot.web.client.RestTemplateCustomizer}s, e.g.
+     * for compression and Smile, apply to the requests sent to providers.
+     *
+     * @param builder
+     * @return
+     */
     @Bean
     @ConditionalOnMissingBean
-    public MiddlewareRequestTemplate requestTemplate() {
-        return new DefaultRequestTemplate();
+    public MiddlewareRequestTemplate requestTemplate(ObjectProvider<RestTemplateBuilder> builder) {
+        return new DefaultRequestTemplate(builder.getIfAvailable(RestTemplateBuilder::new).build());
     }
 
 }
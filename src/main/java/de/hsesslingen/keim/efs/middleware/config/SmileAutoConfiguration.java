@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareMediaTypes;
+import de.hsesslingen.keim.efs.middleware.provider.ApiBase;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Adds support for the binary Smile format if jackson-dataformat-smile is on
+ * the classpath. The Smile object mapper is created from the same
+ * {@link Jackson2ObjectMapperBuilder} as the JSON object mapper and therefore
+ * uses the same modules and settings.
+ * <p>
+ * Providers answer with Smile if a client asks for it in the accept header.
+ * The Smile converter is appended after the JSON converter, so JSON stays the
+ * default for all other clients. This can be disabled by setting the property
+ * "middleware.smile.enabled" to false, which also removes the Smile converter
+ * that Spring MVC registers by default. The provider APIs declare JSON as the
+ * media type they produce. Only if the Smile converter is registered, Smile is
+ * added to the producible media types of each request to a provider API, so
+ * that clients fall back to JSON otherwise. Clients that accept Smile only are
+ * rejected by providers in any case, so consumers must accept JSON as well.
+ * <p>
+ * Consumers ask providers for Smile if the property
+ * "middleware.consumer.smile.enabled" is set to true. Providers that do not
+ * support Smile answer with JSON instead. Rest templates created from the
+ * {@link org.springframework.boot.web.client.RestTemplateBuilder}, including
+ * the one of the default
+ * {@link de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequestTemplate},
+ * read Smile with the same modules and settings as JSON.
+ *
+ * @author keim
+ */
+@Configuration
+@ConditionalOnClass(name = "com.fasterxml.jackson.dataformat.smile.SmileFactory")
+public class SmileAutoConfiguration {
+
+    private static ObjectMapper createSmileMapper(ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+        return builder.getIfAvailable(Jackson2ObjectMapperBuilder::json)
+                .createXmlMapper(false)
+                .factory(new SmileFactory())
+                .build();
+    }
+
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public static class ProviderSmileConfiguration implements WebMvcConfigurer {
+
+        private final ObjectProvider<Jackson2ObjectMapperBuilder> builder;
+
+        @Value("${middleware.smile.enabled:true}")
+        private boolean enabled;
+
+        public ProviderSmileConfiguration(ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+            // Spring MVC adds a Smile converter whenever Smile is on the classpath, which would neither use
+            // the application's mapper settings nor respect the property.
+            converters.removeIf(c -> c instanceof MappingJackson2SmileHttpMessageConverter);
+
+            if (enabled) {
+                converters.add(new MappingJackson2SmileHttpMessageConverter(createSmileMapper(builder)));
+            }
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            if (enabled) {
+                registry.addInterceptor(new SmileProducesInterceptor());
+            }
+        }
+    }
+
+    /**
+     * Adds Smile to the media types that the matched provider API method
+     * produces, which are only JSON by declaration.
+     */
+    static class SmileProducesInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            if (handler instanceof HandlerMethod && ApiBase.class.isAssignableFrom(((HandlerMethod) handler).getBeanType())) {
+                @SuppressWarnings("unchecked")
+                var producible = (Set<MediaType>) request.getAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE);
+
+                if (producible != null && producible.contains(MediaType.APPLICATION_JSON)) {
+                    var extended = new LinkedHashSet<>(producible);
+                    extended.add(MiddlewareMediaTypes.APPLICATION_SMILE);
+                    request.setAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE, extended);
+                }
+            }
+
+            return true;
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "middleware.consumer.smile.enabled", havingValue = "true")
+    public static class ConsumerSmileConfiguration {
+
+        @Bean
+        public RestTemplateCustomizer smileRestTemplateCustomizer(ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+            return restTemplate -> {
+                var converters = restTemplate.getMessageConverters();
+                converters.removeIf(c -> c instanceof MappingJackson2SmileHttpMessageConverter);
+                converters.add(new MappingJackson2SmileHttpMessageConverter(createSmileMapper(builder)));
+            };
+        }
+    }
+}
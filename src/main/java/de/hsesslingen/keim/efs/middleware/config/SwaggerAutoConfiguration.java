@@ -40,6 +40,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -112,7 +113,8 @@ public class SwaggerAutoConfiguration {
                         RequestHandlerSelectors.basePackage("de.hsesslingen.keim.efs.adapter")
                 ))
                 .paths(PathSelectors.any())
-                .build();
+                .build()
+                .genericModelSubstitutes(DeferredResult.class);
 
         setTags(docket);
         docket.apiInfo(apiInfo());
@@ -0,0 +1,483 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.BookingState;
+import static de.hsesslingen.keim.efs.mobility.service.MobilityService.API.BOOKING_API;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import static java.util.stream.Collectors.toList;
+import org.slf4j.Logger;
+import static org.slf4j.LoggerFactory.getLogger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the bookings of users at all providers locally, indexed by state,
+ * start time and provider, so that repeated reads do not query every provider
+ * again like {@link MiddlewareService#getBookings(Map)} does.
+ * <p>
+ * The bookings of a user at a provider are fetched again when they are older
+ * than {@code middleware.consumer.booking-index.max-staleness-seconds} at the
+ * time they are read. Providers are synced independently of each other: If a
+ * provider fails, its previous bookings are kept and it is tried again on the
+ * next read. Concurrent reads of the same user wait for a running sync of a
+ * provider instead of starting another one. Bookings that the application creates or changes itself, and
+ * changes received by {@link #follow(String, Function)}, are applied using
+ * {@link #update(String, Booking)} and need no sync at all.
+ * <p>
+ * Call {@link #removeUser(String)} when a user logs out, to free the memory
+ * and to end all subscriptions of this user. Users whose bookings were neither
+ * read nor updated for "middleware.consumer.booking-index.max-idle-minutes"
+ * (30 by default) are removed in the same way.
+ *
+ * @author keim
+ */
+@Service
+@Lazy
+@EnableScheduling
+public class BookingIndex {
+
+    private static final Logger logger = getLogger(BookingIndex.class);
+
+    @Autowired
+    private MiddlewareService middlewareService;
+
+    @Value("${middleware.consumer.booking-index.max-staleness-seconds:60}")
+    private long maxStalenessSeconds = 60;
+
+    /**
+     * Users whose bookings were not read or updated within this number of
+     * minutes are removed.
+     */
+    @Value("${middleware.consumer.booking-index.max-idle-minutes:30}")
+    private long maxIdleMinutes = 30;
+
+    private final Map<String, UserBookings> users = new ConcurrentHashMap<>();
+
+    /**
+     * Returns all bookings of the given user, ordered by their start time.
+     *
+     * @param user An identifier of the user within the consumer application.
+     * @param serviceTokenGetter Returns the token of the user for a service id,
+     * e.g. {@link TokenManager#tokenGetter(String)}.
+     * @return
+     */
+    public List<Booking> getBookings(String user, Function<String, String> serviceTokenGetter) {
+        return sync(user, serviceTokenGetter).getByStart(null, null);
+    }
+
+    /**
+     * Returns the bookings of the given user that are in the given state,
+     * ordered by their start time.
+     *
+     * @param user An identifier of the user within the consumer application.
+     * @param state
+     * @param serviceTokenGetter Returns the token of the user for a service id.
+     * @return
+     */
+    public List<Booking> getBookings(String user, BookingState state, Function<String, String> serviceTokenGetter) {
+        return sync(user, serviceTokenGetter).getByState(state);
+    }
+
+    /**
+     * Returns the bookings of the given user that start within the given
+     * period, ordered by their start time.
+     *
+     * @param user An identifier of the user within the consumer application.
+     * @param from The inclusive start of the period or {@code null}.
+     * @param to The exclusive end of the period or {@code null}.
+     * @param serviceTokenGetter Returns the token of the user for a service id.
+     * @return
+     */
+    public List<Booking> getBookings(String user, ZonedDateTime from, ZonedDateTime to, Function<String, String> serviceTokenGetter) {
+        return sync(user, serviceTokenGetter).getByStart(from, to);
+    }
+
+    /**
+     * Returns the bookings of the given user at the provider with the given
+     * service id.
+     *
+     * @param user An identifier of the user within the consumer application.
+     * @param serviceId
+     * @param serviceTokenGetter Returns the token of the user for a service id.
+     * @return
+     */
+    public List<Booking> getBookingsOfProvider(String user, String serviceId, Function<String, String> serviceTokenGetter) {
+        return sync(user, serviceTokenGetter).getByService(serviceId);
+    }
+
+    /**
+     * Adds or replaces a booking of the given user, e.g. after it was created
+     * or modified by the application.
+     *
+     * @param user
+     * @param booking
+     */
+    public void update(String user, Booking booking) {
+        if (booking != null && booking.getServiceId() != null && booking.getId() != null) {
+            var bookings = getUserBookings(user);
+            bookings.put(booking);
+        }
+    }
+
+    /**
+     * Subscribes to changes of all bookings of the given user that are not
+     * closed yet and applies them to this index. See
+     * {@link ProviderProxy#subscribeToBooking}. Bookings that are already
+     * followed are skipped, so this method can be called after every sync.
+     *
+     * @param user
+     * @param serviceTokenGetter Returns the token of the user for a service id.
+     */
+    public void follow(String user, Function<String, String> serviceTokenGetter) {
+        var bookings = sync(user, serviceTokenGetter);
+
+        for (var booking : bookings.getByStart(null, null)) {
+            if (booking.getState() != null && booking.getState().isClosed()) {
+                continue;
+            }
+
+            var provider = middlewareService.getProvider(booking.getServiceId());
+
+            if (provider != null) {
+                bookings.follow(booking, key -> provider.subscribeToBooking(
+                        booking.getId(),
+                        () -> serviceTokenGetter.apply(booking.getServiceId()),
+                        changed -> apply(user, changed)
+                ));
+            }
+        }
+    }
+
+    /**
+     * Applies a change received by a subscription. Unlike
+     * {@link #update(String, Booking)} this does not add the user again if the
+     * change arrives after {@link #removeUser(String)}.
+     */
+    private void apply(String user, Booking booking) {
+        if (booking != null && booking.getServiceId() != null && booking.getId() != null) {
+            users.computeIfPresent(user, (u, bookings) -> {
+                bookings.put(booking);
+                return bookings;
+            });
+        }
+    }
+
+    /**
+     * Forgets all bookings of the given user and ends the subscriptions
+     * started by {@link #follow(String, Function)}.
+     *
+     * @param user
+     */
+    public void removeUser(String user) {
+        var bookings = users.remove(user);
+
+        if (bookings != null) {
+            bookings.close();
+        }
+    }
+
+    /**
+     * Returns the number of users whose bookings are kept.
+     *
+     * @return
+     */
+    public int size() {
+        return users.size();
+    }
+
+    /**
+     * Removes all users whose bookings were not read or updated for the
+     * maximum idle time, like {@link #removeUser(String)} does.
+     */
+    @Scheduled(
+            initialDelayString = "${middleware.consumer.booking-index.cleanup-rate:60000}",
+            fixedRateString = "${middleware.consumer.booking-index.cleanup-rate:60000}"
+    )
+    public void removeIdleUsers() {
+        long idleSince = nanoTime() - TimeUnit.MINUTES.toNanos(maxIdleMinutes);
+
+        for (var e : users.entrySet()) {
+            var bookings = e.getValue();
+
+            if (bookings.lastUsed - idleSince < 0 && users.remove(e.getKey(), bookings)) {
+                bookings.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the current value of {@link System#nanoTime()}, which is used to
+     * find idle users.
+     *
+     * @return
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private UserBookings getUserBookings(String user) {
+        long now = nanoTime();
+        var bookings = users.computeIfAbsent(user, u -> new UserBookings(now));
+        bookings.lastUsed = now;
+        return bookings;
+    }
+
+    /**
+     * Fetches the bookings of all providers whose last sync for the given user
+     * is older than the maximum staleness. The providers are queried in
+     * parallel.
+     */
+    private UserBookings sync(String user, Function<String, String> serviceTokenGetter) {
+        var bookings = getUserBookings(user);
+        var threshold = Instant.now().minus(Duration.ofSeconds(maxStalenessSeconds));
+
+        var stale = middlewareService.getProviders().stream()
+                .filter(p -> p.supportsApi(BOOKING_API))
+                .filter(p -> bookings.isStale(p.getServiceId(), threshold))
+                .collect(toList());
+
+        stale.parallelStream().forEach(provider -> {
+            var serviceId = provider.getServiceId();
+
+            bookings.syncService(serviceId, threshold, () -> {
+                var syncStart = Instant.now();
+
+                try {
+                    var token = serviceTokenGetter == null ? null : serviceTokenGetter.apply(serviceId);
+                    var list = provider.getBookings(token);
+                    bookings.replaceService(serviceId, list == null ? List.of() : list, syncStart);
+                } catch (Exception ex) {
+                    logger.debug("Syncing bookings with {} failed. Keeping the previous ones: {}", serviceId, ex.getMessage());
+                }
+            });
+        });
+
+        return bookings;
+    }
+
+    /**
+     * The bookings of a single user with their indices. Bookings are keyed by
+     * service id and booking id. The time of the last update of each booking
+     * is kept, so that a sync does not overwrite updates that happened while
+     * it was running.
+     */
+    private static class UserBookings {
+
+        private final Map<String, Booking> byKey = new HashMap<>();
+        private final Map<BookingState, Set<String>> byState = new EnumMap<>(BookingState.class);
+        private final Map<String, Set<String>> byService = new HashMap<>();
+        private final NavigableMap<Long, Set<String>> byStart = new TreeMap<>();
+        private final Map<String, Instant> syncedAt = new ConcurrentHashMap<>();
+        private final Map<String, BookingSubscription> subscriptions = new HashMap<>();
+        private final Map<String, Instant> updatedAt = new HashMap<>();
+        private final Map<String, CompletableFuture<Void>> syncing = new ConcurrentHashMap<>();
+        private volatile long lastUsed;
+
+        UserBookings(long now) {
+            lastUsed = now;
+        }
+
+        private static String keyOf(Booking booking) {
+            return booking.getServiceId() + "/" + booking.getId();
+        }
+
+        private static long startOf(Booking booking) {
+            var leg = booking.getLeg();
+
+            // Bookings without start time are sorted last.
+            return leg == null || leg.getStartTime() == null
+                    ? Long.MAX_VALUE
+                    : leg.getStartTime().toInstant().toEpochMilli();
+        }
+
+        boolean isStale(String serviceId, Instant threshold) {
+            var synced = syncedAt.get(serviceId);
+            return synced == null || synced.isBefore(threshold);
+        }
+
+        /**
+         * Runs the given sync of a service, unless another thread is already
+         * syncing it. In that case, this waits for the other sync to finish.
+         */
+        void syncService(String serviceId, Instant threshold, Runnable sync) {
+            var own = new CompletableFuture<Void>();
+            var running = syncing.putIfAbsent(serviceId, own);
+
+            if (running != null) {
+                running.join();
+                return;
+            }
+
+            try {
+                // Another sync might have finished since the caller checked.
+                if (isStale(serviceId, threshold)) {
+                    sync.run();
+                }
+            } finally {
+                syncing.remove(serviceId, own);
+                own.complete(null);
+            }
+        }
+
+        synchronized void put(Booking booking) {
+            index(booking);
+            updatedAt.put(keyOf(booking), Instant.now());
+        }
+
+        private boolean isUpdatedSince(String key, Instant time) {
+            var updated = updatedAt.get(key);
+            return updated != null && !updated.isBefore(time);
+        }
+
+        private void index(Booking booking) {
+            var key = keyOf(booking);
+            remove(key);
+
+            byKey.put(key, booking);
+            if (booking.getState() != null) {
+                byState.computeIfAbsent(booking.getState(), s -> new LinkedHashSet<>()).add(key);
+            }
+            byService.computeIfAbsent(booking.getServiceId(), s -> new LinkedHashSet<>()).add(key);
+            byStart.computeIfAbsent(startOf(booking), s -> new LinkedHashSet<>()).add(key);
+        }
+
+        private void remove(String key) {
+            var old = byKey.remove(key);
+
+            if (old == null) {
+                return;
+            }
+
+            if (old.getState() != null) {
+                removeFrom(byState, old.getState(), key);
+            }
+            removeFrom(byService, old.getServiceId(), key);
+            removeFrom(byStart, startOf(old), key);
+        }
+
+        private static <K> void removeFrom(Map<K, Set<String>> index, K indexKey, String key) {
+            var keys = index.get(indexKey);
+
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    index.remove(indexKey);
+                }
+            }
+        }
+
+        /**
+         * Replaces all bookings of the given service with the given ones,
+         * except for bookings that were updated after the sync started.
+         */
+        synchronized void replaceService(String serviceId, Collection<Booking> bookings, Instant syncStart) {
+            var old = byService.get(serviceId);
+
+            if (old != null) {
+                for (var key : new ArrayList<>(old)) {
+                    if (!isUpdatedSince(key, syncStart)) {
+                        remove(key);
+                        updatedAt.remove(key);
+                    }
+                }
+            }
+
+            for (var booking : bookings) {
+                if (booking.getId() != null) {
+                    // Some providers do not set the service id in their bookings.
+                    if (booking.getServiceId() == null) {
+                        booking.setServiceId(serviceId);
+                    }
+                    if (!isUpdatedSince(keyOf(booking), syncStart)) {
+                        index(booking);
+                    }
+                }
+            }
+
+            syncedAt.put(serviceId, syncStart);
+        }
+
+        synchronized List<Booking> getByState(BookingState state) {
+            return resolve(byState.getOrDefault(state, Set.of()));
+        }
+
+        synchronized List<Booking> getByService(String serviceId) {
+            return resolve(byService.getOrDefault(serviceId, Set.of()));
+        }
+
+        synchronized List<Booking> getByStart(ZonedDateTime from, ZonedDateTime to) {
+            NavigableMap<Long, Set<String>> range = byStart;
+
+            if (from != null) {
+                range = range.tailMap(from.toInstant().toEpochMilli(), true);
+            }
+            if (to != null) {
+                range = range.headMap(to.toInstant().toEpochMilli(), false);
+            }
+
+            var result = new ArrayList<Booking>();
+            range.values().forEach(keys -> keys.forEach(key -> result.add(byKey.get(key))));
+            return result;
+        }
+
+        private List<Booking> resolve(Set<String> keys) {
+            var result = new ArrayList<Booking>(keys.size());
+            keys.forEach(key -> result.add(byKey.get(key)));
+            result.sort((a, b) -> Long.compare(startOf(a), startOf(b)));
+            return result;
+        }
+
+        synchronized void follow(Booking booking, Function<String, BookingSubscription> subscribe) {
+            subscriptions.values().removeIf(BookingSubscription::isDone);
+            subscriptions.computeIfAbsent(keyOf(booking), subscribe);
+        }
+
+        synchronized void close() {
+            subscriptions.values().forEach(BookingSubscription::close);
+            subscriptions.clear();
+        }
+    }
+}
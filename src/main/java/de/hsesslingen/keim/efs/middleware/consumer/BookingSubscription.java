@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.BookingState;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Follows the changes of a booking at a provider using
+ * {@link ProviderProxy#awaitBookingChange} and calls a listener with the
+ * booking whenever it changed. The subscription ends when the booking reaches
+ * a closed state (see {@link BookingState#isClosed()}) or when it is closed.
+ * <p>
+ * Providers that cannot push changes answer each request immediately. In that
+ * case, requests are sent at most once per {@code minIntervalSeconds}, which
+ * behaves like polling the booking.
+ * <p>
+ * The requests of all subscriptions are sent by a shared pool of at most
+ * {@link #DEFAULT_MAX_CONCURRENT_REQUESTS} threads, see
+ * {@link #setMaxConcurrentRequests(int)}. A subscription only occupies a
+ * thread while one of its requests is in progress, which can take up to
+ * {@code timeoutSeconds}. If more subscriptions exist than threads, their
+ * requests are queued, so changes are noticed later, but the number of
+ * threads stays bounded.
+ * <p>
+ * The read timeout of the request template must be longer than
+ * {@code timeoutSeconds}.
+ *
+ * @author keim
+ */
+public class BookingSubscription implements AutoCloseable {
+
+    private static final Logger logger = getLogger(BookingSubscription.class);
+
+    public static final int DEFAULT_TIMEOUT_SECONDS = 30;
+    public static final int DEFAULT_MIN_INTERVAL_SECONDS = 5;
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+    private static final ScheduledThreadPoolExecutor executor = createExecutor();
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        var pool = new ScheduledThreadPoolExecutor(DEFAULT_MAX_CONCURRENT_REQUESTS, runnable -> {
+            var thread = new Thread(runnable, "booking-subscription");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.setKeepAliveTime(60, TimeUnit.SECONDS);
+        pool.allowCoreThreadTimeOut(true);
+        pool.setRemoveOnCancelPolicy(true);
+        return pool;
+    }
+
+    /**
+     * Sets the maximum number of requests that all subscriptions together
+     * send at the same time, which is also the maximum number of threads used
+     * by them.
+     *
+     * @param max
+     */
+    public static void setMaxConcurrentRequests(int max) {
+        executor.setCorePoolSize(max);
+    }
+
+    private final ProviderProxy provider;
+    private final String bookingId;
+    private final Supplier<String> tokenSupplier;
+    private final int timeoutSeconds;
+    private final long minIntervalMillis;
+    private final Consumer<Booking> onChange;
+
+    /**
+     * Only accessed by the requests of this subscription, which run one after
+     * another.
+     */
+    private Booking last;
+    private Future<?> next;
+    private volatile boolean done;
+
+    /**
+     * Starts following the given booking.
+     *
+     * @param provider The provider of the booking.
+     * @param bookingId The ID of the booking.
+     * @param tokenSupplier Supplies the token for each request, which allows
+     * long subscriptions to use refreshed tokens.
+     * @param timeoutSeconds The maximum number of seconds each request waits
+     * for a change.
+     * @param minIntervalSeconds The minimum number of seconds between two
+     * requests that did not return a change.
+     * @param onChange Called with the booking once at the start and then with
+     * every change of it.
+     */
+    public BookingSubscription(
+            ProviderProxy provider,
+            String bookingId,
+            Supplier<String> tokenSupplier,
+            int timeoutSeconds,
+            int minIntervalSeconds,
+            Consumer<Booking> onChange
+    ) {
+        this.provider = provider;
+        this.bookingId = bookingId;
+        this.tokenSupplier = tokenSupplier;
+        this.timeoutSeconds = timeoutSeconds;
+        this.minIntervalMillis = TimeUnit.SECONDS.toMillis(minIntervalSeconds);
+        this.onChange = onChange;
+
+        schedule(0);
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (!done) {
+            next = executor.schedule(this::awaitChange, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void awaitChange() {
+        if (done) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        var knownState = last == null ? null : last.getState();
+
+        try {
+            var booking = provider.awaitBookingChange(bookingId, knownState, timeoutSeconds, tokenSupplier.get());
+
+            if (done) {
+                return;
+            }
+
+            if (booking != null && !booking.equals(last)) {
+                last = booking;
+                onChange.accept(booking);
+
+                if (booking.getState() != null && booking.getState().isClosed()) {
+                    done = true;
+                } else {
+                    schedule(0);
+                }
+
+                return;
+            }
+        } catch (Exception ex) {
+            logger.debug("Waiting for change of booking {} at {} failed: {}", bookingId, provider.getServiceId(), ex.getMessage());
+        }
+
+        schedule(Math.max(0, minIntervalMillis - (System.currentTimeMillis() - start)));
+    }
+
+    /**
+     * Returns the ID of the followed booking.
+     *
+     * @return
+     */
+    public String getBookingId() {
+        return bookingId;
+    }
+
+    /**
+     * Returns whether this subscription ended, either because the booking
+     * reached a closed state or because it was closed.
+     *
+     * @return
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Ends this subscription. No further requests are sent. A request that is
+     * currently waiting for a change is interrupted, if the HTTP client
+     * supports it, or otherwise abandoned and its result ignored.
+     */
+    @Override
+    public synchronized void close() {
+        done = true;
+
+        if (next != null) {
+            next.cancel(true);
+        }
+    }
+}
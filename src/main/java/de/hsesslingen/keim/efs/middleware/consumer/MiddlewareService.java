@@ -23,31 +23,44 @@
  */
 package de.hsesslingen.keim.efs.middleware.consumer;
 
+import de.hsesslingen.keim.efs.middleware.consumer.metrics.IConsumerMetrics;
 import de.hsesslingen.keim.efs.middleware.model.Booking;
 import de.hsesslingen.keim.efs.middleware.model.ICoordinates;
 import de.hsesslingen.keim.efs.middleware.model.Option;
 import de.hsesslingen.keim.efs.middleware.model.Place;
+import de.hsesslingen.keim.efs.middleware.model.PlacePool;
 import de.hsesslingen.keim.efs.middleware.provider.IBookingApi;
 import de.hsesslingen.keim.efs.middleware.provider.IOptionsApi;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoad;
 import de.hsesslingen.keim.efs.mobility.service.MobilityService.API;
 import static de.hsesslingen.keim.efs.mobility.service.MobilityService.API.BOOKING_API;
 import static de.hsesslingen.keim.efs.mobility.service.MobilityService.API.OPTIONS_API;
 import static de.hsesslingen.keim.efs.mobility.service.MobilityService.API.PLACES_API;
 import de.hsesslingen.keim.efs.mobility.service.Mode;
 import de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequest;
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collection;
 import static java.util.Collections.disjoint;
+import static java.util.Comparator.comparingDouble;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import static java.util.Map.entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import static java.util.stream.Collectors.toList;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import static org.slf4j.LoggerFactory.getLogger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -67,6 +80,19 @@ public class MiddlewareService {
     @Autowired
     private ProviderCache providerCache;
 
+    @Autowired(required = false)
+    private IConsumerMetrics metrics;
+
+    @Value("${middleware.consumer.canonicalize-places:false}")
+    private boolean canonicalizePlaces;
+
+    @Value("${middleware.consumer.provider-load.enabled:false}")
+    private boolean loadBalancing;
+    @Value("${middleware.consumer.provider-load.max-age-seconds:30}")
+    private long loadMaxAgeSeconds;
+    @Value("${middleware.consumer.provider-load.max-shed-rate:0.5}")
+    private double maxShedRate;
+
     /**
      * Gets a partiular {@link ProviderProxy} from {@link ProviderCache}.
      *
@@ -127,17 +153,76 @@ public class MiddlewareService {
     }
 
     /**
-     * Sends the given request by calling {@code request.go()} and catching any
+     * Orders the given providers by the load they advertised, so that the
+     * results of the least loaded ones come first in the merged result stream.
+     * The requests themselves are sent to all providers in parallel. Providers
+     * without recently advertised load are regarded as idle.
+     * <p>
+     * The load of each provider is read once before sorting, as it may change
+     * concurrently with every response.
+     * <p>
+     * This is opt-in. Set "middleware.consumer.provider-load.enabled" to true
+     * to enable it.
+     *
+     * @param providers
+     * @param skipSaturated Whether saturated providers should be left out, as
+     * long as there are other providers left. Should only be used for queries
+     * that need not be complete, like searches.
+     * @return
+     */
+    private Stream<ProviderProxy> balance(Stream<ProviderProxy> providers, boolean skipSaturated) {
+        if (!loadBalancing) {
+            return providers;
+        }
+
+        var maxAge = Duration.ofSeconds(loadMaxAgeSeconds);
+        var loads = providers
+                .map(p -> new SimpleImmutableEntry<>(p, p.getLoad(maxAge)))
+                .collect(toList());
+
+        if (skipSaturated) {
+            var available = loads.stream()
+                    .filter(e -> e.getValue() == null || !e.getValue().isSaturated(maxShedRate))
+                    .collect(toList());
+
+            if (!available.isEmpty() && available.size() < loads.size()) {
+                logger.debug("Skipping {} saturated providers.", loads.size() - available.size());
+                loads = available;
+            }
+        }
+
+        return loads.stream()
+                .map(e -> entry(e.getKey(), estimateCost(e.getValue())))
+                .sorted(comparingDouble(Entry::getValue))
+                .map(Entry::getKey);
+    }
+
+    /**
+     * Estimates the cost of a request from the advertised load as the
+     * expected latency, including retries of shed requests.
+     */
+    private static double estimateCost(ProviderLoad load) {
+        if (load == null) {
+            return 0;
+        }
+
+        return load.getP95LatencyMillis() / (1 - Math.min(load.getShedRate(), 0.99));
+    }
+
+    /**
+     * Sends the given request using the given provider and catches any
      * exception thrown by this call. If an exception occurrs, {@code null} will
      * be returned.
      *
      * @param <T>
+     * @param provider
+     * @param endpoint
      * @param request
      * @return
      */
-    private <T> ResponseEntity<T> sendRequestSafely(MiddlewareRequest<T> request) {
+    private <T> ResponseEntity<T> sendRequestSafely(ProviderProxy provider, String endpoint, MiddlewareRequest<T> request) {
         try {
-            return request.go();
+            return provider.send(endpoint, request);
         } catch (Exception ex) {
             logger.trace("Exception occured while calling {}. Content in next line...\n{}", request.uriBuilder().build().toUriString(), ex.getMessage());
             return null;
@@ -149,15 +234,40 @@ public class MiddlewareService {
      * collecting the results in a common stream.
      *
      * @param <T>
-     * @param requests
+     * @param endpoint
+     * @param requests The requests paired with the providers they are sent to.
+     * @return
+     */
+    private <T> Stream<T> sendRequestsInParallel(String endpoint, List<Entry<ProviderProxy, MiddlewareRequest<List<T>>>> requests) {
+        return sendRequestsInParallel(endpoint, requests, UnaryOperator.identity());
+    }
+
+    /**
+     * Same as {@link #sendRequestsInParallel(String, List)}, but applies the
+     * given function to the result list of each provider before merging them.
+     *
+     * @param <T>
+     * @param endpoint
+     * @param requests The requests paired with the providers they are sent to.
+     * @param perResponse
      * @return
      */
-    private <T> Stream<T> sendRequestsInParallel(List<MiddlewareRequest<List<T>>> requests) {
+    private <T> Stream<T> sendRequestsInParallel(
+            String endpoint,
+            List<Entry<ProviderProxy, MiddlewareRequest<List<T>>>> requests,
+            UnaryOperator<List<T>> perResponse
+    ) {
+        var fanOut = metrics != null ? new FanOut(endpoint, requests.size()) : null;
+
         return requests.parallelStream()
-                .map(request -> sendRequestSafely(request))
+                .map(e -> {
+                    Supplier<ResponseEntity<List<T>>> send = () -> sendRequestSafely(e.getKey(), endpoint, e.getValue());
+                    return fanOut != null ? fanOut.track(send) : send.get();
+                })
                 .filter(response -> response != null)
                 .map(response -> response.getBody())
                 .filter(list -> list != null)
+                .map(perResponse)
                 .flatMap(list -> list.stream());
     }
 
@@ -197,13 +307,12 @@ public class MiddlewareService {
     ) {
         var tokenGetter = serviceTokenGetter == null ? DEFAULT_TOKEN_GETTER : serviceTokenGetter;
 
-        var requests = getProviders().stream()
-                .filter(p -> p.supportsApi(PLACES_API))
-                .map(p -> p.createSearchPlacesRequest(query, areaCenter, radiusMeter, limitToPerProvider, tokenGetter.apply(p.getServiceId())))
-                .peek(r -> r.callRequestAdapters())
+        var requests = balance(getProviders().stream().filter(p -> p.supportsApi(PLACES_API)), true)
+                .map(p -> entry(p, p.createSearchPlacesRequest(query, areaCenter, radiusMeter, limitToPerProvider, tokenGetter.apply(p.getServiceId()))))
+                .peek(e -> e.getValue().callRequestAdapters())
                 .collect(toList());
 
-        return sendRequestsInParallel(requests);
+        return sendRequestsInParallel("searchPlaces", requests);
     }
 
     /**
@@ -291,12 +400,16 @@ public class MiddlewareService {
     ) {
         var tokenGetter = serviceTokenGetter == null ? DEFAULT_TOKEN_GETTER : serviceTokenGetter;
 
-        var requests = getProviders(modesAllowed, Set.of(OPTIONS_API))
-                .map(p -> p.createGetOptionsRequest(from, to, startTime, endTime, radiusMeter, sharingAllowed, modesAllowed, limitToPerProvider, includeGeoPaths, tokenGetter.apply(p.getServiceId())))
-                .peek(r -> r.callRequestAdapters())
+        var requests = balance(getProviders(modesAllowed, Set.of(OPTIONS_API)), true)
+                .map(p -> entry(p, p.createGetOptionsRequest(from, to, startTime, endTime, radiusMeter, sharingAllowed, modesAllowed, limitToPerProvider, includeGeoPaths, tokenGetter.apply(p.getServiceId()))))
+                .peek(e -> e.getValue().callRequestAdapters())
                 .collect(toList());
 
-        return sendRequestsInParallel(requests);
+        if (canonicalizePlaces) {
+            return sendRequestsInParallel("getOptions", requests, PlacePool::canonicalizeOptions);
+        }
+
+        return sendRequestsInParallel("getOptions", requests);
     }
 
     /**
@@ -377,13 +490,12 @@ public class MiddlewareService {
     ) {
         var tokenGetter = serviceTokenGetter == null ? DEFAULT_TOKEN_GETTER : serviceTokenGetter;
 
-        var requests = getProviders(serviceIds)
-                .filter(p -> p.supportsApi(BOOKING_API))
-                .map(p -> p.createGetBookingsRequest(tokenGetter.apply(p.getServiceId())))
-                .peek(r -> r.callRequestAdapters())
+        var requests = balance(getProviders(serviceIds).filter(p -> p.supportsApi(BOOKING_API)), false)
+                .map(p -> entry(p, p.createGetBookingsRequest(tokenGetter.apply(p.getServiceId()))))
+                .peek(e -> e.getValue().callRequestAdapters())
                 .collect(toList());
 
-        return sendRequestsInParallel(requests);
+        return sendRequestsInParallel("getBookings", requests);
     }
 
     /**
@@ -415,4 +527,42 @@ public class MiddlewareService {
         return getBookings(tokenMap.keySet(), tokenMap::get);
     }
 
+
+    /**
+     * Tracks the requests of a single call of
+     * {@link #sendRequestsInParallel(String, List)} and reports the fan-out to
+     * {@link IConsumerMetrics} as soon as the last request completed. If the
+     * returned stream is short-circuited, not all requests are sent and
+     * nothing is reported.
+     */
+    private class FanOut {
+
+        private final String endpoint;
+        private final int providers;
+        private final AtomicInteger remaining;
+        private final AtomicLong start = new AtomicLong();
+        private final AtomicLong slowest = new AtomicLong();
+
+        FanOut(String endpoint, int providers) {
+            this.endpoint = endpoint;
+            this.providers = providers;
+            this.remaining = new AtomicInteger(providers);
+        }
+
+        <T> T track(Supplier<T> request) {
+            var requestStart = System.nanoTime();
+            start.compareAndSet(0, requestStart);
+
+            try {
+                return request.get();
+            } finally {
+                var end = System.nanoTime();
+                slowest.accumulateAndGet(end - requestStart, Math::max);
+
+                if (remaining.decrementAndGet() == 0) {
+                    metrics.recordFanOut(endpoint, providers, end - start.get(), slowest.get());
+                }
+            }
+        }
+    }
 }
@@ -24,6 +24,9 @@
 package de.hsesslingen.keim.efs.middleware.consumer;
 
 import static de.hsesslingen.keim.efs.middleware.consumer.ServiceDirectoryProxy.buildGetAllRequest;
+import de.hsesslingen.keim.efs.middleware.json.DeduplicatingStringDeserializer;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareMediaTypes;
+import de.hsesslingen.keim.efs.middleware.consumer.metrics.IConsumerMetrics;
 import de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequestTemplate;
 import de.hsesslingen.keim.efs.mobility.service.MobilityService;
 import java.util.Collection;
@@ -61,6 +64,12 @@ public class ProviderCache {
     @Autowired
     private MiddlewareRequestTemplate rt;
 
+    @Autowired(required = false)
+    private IConsumerMetrics metrics;
+
+    @Value("${middleware.consumer.smile.enabled:false}")
+    private boolean smileEnabled;
+
     private CompletableFuture<Map<String, ProviderProxy>> providersFuture = new CompletableFuture<>();
 
     private synchronized CompletableFuture<Map<String, ProviderProxy>> getProvidersFuture() {
@@ -132,12 +141,24 @@ public class ProviderCache {
         logger.info("Refreshing available services from service-directory.");
 
         var all = fetchAvailableProviders();
+        var preferSmile = smileEnabled && MiddlewareMediaTypes.isSmileAvailable();
+        var previous = getProvidersFuture().getNow(Map.of());
         var services = all.stream()
                 // Sanitize invalid services to prevent null pointers and other stuff.
                 .peek(this::sanitizeMobilityService)
-                .map(s -> new ProviderProxy(s, rt))
+                .map(s -> new ProviderProxy(s, rt, metrics, preferSmile))
+                // The load advertised by a provider is still valid after refreshing its service.
+                .peek(p -> {
+                    var old = previous.get(p.getServiceId());
+                    if (old != null) {
+                        p.takeLoadFrom(old);
+                    }
+                })
                 .collect(toMap(p -> p.getServiceId(), p -> p));
 
+        // Strings of providers that are gone should not stay in the pool.
+        DeduplicatingStringDeserializer.clearPool();
+
         if (providersFuture.isDone()) {
             setProvidersFuture(new CompletableFuture<>());
         }
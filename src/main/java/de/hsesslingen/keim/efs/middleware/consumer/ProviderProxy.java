@@ -23,6 +23,8 @@
  */
 package de.hsesslingen.keim.efs.middleware.consumer;
 
+import de.hsesslingen.keim.efs.middleware.consumer.metrics.IConsumerMetrics;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareMediaTypes;
 import de.hsesslingen.keim.efs.middleware.model.Asset;
 import de.hsesslingen.keim.efs.middleware.model.Booking;
 import de.hsesslingen.keim.efs.middleware.model.BookingAction;
@@ -32,6 +34,7 @@ import de.hsesslingen.keim.efs.middleware.model.ICoordinates;
 import de.hsesslingen.keim.efs.middleware.model.Leg;
 import de.hsesslingen.keim.efs.middleware.model.NewBooking;
 import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.OptionView;
 import de.hsesslingen.keim.efs.middleware.model.Place;
 import de.hsesslingen.keim.efs.middleware.provider.IAssetsApi;
 import de.hsesslingen.keim.efs.middleware.provider.IBookingApi;
@@ -43,6 +46,7 @@ import de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequest;
 import static de.hsesslingen.keim.efs.middleware.provider.IBookingApi.buildGetBookingsRequest;
 import static de.hsesslingen.keim.efs.middleware.provider.IBookingApi.buildModifyBookingRequest;
 import static de.hsesslingen.keim.efs.middleware.provider.IBookingApi.buildPerformActionRequest;
+import static de.hsesslingen.keim.efs.middleware.provider.IBookingApi.buildAwaitBookingChangeRequest;
 import static de.hsesslingen.keim.efs.middleware.provider.ITokensApi.buildCreateTokenRequest;
 import static de.hsesslingen.keim.efs.middleware.provider.ITokensApi.buildDeleteTokenRequest;
 import static de.hsesslingen.keim.efs.middleware.provider.ITokensApi.buildIsTokenValidRequest;
@@ -51,14 +55,22 @@ import static de.hsesslingen.keim.efs.middleware.provider.IOptionsApi.buildGetOp
 import de.hsesslingen.keim.efs.middleware.provider.IPlacesApi;
 import de.hsesslingen.keim.efs.middleware.provider.IUsersApi;
 import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenCredentials;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoad;
 import de.hsesslingen.keim.efs.middleware.provider.credentials.UserDetails;
 import de.hsesslingen.keim.efs.middleware.utils.FlexibleZonedDateTimeParser;
 import de.hsesslingen.keim.efs.mobility.service.Mode;
 import de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequestTemplate;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import de.hsesslingen.keim.efs.middleware.provider.ITokensApi;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientResponseException;
 
 /**
  *
@@ -66,12 +78,117 @@ import de.hsesslingen.keim.efs.middleware.provider.ITokensApi;
  */
 public class ProviderProxy {
 
+    private static final ParameterizedTypeReference<List<OptionView>> OPTION_VIEW_LIST = new ParameterizedTypeReference<>() {
+    };
+
     private final MobilityService service;
     private final MiddlewareRequestTemplate requestTemplate;
+    private final IConsumerMetrics metrics;
+    private final boolean preferSmile;
+
+    private ProviderLoad load;
+    private long loadReceivedAt;
 
     public ProviderProxy(MobilityService service, MiddlewareRequestTemplate requestTemplate) {
+        this(service, requestTemplate, null);
+    }
+
+    public ProviderProxy(MobilityService service, MiddlewareRequestTemplate requestTemplate, IConsumerMetrics metrics) {
+        this(service, requestTemplate, metrics, false);
+    }
+
+    /**
+     * @param service
+     * @param requestTemplate
+     * @param metrics Used to record metrics about the requests sent to this
+     * provider. Can be {@code null} if no metrics should be recorded.
+     * @param preferSmile Whether responses should be requested in the binary
+     * Smile format, with JSON as fallback. Requires a rest template that can
+     * read Smile, see
+     * {@link de.hsesslingen.keim.efs.middleware.config.SmileAutoConfiguration}.
+     */
+    public ProviderProxy(MobilityService service, MiddlewareRequestTemplate requestTemplate, IConsumerMetrics metrics, boolean preferSmile) {
         this.service = service;
         this.requestTemplate = requestTemplate;
+        this.metrics = metrics != null ? metrics : IConsumerMetrics.NONE;
+        this.preferSmile = preferSmile;
+    }
+
+    /**
+     * Sends the given request, which must have been created by this proxy, and
+     * records metrics about it under the given endpoint name.
+     *
+     * @param <T>
+     * @param endpoint The name of the provider API method, e.g. "getOptions".
+     * @param request
+     * @return
+     */
+    <T> ResponseEntity<T> send(String endpoint, MiddlewareRequest<T> request) {
+        if (preferSmile) {
+            request.header(HttpHeaders.ACCEPT, MiddlewareMediaTypes.ACCEPT_SMILE_OR_JSON);
+        }
+
+        try {
+            var response = metrics.recordProviderCall(service.getId(), endpoint, request::go);
+
+            if (response != null) {
+                updateLoad(response.getHeaders());
+            }
+
+            return response;
+        } catch (RestClientResponseException ex) {
+            // Overloaded providers advertise their load on rejections, too.
+            updateLoad(ex.getResponseHeaders());
+            throw ex;
+        }
+    }
+
+    private void updateLoad(HttpHeaders headers) {
+        var advertised = headers != null ? ProviderLoad.parse(headers.getFirst(ProviderLoad.HEADER)) : null;
+
+        if (advertised != null) {
+            setLoad(advertised, System.nanoTime());
+        }
+    }
+
+    private synchronized void setLoad(ProviderLoad load, long receivedAt) {
+        this.load = load;
+        this.loadReceivedAt = receivedAt;
+    }
+
+    /**
+     * Gets the load that the provider advertised with its latest response.
+     *
+     * @param maxAge The maximum age of the advertised load.
+     * @return The load or {@code null} if the provider did not advertise its
+     * load within the given time.
+     */
+    public synchronized ProviderLoad getLoad(Duration maxAge) {
+        if (load == null || System.nanoTime() - loadReceivedAt > maxAge.toNanos()) {
+            return null;
+        }
+
+        return load;
+    }
+
+    /**
+     * Takes over the latest advertised load of the given proxy, which was
+     * used for the same provider before.
+     *
+     * @param previous
+     */
+    void takeLoadFrom(ProviderProxy previous) {
+        ProviderLoad previousLoad;
+        long receivedAt;
+
+        synchronized (previous) {
+            previousLoad = previous.load;
+            receivedAt = previous.loadReceivedAt;
+        }
+
+        if (previousLoad != null) {
+            setLoad(previousLoad, receivedAt);
+        }
     }
 
     /**
@@ -175,8 +292,7 @@ public class ProviderProxy {
             Integer limitTo,
             String token
     ) {
-        return createSearchPlacesRequest(query, areaCenter, radiusMeter, limitTo, token)
-                .go()
+        return send("searchPlaces", createSearchPlacesRequest(query, areaCenter, radiusMeter, limitTo, token))
                 .getBody();
     }
 
@@ -217,7 +333,7 @@ public class ProviderProxy {
             String assetId,
             String token
     ) {
-        return createGetAssetByIdRequest(assetId, token).go().getBody();
+        return send("getAssetById", createGetAssetByIdRequest(assetId, token)).getBody();
     }
 
     /**
@@ -340,8 +456,136 @@ public class ProviderProxy {
             Boolean includeGeoPaths,
             String token
     ) {
-        return createGetOptionsRequest(from, fromPlaceId, to, toPlaceId, startTime, endTime, radiusMeter, sharingAllowed, modesAllowed, limitTo, includeGeoPaths, token)
-                .go()
+        return send("getOptions", createGetOptionsRequest(from, fromPlaceId, to, toPlaceId, startTime, endTime, radiusMeter, sharingAllowed, modesAllowed, limitTo, includeGeoPaths, token))
+                .getBody();
+    }
+
+    /**
+     * Same as
+     * {@link #getOptions(ICoordinates, String, ICoordinates, String, ZonedDateTime, ZonedDateTime, Integer, Boolean, Set, Integer, Boolean, String)}
+     * but reads the options directly into immutable {@link OptionView}
+     * objects, which is cheaper if the options are only sorted and filtered.
+     * Geo paths are not requested, as they are not part of the view.
+     *
+     * @param from
+     * @param fromPlaceId
+     * @param to
+     * @param toPlaceId
+     * @param startTime
+     * @param endTime
+     * @param radiusMeter
+     * @param sharingAllowed
+     * @param modesAllowed
+     * @param limitTo
+     * @param token
+     * @return
+     */
+    public List<OptionView> getOptionViews(
+            ICoordinates from,
+            String fromPlaceId,
+            ICoordinates to,
+            String toPlaceId,
+            ZonedDateTime startTime,
+            ZonedDateTime endTime,
+            Integer radiusMeter,
+            Boolean sharingAllowed,
+            Set<Mode> modesAllowed,
+            Integer limitTo,
+            String token
+    ) {
+        var request = createGetOptionsRequest(from, fromPlaceId, to, toPlaceId, startTime, endTime, radiusMeter, sharingAllowed, modesAllowed, limitTo, false, token)
+                .expect(OPTION_VIEW_LIST);
+
+        return send("getOptions", request).getBody();
+    }
+
+    /**
+     * Same as
+     * {@link #createGetOptionsRequest(ICoordinates, String, ICoordinates, String, ZonedDateTime, ZonedDateTime, Integer, Boolean, Set, Integer, Boolean, String)}
+     * but additionally allows requesting the paths of legs as encoded
+     * polylines. Those are decoded into {@link Leg#getCompactGeoPath()} of the
+     * returned options.
+     *
+     * @param from The desired starting location.
+     * @param fromPlaceId An optional place ID that represents the entity at
+     * position {@link from}.
+     * @param to A desired destination location.
+     * @param toPlaceId An optional place ID that represents the entity at
+     * position {@link to}.
+     * @param startTime Optional desired start time of mobility.
+     * @param endTime Optional desired end time of mobility.
+     * @param radiusMeter Maximum distance a user wants to travel to reach the
+     * start point of the mobility option in meters.
+     * @param sharingAllowed Defines if user is ok with sharing his mobility
+     * option with others, potentially unknown people.
+     * @param modesAllowed Allowed modes for legs and potential sub-legs of all
+     * options returned.
+     * @param limitTo An optional upper limit of results for the response.
+     * @param includeGeoPaths Whether detailed information about the path of
+     * legs or about free floating areas should be included, if available.
+     * @param compactGeoPaths Whether the paths of legs should be returned in
+     * their compact form.
+     * @param token A token that identifies and authenticates a user.
+     * @return
+     */
+    public MiddlewareRequest<List<Option>> createGetOptionsRequest(
+            ICoordinates from,
+            String fromPlaceId,
+            ICoordinates to,
+            String toPlaceId,
+            ZonedDateTime startTime,
+            ZonedDateTime endTime,
+            Integer radiusMeter,
+            Boolean sharingAllowed,
+            Set<Mode> modesAllowed,
+            Integer limitTo,
+            Boolean includeGeoPaths,
+            Boolean compactGeoPaths,
+            String token
+    ) {
+        return buildGetOptionsRequest(service.getServiceUrl(),
+                from, fromPlaceId, to, toPlaceId, startTime, endTime,
+                radiusMeter, sharingAllowed, modesAllowed,
+                limitTo, includeGeoPaths, compactGeoPaths, token, requestTemplate
+        );
+    }
+
+    /**
+     * Sends a get-options request to this provider. See
+     * {@link #createGetOptionsRequest(ICoordinates, String, ICoordinates, String, ZonedDateTime, ZonedDateTime, Integer, Boolean, Set, Integer, Boolean, Boolean, String)}
+     * for details on the params.
+     *
+     * @param from
+     * @param fromPlaceId
+     * @param to
+     * @param toPlaceId
+     * @param startTime
+     * @param endTime
+     * @param radiusMeter
+     * @param sharingAllowed
+     * @param modesAllowed
+     * @param limitTo
+     * @param includeGeoPaths
+     * @param compactGeoPaths
+     * @param token
+     * @return
+     */
+    public List<Option> getOptions(
+            ICoordinates from,
+            String fromPlaceId,
+            ICoordinates to,
+            String toPlaceId,
+            ZonedDateTime startTime,
+            ZonedDateTime endTime,
+            Integer radiusMeter,
+            Boolean sharingAllowed,
+            Set<Mode> modesAllowed,
+            Integer limitTo,
+            Boolean includeGeoPaths,
+            Boolean compactGeoPaths,
+            String token
+    ) {
+        return send("getOptions", createGetOptionsRequest(from, fromPlaceId, to, toPlaceId, startTime, endTime, radiusMeter, sharingAllowed, modesAllowed, limitTo, includeGeoPaths, compactGeoPaths, token))
                 .getBody();
     }
 
@@ -447,8 +691,7 @@ public class ProviderProxy {
             Boolean includeGeoPaths,
             String token
     ) {
-        return createGetOptionsRequest(from, to, startTime, endTime, radiusMeter, sharingAllowed, modesAllowed, limitTo, includeGeoPaths, token)
-                .go()
+        return send("getOptions", createGetOptionsRequest(from, to, startTime, endTime, radiusMeter, sharingAllowed, modesAllowed, limitTo, includeGeoPaths, token))
                 .getBody();
     }
 
@@ -483,7 +726,7 @@ public class ProviderProxy {
     public List<Booking> getBookings(
             String token
     ) {
-        return createGetBookingsRequest(token).go().getBody();
+        return send("getBookings", createGetBookingsRequest(token)).getBody();
     }
 
     /**
@@ -521,7 +764,7 @@ public class ProviderProxy {
             BookingState state,
             String token
     ) {
-        return createGetBookingsRequest(state, token).go().getBody();
+        return send("getBookings", createGetBookingsRequest(state, token)).getBody();
     }
 
     /**
@@ -559,7 +802,80 @@ public class ProviderProxy {
             String id,
             String token
     ) {
-        return createGetBookingByIdRequest(id, token).go().getBody();
+        return send("getBookingById", createGetBookingByIdRequest(id, token)).getBody();
+    }
+
+    /**
+     * Assembles a request for waiting until a booking changes at this provider
+     * using the given arguments. For more information see:
+     * {@link IBookingApi#awaitBookingChange(String, BookingState, Integer, String)}
+     *
+     * @param id The ID of the booking to wait for.
+     * @param knownState The state of the booking known to the caller.
+     * @param timeoutSeconds The maximum number of seconds to wait.
+     * @param token A token that identifies and authenticates a user, sometimes
+     * with a limited duration of validity. See {@link ITokensApi} for more
+     * details on tokens. This value is almost certainly required by all
+     * mobility service providers for querying the {@link IBookingApi}.
+     * @return
+     */
+    public MiddlewareRequest<Booking> createAwaitBookingChangeRequest(
+            String id,
+            BookingState knownState,
+            Integer timeoutSeconds,
+            String token
+    ) {
+        return buildAwaitBookingChangeRequest(service.getServiceUrl(), id, knownState, timeoutSeconds, token, requestTemplate);
+    }
+
+    /**
+     * Waits until a booking changes at this provider, at most for the given
+     * number of seconds. For more information see:
+     * {@link IBookingApi#awaitBookingChange(String, BookingState, Integer, String)}
+     *
+     * @param id The ID of the booking to wait for.
+     * @param knownState The state of the booking known to the caller.
+     * @param timeoutSeconds The maximum number of seconds to wait.
+     * @param token A token that identifies and authenticates a user, sometimes
+     * with a limited duration of validity. See {@link ITokensApi} for more
+     * details on tokens. This value is almost certainly required by all
+     * mobility service providers for querying the {@link IBookingApi}.
+     * @return The booking, changed or as it is after the timeout.
+     */
+    public Booking awaitBookingChange(
+            String id,
+            BookingState knownState,
+            Integer timeoutSeconds,
+            String token
+    ) {
+        return send("awaitBookingChange", createAwaitBookingChangeRequest(id, knownState, timeoutSeconds, token)).getBody();
+    }
+
+    /**
+     * Follows the changes of a booking at this provider in the background and
+     * calls the given listener with the booking whenever it changed. See
+     * {@link BookingSubscription} for details.
+     *
+     * @param id The ID of the booking to follow.
+     * @param token A token that identifies and authenticates a user, sometimes
+     * with a limited duration of validity. See {@link ITokensApi} for more
+     * details on tokens. This value is almost certainly required by all
+     * mobility service providers for querying the {@link IBookingApi}.
+     * @param onChange Called with the booking once at the start and then with
+     * every change of it.
+     * @return The subscription, which must be closed if the booking is not
+     * needed anymore.
+     */
+    public BookingSubscription subscribeToBooking(
+            String id,
+            Supplier<String> token,
+            Consumer<Booking> onChange
+    ) {
+        return new BookingSubscription(this, id, token,
+                BookingSubscription.DEFAULT_TIMEOUT_SECONDS,
+                BookingSubscription.DEFAULT_MIN_INTERVAL_SECONDS,
+                onChange
+        );
     }
 
     /**
@@ -605,7 +921,61 @@ public class ProviderProxy {
             String optionReference,
             String token
     ) {
-        return createCreateBookingRequest(newBooking, optionReference, token).go().getBody();
+        return send("createNewBooking", createCreateBookingRequest(newBooking, optionReference, token)).getBody();
+    }
+
+    /**
+     * Assembles a request for creating a new booking at this provider using
+     * the given arguments and idempotency key. For more information see:
+     * {@link IBookingApi#createNewBooking(de.hsesslingen.keim.efs.middleware.model.NewBooking, java.lang.String, java.lang.String)}
+     *
+     * @param newBooking The {@link NewBooking} that should be created.
+     * @param optionReference An optional reference to an {@link Option} that
+     * unambiguously references this option for booking. This reference is
+     * sometimes given in instances of {@link Option}.
+     * @param token A token that identifies and authenticates a user, sometimes
+     * with a limited duration of validity. See {@link ITokensApi} for more
+     * details on tokens. This value is almost certainly required by all
+     * mobility service providers for querying the {@link IBookingApi}.
+     * @param idempotencyKey A unique key for this booking, e.g. a random UUID.
+     * Use the same key when retrying the request.
+     * @return
+     */
+    public MiddlewareRequest<Booking> createCreateBookingRequest(
+            NewBooking newBooking,
+            String optionReference,
+            String token,
+            String idempotencyKey
+    ) {
+        return buildCreateNewBookingRequest(service.getServiceUrl(), newBooking, optionReference, token, idempotencyKey, requestTemplate);
+    }
+
+    /**
+     * Sends a create-booking request with the given idempotency key to this
+     * provider. If the request fails, e.g. because of a timeout, it can be
+     * retried with the same key without creating a second booking. For more
+     * information see:
+     * {@link IBookingApi#createNewBooking(de.hsesslingen.keim.efs.middleware.model.NewBooking, java.lang.String, java.lang.String)}
+     *
+     * @param newBooking The {@link NewBooking} that should be created.
+     * @param optionReference An optional reference to an {@link Option} that
+     * unambiguously references this option for booking. This reference is
+     * sometimes given in instances of {@link Option}.
+     * @param token A token that identifies and authenticates a user, sometimes
+     * with a limited duration of validity. See {@link ITokensApi} for more
+     * details on tokens. This value is almost certainly required by all
+     * mobility service providers for querying the {@link IBookingApi}.
+     * @param idempotencyKey A unique key for this booking, e.g. a random UUID.
+     * Use the same key when retrying the request.
+     * @return
+     */
+    public Booking createBooking(
+            NewBooking newBooking,
+            String optionReference,
+            String token,
+            String idempotencyKey
+    ) {
+        return send("createNewBooking", createCreateBookingRequest(newBooking, optionReference, token, idempotencyKey)).getBody();
     }
 
     /**
@@ -643,7 +1013,7 @@ public class ProviderProxy {
             Booking booking,
             String token
     ) {
-        return createModifyBookingRequest(booking, token).go().getBody();
+        return send("modifyBooking", createModifyBookingRequest(booking, token)).getBody();
     }
 
     /**
@@ -688,7 +1058,7 @@ public class ProviderProxy {
             BookingAction action,
             String token
     ) {
-        return createPerformActionRequest(bookingId, action, token).go().getBody();
+        return send("performAction", createPerformActionRequest(bookingId, action, token)).getBody();
     }
 
     /**
@@ -739,7 +1109,7 @@ public class ProviderProxy {
             String secret,
             String token
     ) {
-        return createPerformActionRequest(bookingId, action, secret, token).go().getBody();
+        return send("performAction", createPerformActionRequest(bookingId, action, secret, token)).getBody();
     }
 
     /**
@@ -785,7 +1155,7 @@ public class ProviderProxy {
             String userId,
             String secret
     ) {
-        return createCreateTokenRequest(userId, secret).go().getBody();
+        return send("createToken", createCreateTokenRequest(userId, secret)).getBody();
     }
 
     /**
@@ -810,7 +1180,7 @@ public class ProviderProxy {
      * with a limited duration of validity.
      */
     public void deleteToken(String token) {
-        createDeleteTokenRequest(token).go();
+        send("deleteToken", createDeleteTokenRequest(token));
     }
 
     /**
@@ -836,7 +1206,7 @@ public class ProviderProxy {
      * @return true if valid, false if not.
      */
     public Boolean isTokenValid(String token) {
-        return createIsTokenValidRequest(token).go().getBody();
+        return send("isTokenValid", createIsTokenValidRequest(token)).getBody();
     }
 
     /**
@@ -877,7 +1247,7 @@ public class ProviderProxy {
      * @return
      */
     public UserDetails registerUser(Customer customer, String userSecret, String superUserToken) {
-        return createRegisterUserRequest(customer, userSecret, superUserToken).go().getBody();
+        return send("registerUser", createRegisterUserRequest(customer, userSecret, superUserToken)).getBody();
     }
 
 }
@@ -0,0 +1,338 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenCredentials;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Map;
+import static java.util.Map.entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import static org.slf4j.LoggerFactory.getLogger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the tokens of users at providers, so that requests can use them
+ * without validating or creating them first. Tokens are stored per user and
+ * service id together with their {@link TokenCredentials#getValidUntil()} and
+ * are refreshed in the background shortly before they expire.
+ * <p>
+ * {@link #tokenGetter(String)} can directly be used as
+ * {@code serviceTokenGetter} of the methods of {@link MiddlewareService}. It
+ * never sends any request, it only returns tokens that are known to be valid.
+ * <p>
+ * Tokens that were set using {@link #setToken(String, String, TokenCredentials)}
+ * can not be refreshed, because the user id and secret for creating a new one
+ * are unknown. They are removed once they expire.
+ * <p>
+ * Tokens that were not read for "middleware.consumer.tokens.max-idle-minutes"
+ * (30 by default) are removed along with the user id and secret and are not
+ * refreshed anymore. Refreshes run in parallel on a small pool of
+ * "middleware.consumer.tokens.refresh-threads" (4 by default) threads, so
+ * that they neither block each other nor the scheduler thread that is shared
+ * with other scheduled tasks like the refresh of the {@link ProviderCache}.
+ *
+ * @author keim
+ */
+@Service
+@Lazy
+@EnableScheduling
+public class TokenManager {
+
+    private static final Logger logger = getLogger(TokenManager.class);
+
+    @Autowired
+    private MiddlewareService middlewareService;
+
+    /**
+     * Tokens are refreshed if they expire within this number of seconds.
+     */
+    @Value("${middleware.consumer.tokens.refresh-before-seconds:60}")
+    private long refreshBeforeSeconds = 60;
+
+    /**
+     * Tokens that were not read within this number of minutes are removed.
+     */
+    @Value("${middleware.consumer.tokens.max-idle-minutes:30}")
+    private long maxIdleMinutes = 30;
+
+    @Value("${middleware.consumer.tokens.refresh-threads:4}")
+    private int refreshThreads = 4;
+
+    private final Map<Map.Entry<String, String>, ManagedToken> tokens = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+    private CompletableFuture<Void> refreshing = CompletableFuture.completedFuture(null);
+
+    /**
+     * Creates a new token for the given user at the given provider and keeps
+     * it, along with the user id and secret, so that it can be refreshed
+     * before it expires.
+     *
+     * @param user An identifier of the user within the consumer application,
+     * e.g. a session or account id.
+     * @param serviceId The service id of the provider.
+     * @param userId The user id at the provider. See
+     * {@link ProviderProxy#createToken(String, String)}.
+     * @param secret The secret of the user at the provider. See
+     * {@link ProviderProxy#createToken(String, String)}.
+     * @return The created token.
+     */
+    public TokenCredentials createToken(String user, String serviceId, String userId, String secret) {
+        var managed = new ManagedToken(serviceId, userId, secret, nanoTime());
+        managed.credentials = createToken(serviceId, userId, secret);
+        tokens.put(entry(user, serviceId), managed);
+        return managed.credentials;
+    }
+
+    /**
+     * Keeps a token that was created elsewhere for the given user and
+     * provider. Such a token is not refreshed.
+     *
+     * @param user
+     * @param serviceId
+     * @param credentials
+     */
+    public void setToken(String user, String serviceId, TokenCredentials credentials) {
+        var managed = new ManagedToken(serviceId, null, null, nanoTime());
+        managed.credentials = credentials;
+        tokens.put(entry(user, serviceId), managed);
+    }
+
+    /**
+     * Returns the token of the given user at the given provider, or
+     * {@code null} if there is no valid token. This method never sends a
+     * request.
+     *
+     * @param user
+     * @param serviceId
+     * @return
+     */
+    public String getToken(String user, String serviceId) {
+        var managed = tokens.get(entry(user, serviceId));
+
+        if (managed == null) {
+            return null;
+        }
+
+        managed.lastRead = nanoTime();
+        var credentials = managed.credentials;
+
+        if (isExpired(credentials, ZonedDateTime.now())) {
+            return null;
+        }
+
+        return credentials.getToken();
+    }
+
+    /**
+     * Returns a function that returns the token of the given user for a service
+     * id. It can be used as {@code serviceTokenGetter} of the methods of
+     * {@link MiddlewareService}.
+     *
+     * @param user
+     * @return
+     */
+    public Function<String, String> tokenGetter(String user) {
+        return serviceId -> getToken(user, serviceId);
+    }
+
+    /**
+     * Forgets the token of the given user at the given provider. The token is
+     * not deleted at the provider.
+     *
+     * @param user
+     * @param serviceId
+     */
+    public void removeToken(String user, String serviceId) {
+        tokens.remove(entry(user, serviceId));
+    }
+
+    /**
+     * Forgets all tokens of the given user.
+     *
+     * @param user
+     */
+    public void removeTokens(String user) {
+        tokens.keySet().removeIf(key -> key.getKey().equals(user));
+    }
+
+    /**
+     * Returns the number of kept tokens.
+     *
+     * @return
+     */
+    public int size() {
+        return tokens.size();
+    }
+
+    /**
+     * Starts a refresh of the tokens, unless the previous one is still running.
+     */
+    @Scheduled(
+            initialDelayString = "${middleware.consumer.tokens.refresh-rate:10000}",
+            fixedRateString = "${middleware.consumer.tokens.refresh-rate:10000}"
+    )
+    public synchronized void scheduleRefresh() {
+        if (refreshing.isDone()) {
+            refreshing = refreshTokens();
+        }
+    }
+
+    /**
+     * Removes all tokens that are idle or expired and cannot be refreshed and
+     * refreshes all tokens that expire soon. The refreshes run in parallel in
+     * the background. If refreshing a token fails, it is kept until it expires
+     * and the refresh is tried again on the next run.
+     *
+     * @return A future that completes when all refreshes are done.
+     */
+    public CompletableFuture<Void> refreshTokens() {
+        var now = ZonedDateTime.now();
+        var threshold = now.plusSeconds(refreshBeforeSeconds);
+        long idleSince = nanoTime() - TimeUnit.MINUTES.toNanos(maxIdleMinutes);
+        var refreshes = new ArrayList<CompletableFuture<Void>>();
+
+        for (var e : tokens.entrySet()) {
+            var managed = e.getValue();
+
+            if (managed.lastRead - idleSince < 0) {
+                tokens.remove(e.getKey(), managed);
+                continue;
+            }
+
+            if (!isExpired(managed.credentials, threshold)) {
+                continue;
+            }
+
+            if (managed.secret == null) {
+                if (isExpired(managed.credentials, now)) {
+                    tokens.remove(e.getKey(), managed);
+                }
+                continue;
+            }
+
+            refreshes.add(CompletableFuture.runAsync(() -> refresh(managed), getExecutor()));
+        }
+
+        return CompletableFuture.allOf(refreshes.toArray(CompletableFuture[]::new));
+    }
+
+    private void refresh(ManagedToken managed) {
+        try {
+            managed.credentials = createToken(managed.serviceId, managed.userId, managed.secret);
+        } catch (Exception ex) {
+            logger.warn("Refreshing token at service {} failed: {}", managed.serviceId, ex.getMessage());
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            var pool = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        var thread = new Thread(runnable, "token-refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Creates a token at the provider with the given service id.
+     *
+     * @param serviceId
+     * @param userId
+     * @param secret
+     * @return
+     */
+    protected TokenCredentials createToken(String serviceId, String userId, String secret) {
+        var provider = middlewareService.getProvider(serviceId);
+
+        if (provider == null) {
+            throw new IllegalArgumentException("There is no provider with service id \"" + serviceId + "\".");
+        }
+
+        return provider.createToken(userId, secret);
+    }
+
+    /**
+     * Returns the current value of {@link System#nanoTime()}, which is used to
+     * find idle tokens.
+     *
+     * @return
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private static boolean isExpired(TokenCredentials credentials, ZonedDateTime at) {
+        if (credentials == null || credentials.getToken() == null) {
+            return true;
+        }
+
+        var validUntil = credentials.getValidUntil();
+        return validUntil != null && !validUntil.isAfter(at);
+    }
+
+    private static class ManagedToken {
+
+        private final String serviceId;
+        private final String userId;
+        private final String secret;
+        private volatile TokenCredentials credentials;
+        private volatile long lastRead;
+
+        private ManagedToken(String serviceId, String userId, String secret, long lastRead) {
+            this.serviceId = serviceId;
+            this.userId = userId;
+            this.secret = secret;
+            this.lastRead = lastRead;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.consumer.metrics;
+
+import java.util.function.Supplier;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Records metrics about the requests that consumers send to providers, either
+ * directly using a {@link de.hsesslingen.keim.efs.middleware.consumer.ProviderProxy}
+ * or aggregated over several providers using the
+ * {@link de.hsesslingen.keim.efs.middleware.consumer.MiddlewareService}.
+ * <p>
+ * An implementation is only available as a bean if metrics are enabled. See
+ * {@link de.hsesslingen.keim.efs.middleware.config.ConsumerMetricsAutoConfiguration}.
+ *
+ * @author keim
+ */
+public interface IConsumerMetrics {
+
+    /**
+     * Records nothing and simply sends the requests.
+     */
+    public static final IConsumerMetrics NONE = new IConsumerMetrics() {
+        @Override
+        public <T> ResponseEntity<T> recordProviderCall(String serviceId, String endpoint, Supplier<ResponseEntity<T>> call) {
+            return call.get();
+        }
+
+        @Override
+        public void recordFanOut(String endpoint, int providers, long durationNanos, long slowestProviderNanos) {
+        }
+    };
+
+    /**
+     * Sends a request to a provider and records its duration, its outcome
+     * (success, failure or timeout) and the size of its result (if it is a
+     * collection). The response is returned and exceptions are rethrown as
+     * they are.
+     *
+     * @param <T>
+     * @param serviceId The id of the provider that is called.
+     * @param endpoint The name of the provider API method, e.g. "getOptions".
+     * @param call
+     * @return
+     */
+    public <T> ResponseEntity<T> recordProviderCall(String serviceId, String endpoint, Supplier<ResponseEntity<T>> call);
+
+    /**
+     * Records a request that was sent to several providers in parallel.
+     *
+     * @param endpoint The name of the provider API method, e.g. "getOptions".
+     * @param providers The number of providers that were called.
+     * @param durationNanos The time from sending the first request until the
+     * last response was received.
+     * @param slowestProviderNanos The duration of the slowest single request.
+     */
+    public void recordFanOut(String endpoint, int providers, long durationNanos, long slowestProviderNanos);
+
+}
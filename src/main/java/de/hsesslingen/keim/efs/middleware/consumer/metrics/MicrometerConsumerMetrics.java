@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.consumer.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.net.SocketTimeoutException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Implementation of {@link IConsumerMetrics} that exports to a Micrometer
+ * {@link MeterRegistry}. The following meters are recorded:
+ * <ul>
+ * <li>{@code middleware.consumer.provider.calls}: Timer for single requests
+ * to providers, tagged with service, endpoint and outcome. The outcome is one
+ * of "success", "failure" or "timeout", so the count of this timer serves as
+ * counter for each of them.</li>
+ * <li>{@code middleware.consumer.provider.result.size}: Distribution of the
+ * sizes of collections returned by the providers.</li>
+ * <li>{@code middleware.consumer.fanout}: Timer for requests sent to several
+ * providers in parallel, tagged with endpoint.</li>
+ * <li>{@code middleware.consumer.fanout.providers}: Distribution of the number
+ * of providers called per fan-out.</li>
+ * <li>{@code middleware.consumer.fanout.slowest.ratio}: Gauge of the ratio of
+ * the duration of the last fan-out to the duration of its slowest provider. A
+ * value close to 1 means the aggregation adds little overhead.</li>
+ * </ul>
+ *
+ * @author keim
+ */
+public class MicrometerConsumerMetrics implements IConsumerMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Map<String, ProviderMeters>> providers = new ConcurrentHashMap<>();
+    private final Map<String, FanOutMeters> fanOuts = new ConcurrentHashMap<>();
+
+    public MicrometerConsumerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public <T> ResponseEntity<T> recordProviderCall(String serviceId, String endpoint, Supplier<ResponseEntity<T>> call) {
+        var meters = providers
+                .computeIfAbsent(serviceId, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(endpoint, e -> new ProviderMeters(serviceId, e));
+
+        var start = System.nanoTime();
+        var outcome = "success";
+
+        try {
+            var response = call.get();
+            var body = response != null ? response.getBody() : null;
+
+            if (body instanceof Collection) {
+                meters.resultSize().record(((Collection<?>) body).size());
+            }
+
+            return response;
+        } catch (RuntimeException | Error ex) {
+            outcome = isTimeout(ex) ? "timeout" : "failure";
+            throw ex;
+        } finally {
+            meters.timer(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordFanOut(String endpoint, int providers, long durationNanos, long slowestProviderNanos) {
+        var meters = fanOuts.computeIfAbsent(endpoint, FanOutMeters::new);
+
+        meters.duration.record(durationNanos, TimeUnit.NANOSECONDS);
+        meters.providers.record(providers);
+
+        if (slowestProviderNanos > 0) {
+            meters.slowestRatio.set(Double.doubleToLongBits((double) durationNanos / slowestProviderNanos));
+        }
+    }
+
+    private static boolean isTimeout(Throwable ex) {
+        for (var t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The meters of the calls of a single endpoint of a single provider.
+     * Meters are registered on first use and cached afterwards, so that
+     * recording does not need to look them up in the registry.
+     */
+    private class ProviderMeters {
+
+        private final String serviceId;
+        private final String endpoint;
+        private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+        private volatile DistributionSummary resultSize;
+
+        ProviderMeters(String serviceId, String endpoint) {
+            this.serviceId = serviceId;
+            this.endpoint = endpoint;
+        }
+
+        Timer timer(String outcome) {
+            return timers.computeIfAbsent(outcome, o -> Timer.builder("middleware.consumer.provider.calls")
+                    .description("Duration of requests sent to providers.")
+                    .tags("service", serviceId, "endpoint", endpoint, "outcome", o)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+
+        DistributionSummary resultSize() {
+            var summary = resultSize;
+
+            if (summary == null) {
+                // Registering twice is harmless, the registry returns the same meter.
+                summary = DistributionSummary.builder("middleware.consumer.provider.result.size")
+                        .description("Number of elements returned by providers.")
+                        .tags("service", serviceId, "endpoint", endpoint)
+                        .publishPercentileHistogram()
+                        .register(registry);
+                resultSize = summary;
+            }
+
+            return summary;
+        }
+    }
+
+    /**
+     * The meters of the fan-outs of a single endpoint.
+     */
+    private class FanOutMeters {
+
+        private final Timer duration;
+        private final DistributionSummary providers;
+        private final AtomicLong slowestRatio = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+
+        FanOutMeters(String endpoint) {
+            duration = Timer.builder("middleware.consumer.fanout")
+                    .description("Duration of requests sent to several providers in parallel.")
+                    .tag("endpoint", endpoint)
+                    .publishPercentileHistogram()
+                    .register(registry);
+
+            providers = DistributionSummary.builder("middleware.consumer.fanout.providers")
+                    .description("Number of providers called per fan-out.")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+
+            Gauge.builder("middleware.consumer.fanout.slowest.ratio", slowestRatio, r -> Double.longBitsToDouble(r.get()))
+                    .description("Duration of the last fan-out divided by the duration of its slowest provider.")
+                    .tag("endpoint", endpoint)
+                    .strongReference(true)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.json;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.BasicDeserializerFactory;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import de.hsesslingen.keim.efs.middleware.model.Asset;
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the identifier and name properties of the model types that are still
+ * deserialized reflectively, i.e. {@link Asset} and {@link Booking}, with the
+ * {@link DeduplicatingStringDeserializer}. Registered by
+ * {@link MiddlewareModelModule}, so that the shared string pool is only used
+ * by applications that enabled the module.
+ *
+ * @author keim
+ */
+class DeduplicatingPropertiesModifier extends BeanDeserializerModifier {
+
+    private static final Map<Class<?>, Set<String>> PROPERTIES = Map.of(
+            Asset.class, Set.of("serviceId", "placeId", "typeId", "typeName", "color", "brandName", "modelName"),
+            Booking.class, Set.of("serviceId")
+    );
+
+    private final DeduplicatingStringDeserializer deserializer = new DeduplicatingStringDeserializer();
+
+    @Override
+    public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BeanDescription beanDesc, BeanDeserializerBuilder builder) {
+        var names = PROPERTIES.get(beanDesc.getBeanClass());
+
+        if (names == null) {
+            return builder;
+        }
+
+        var properties = new ArrayList<SettableBeanProperty>();
+        builder.getProperties().forEachRemaining(properties::add);
+
+        for (var property : properties) {
+            if (names.contains(property.getName()) && property.getType().hasRawClass(String.class)) {
+                builder.addOrReplaceProperty(property.withValueDeserializer(deserializer), true);
+            }
+        }
+
+        return builder;
+    }
+
+    /**
+     * Checks whether this modifier is registered in the object mapper of the
+     * given context, i.e. whether the mapper uses the
+     * {@link MiddlewareModelModule}.
+     *
+     * @param ctxt
+     * @return
+     */
+    static boolean isRegistered(DeserializationContext ctxt) {
+        var factory = ctxt.getFactory();
+
+        if (factory instanceof BasicDeserializerFactory) {
+            for (var modifier : ((BasicDeserializerFactory) factory).getFactoryConfig().deserializerModifiers()) {
+                if (modifier instanceof DeduplicatingPropertiesModifier) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
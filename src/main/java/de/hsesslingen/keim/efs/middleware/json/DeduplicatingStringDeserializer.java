@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import de.hsesslingen.keim.efs.middleware.utils.StringPool;
+import java.io.IOException;
+
+/**
+ * Deserializes strings that repeat a lot in result lists, such as service IDs,
+ * place names or asset types, into shared instances of a bounded
+ * {@link StringPool}. Repeated values are taken from the pool without creating
+ * a new string.
+ * <p>
+ * Can be used on fields with
+ * {@code @JsonDeserialize(using = DeduplicatingStringDeserializer.class)} and
+ * is used by {@link MiddlewareModelModule}. The model classes themselves do not
+ * use it, so the pool stays unused unless the module is registered.
+ *
+ * @author keim
+ */
+public class DeduplicatingStringDeserializer extends StdDeserializer<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final StringPool POOL = new StringPool(4096, 64);
+
+    public DeduplicatingStringDeserializer() {
+        super(String.class);
+    }
+
+    @Override
+    public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return read(p, ctxt);
+    }
+
+    /**
+     * Reads the string at the current token of the parser, using the pool if
+     * the token is a string.
+     *
+     * @param p
+     * @param ctxt
+     * @return
+     * @throws IOException
+     */
+    public static String read(JsonParser p, DeserializationContext ctxt) throws IOException {
+        var t = p.currentToken();
+
+        if (t == JsonToken.VALUE_STRING) {
+            return POOL.get(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        }
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        return POOL.get(ctxt.readValue(p, String.class));
+    }
+
+    /**
+     * Removes all strings from the pool, e.g. when the set of known providers
+     * changed and the strings of the old ones are not needed anymore.
+     */
+    public static void clearPool() {
+        POOL.clear();
+    }
+}
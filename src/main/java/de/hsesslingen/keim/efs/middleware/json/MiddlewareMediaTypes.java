@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.json;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Media types of the wire formats supported by the provider APIs in addition
+ * to JSON.
+ *
+ * @author keim
+ */
+public final class MiddlewareMediaTypes {
+
+    /**
+     * The media type of the binary Smile format of Jackson, which represents
+     * the same data model as JSON, but is smaller and faster to read and
+     * write. Only available if jackson-dataformat-smile is on the classpath.
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    /**
+     * An accept header value that prefers Smile, but lets providers which do
+     * not support Smile fall back to JSON.
+     */
+    public static final String ACCEPT_SMILE_OR_JSON = APPLICATION_SMILE_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9";
+
+    private static final String SMILE_FACTORY_CLASS = "com.fasterxml.jackson.dataformat.smile.SmileFactory";
+
+    private MiddlewareMediaTypes() {
+    }
+
+    /**
+     * Checks whether jackson-dataformat-smile is on the classpath.
+     *
+     * @return
+     */
+    public static boolean isSmileAvailable() {
+        return ClassUtils.isPresent(SMILE_FACTORY_CLASS, MiddlewareMediaTypes.class.getClassLoader());
+    }
+}
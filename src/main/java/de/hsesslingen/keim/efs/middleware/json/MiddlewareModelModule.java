@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.json;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import de.hsesslingen.keim.efs.middleware.json.ModelDeserializers.CoordinatesDeserializer;
+import de.hsesslingen.keim.efs.middleware.json.ModelDeserializers.LegDeserializer;
+import de.hsesslingen.keim.efs.middleware.json.ModelDeserializers.OptionDeserializer;
+import de.hsesslingen.keim.efs.middleware.json.ModelDeserializers.PlaceDeserializer;
+import de.hsesslingen.keim.efs.middleware.json.ModelSerializers.CoordinatesSerializer;
+import de.hsesslingen.keim.efs.middleware.json.ModelSerializers.LegSerializer;
+import de.hsesslingen.keim.efs.middleware.json.ModelSerializers.OptionSerializer;
+import de.hsesslingen.keim.efs.middleware.json.ModelSerializers.PlaceSerializer;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+
+/**
+ * Jackson module with streaming serializers and deserializers for the model
+ * types that make up the bulk of the traffic between consumers and providers,
+ * i.e. {@link Option}, {@link Leg}, {@link Place} and {@link Coordinates}. The
+ * JSON written and accepted is the same as with the reflective serialization
+ * of these classes. {@link de.hsesslingen.keim.efs.middleware.model.OptionView}
+ * and {@link de.hsesslingen.keim.efs.middleware.model.LegView} are read with
+ * the deserializers of {@link ModelDeserializers} as well, but do not need
+ * this module.
+ * <p>
+ * Identifiers and names that repeat a lot in result lists are read into shared
+ * instances with the {@link DeduplicatingStringDeserializer}, both by the
+ * streaming deserializers and for the reflectively read
+ * {@link de.hsesslingen.keim.efs.middleware.model.Asset} and
+ * {@link de.hsesslingen.keim.efs.middleware.model.Booking}. The views only
+ * share identifiers if this module is registered.
+ * <p>
+ * The serializers write the default JSON of these classes and do not apply
+ * mapper settings like the default property inclusion, naming strategies or
+ * views. Therefore the module is not registered automatically. Set
+ * "middleware.json.model-module.enabled" to true to register it in the
+ * application's object mapper, see
+ * {@link de.hsesslingen.keim.efs.middleware.config.JsonAutoConfiguration}.
+ *
+ * @author keim
+ */
+public class MiddlewareModelModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    public MiddlewareModelModule() {
+        super(MiddlewareModelModule.class.getSimpleName());
+
+        addSerializer(Coordinates.class, new CoordinatesSerializer());
+        addSerializer(Place.class, new PlaceSerializer());
+        addSerializer(Leg.class, new LegSerializer());
+        addSerializer(Option.class, new OptionSerializer());
+
+        addDeserializer(Coordinates.class, new CoordinatesDeserializer());
+        addDeserializer(Place.class, new PlaceDeserializer());
+        addDeserializer(Leg.class, new LegDeserializer());
+        addDeserializer(Option.class, new OptionDeserializer());
+
+        setDeserializerModifier(new DeduplicatingPropertiesModifier());
+    }
+}
@@ -0,0 +1,611 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.END_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import de.hsesslingen.keim.efs.middleware.model.Asset;
+import de.hsesslingen.keim.efs.middleware.model.CompactGeoPath;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.LegView;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.OptionView;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+import de.hsesslingen.keim.efs.mobility.service.Mode;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming deserializers for the model types registered in
+ * {@link MiddlewareModelModule}. Strings and numbers are taken directly from
+ * the current token of the parser. Tokens of an unexpected type are handed to
+ * the {@link DeserializationContext}, which applies the usual coercion rules
+ * or reports the error the same way the reflective deserialization would.
+ * Unknown properties are handled according to the configuration of the
+ * context as well. Identifiers and names share instances, see
+ * {@link DeduplicatingStringDeserializer}. The deserializers of
+ * {@link OptionView} and {@link LegView} are bound to these classes and also
+ * work without the module. They only share identifiers if the object mapper
+ * uses the {@link MiddlewareModelModule}.
+ *
+ * @author keim
+ */
+public final class ModelDeserializers {
+
+    private ModelDeserializers() {
+    }
+
+    public static class CoordinatesDeserializer extends StdDeserializer<Coordinates> {
+
+        private static final long serialVersionUID = 1L;
+
+        public CoordinatesDeserializer() {
+            super(Coordinates.class);
+        }
+
+        @Override
+        public Coordinates deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return readCoordinates(p, ctxt, this);
+        }
+    }
+
+    public static class PlaceDeserializer extends StdDeserializer<Place> {
+
+        private static final long serialVersionUID = 1L;
+
+        public PlaceDeserializer() {
+            super(Place.class);
+        }
+
+        @Override
+        public Place deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return readPlace(p, ctxt, this);
+        }
+    }
+
+    public static class LegDeserializer extends StdDeserializer<Leg> implements ResolvableDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient JsonDeserializer<Object> zonedDateTimeDeserializer;
+
+        public LegDeserializer() {
+            super(Leg.class);
+        }
+
+        @Override
+        public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+            zonedDateTimeDeserializer = findZonedDateTimeDeserializer(ctxt);
+        }
+
+        @Override
+        public Leg deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            var leg = new Leg();
+
+            for (var t = startObject(p, ctxt, Leg.class); t == FIELD_NAME; t = p.nextToken()) {
+                var name = p.getCurrentName();
+                p.nextToken();
+
+                switch (name) {
+                    case "startTime":
+                        leg.setStartTime(readTime(p, ctxt, zonedDateTimeDeserializer));
+                        break;
+                    case "endTime":
+                        leg.setEndTime(readTime(p, ctxt, zonedDateTimeDeserializer));
+                        break;
+                    case "from":
+                        leg.setFrom(readPlace(p, ctxt, this));
+                        break;
+                    case "to":
+                        leg.setTo(readPlace(p, ctxt, this));
+                        break;
+                    case "assetId":
+                        leg.setAssetId(readPooledString(p, ctxt));
+                        break;
+                    case "asset":
+                        leg.setAsset(readValue(p, ctxt, Asset.class));
+                        break;
+                    case "subLegs":
+                        leg.setSubLegs(readSubLegs(p, ctxt));
+                        break;
+                    case "geoPath":
+                        leg.setGeoPath(readGeoPath(p, ctxt));
+                        break;
+                    case "compactGeoPath":
+                        var encoded = readString(p, ctxt);
+                        leg.setCompactGeoPath(encoded != null ? CompactGeoPath.decode(encoded) : null);
+                        break;
+                    case "mode":
+                        leg.setMode(readValue(p, ctxt, Mode.class));
+                        break;
+                    case "distanceMeter":
+                        leg.setDistanceMeter(readInteger(p, ctxt));
+                        break;
+                    default:
+                        ctxt.handleUnknownProperty(p, this, Leg.class, name);
+                }
+            }
+
+            return leg;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Leg> readSubLegs(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == VALUE_NULL) {
+                return null;
+            }
+            if (p.currentToken() != START_ARRAY) {
+                return (List<Leg>) ctxt.handleUnexpectedToken(List.class, p);
+            }
+
+            var subLegs = new ArrayList<Leg>();
+
+            while (p.nextToken() != END_ARRAY) {
+                subLegs.add(p.currentToken() == VALUE_NULL ? null : deserialize(p, ctxt));
+            }
+
+            return subLegs;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Coordinates> readGeoPath(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == VALUE_NULL) {
+                return null;
+            }
+            if (p.currentToken() != START_ARRAY) {
+                return (List<Coordinates>) ctxt.handleUnexpectedToken(List.class, p);
+            }
+
+            var geoPath = new ArrayList<Coordinates>();
+
+            while (p.nextToken() != END_ARRAY) {
+                geoPath.add(p.currentToken() == VALUE_NULL ? null : readCoordinates(p, ctxt, this));
+            }
+
+            return geoPath;
+        }
+    }
+
+    public static class OptionDeserializer extends StdDeserializer<Option> implements ResolvableDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LegDeserializer legDeserializer = new LegDeserializer();
+        private transient JsonDeserializer<Object> zonedDateTimeDeserializer;
+
+        public OptionDeserializer() {
+            super(Option.class);
+        }
+
+        @Override
+        public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+            legDeserializer.resolve(ctxt);
+            zonedDateTimeDeserializer = legDeserializer.zonedDateTimeDeserializer;
+        }
+
+        @Override
+        public Option deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            var option = new Option();
+
+            for (var t = startObject(p, ctxt, Option.class); t == FIELD_NAME; t = p.nextToken()) {
+                var name = p.getCurrentName();
+                p.nextToken();
+
+                switch (name) {
+                    case "serviceId":
+                        option.setServiceId(readPooledString(p, ctxt));
+                        break;
+                    case "leg":
+                        option.setLeg(p.currentToken() == VALUE_NULL ? null : legDeserializer.deserialize(p, ctxt));
+                        break;
+                    case "immediateStart":
+                        option.setImmediateStart(readBoolean(p, ctxt));
+                        break;
+                    case "optionReference":
+                        option.setOptionReference(readString(p, ctxt));
+                        break;
+                    case "validUntil":
+                        option.setValidUntil(readTime(p, ctxt, zonedDateTimeDeserializer));
+                        break;
+                    default:
+                        ctxt.handleUnknownProperty(p, this, Option.class, name);
+                }
+            }
+
+            return option;
+        }
+    }
+
+    public static class LegViewDeserializer extends StdDeserializer<LegView> implements ResolvableDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient JsonDeserializer<Object> zonedDateTimeDeserializer;
+        private transient boolean pooled;
+
+        public LegViewDeserializer() {
+            super(LegView.class);
+        }
+
+        @Override
+        public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+            zonedDateTimeDeserializer = findZonedDateTimeDeserializer(ctxt);
+            pooled = DeduplicatingPropertiesModifier.isRegistered(ctxt);
+        }
+
+        /**
+         * Reads an identifier into a shared instance only if the module is
+         * used.
+         */
+        private String readId(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return pooled ? readPooledString(p, ctxt) : readString(p, ctxt);
+        }
+
+        @Override
+        public LegView deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long startTime = LegView.NO_TIME;
+            long endTime = LegView.NO_TIME;
+            double[] from = {Double.NaN, Double.NaN};
+            double[] to = {Double.NaN, Double.NaN};
+            String fromPlaceId = null;
+            String toPlaceId = null;
+            String assetId = null;
+            String assetIdFromAsset = null;
+            Mode mode = null;
+            int distanceMeter = LegView.NO_DISTANCE;
+
+            for (var t = startObject(p, ctxt, LegView.class); t == FIELD_NAME; t = p.nextToken()) {
+                var name = p.getCurrentName();
+                p.nextToken();
+
+                switch (name) {
+                    case "startTime":
+                        startTime = readTimeMillis(p, ctxt, zonedDateTimeDeserializer);
+                        break;
+                    case "endTime":
+                        endTime = readTimeMillis(p, ctxt, zonedDateTimeDeserializer);
+                        break;
+                    case "from":
+                        fromPlaceId = readPlaceCoordinates(p, ctxt, from);
+                        break;
+                    case "to":
+                        toPlaceId = readPlaceCoordinates(p, ctxt, to);
+                        break;
+                    case "assetId":
+                        assetId = readId(p, ctxt);
+                        break;
+                    case "asset":
+                        assetIdFromAsset = readObjectId(p, ctxt);
+                        break;
+                    case "mode":
+                        mode = readValue(p, ctxt, Mode.class);
+                        break;
+                    case "distanceMeter":
+                        var distance = readInteger(p, ctxt);
+                        distanceMeter = distance == null ? LegView.NO_DISTANCE : distance;
+                        break;
+                    default:
+                        // Everything else, e.g. geo paths, is not part of the view.
+                        p.skipChildren();
+                }
+            }
+
+            return new LegView(
+                    startTime, endTime,
+                    from[0], from[1], fromPlaceId,
+                    to[0], to[1], toPlaceId,
+                    assetId != null ? assetId : assetIdFromAsset,
+                    mode, distanceMeter
+            );
+        }
+
+        /**
+         * Reads lat and lon of a place into the given array and returns its
+         * ID.
+         */
+        private String readPlaceCoordinates(JsonParser p, DeserializationContext ctxt, double[] latLon) throws IOException {
+            if (p.currentToken() == VALUE_NULL) {
+                return null;
+            }
+
+            String id = null;
+
+            for (var t = startObject(p, ctxt, Place.class); t == FIELD_NAME; t = p.nextToken()) {
+                var name = p.getCurrentName();
+                p.nextToken();
+
+                switch (name) {
+                    case "lat":
+                        var lat = readDouble(p, ctxt);
+                        latLon[0] = lat == null ? Double.NaN : lat;
+                        break;
+                    case "lon":
+                        var lon = readDouble(p, ctxt);
+                        latLon[1] = lon == null ? Double.NaN : lon;
+                        break;
+                    case "id":
+                        id = readId(p, ctxt);
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+
+            return id;
+        }
+
+        /**
+         * Reads only the "id" property of an object, e.g. of an asset.
+         */
+        private String readObjectId(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != START_OBJECT) {
+                p.skipChildren();
+                return null;
+            }
+
+            String id = null;
+
+            for (var t = p.nextToken(); t == FIELD_NAME; t = p.nextToken()) {
+                var name = p.getCurrentName();
+                p.nextToken();
+
+                if ("id".equals(name)) {
+                    id = readId(p, ctxt);
+                } else {
+                    p.skipChildren();
+                }
+            }
+
+            return id;
+        }
+    }
+
+    public static class OptionViewDeserializer extends StdDeserializer<OptionView> implements ResolvableDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LegViewDeserializer legDeserializer = new LegViewDeserializer();
+        private transient JsonDeserializer<Object> zonedDateTimeDeserializer;
+
+        public OptionViewDeserializer() {
+            super(OptionView.class);
+        }
+
+        @Override
+        public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+            legDeserializer.resolve(ctxt);
+            zonedDateTimeDeserializer = legDeserializer.zonedDateTimeDeserializer;
+        }
+
+        @Override
+        public OptionView deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String serviceId = null;
+            String optionReference = null;
+            boolean immediateStart = false;
+            long validUntil = LegView.NO_TIME;
+            LegView leg = null;
+
+            for (var t = startObject(p, ctxt, OptionView.class); t == FIELD_NAME; t = p.nextToken()) {
+                var name = p.getCurrentName();
+                p.nextToken();
+
+                switch (name) {
+                    case "serviceId":
+                        serviceId = legDeserializer.readId(p, ctxt);
+                        break;
+                    case "leg":
+                        leg = p.currentToken() == VALUE_NULL ? null : legDeserializer.deserialize(p, ctxt);
+                        break;
+                    case "immediateStart":
+                        immediateStart = Boolean.TRUE.equals(readBoolean(p, ctxt));
+                        break;
+                    case "optionReference":
+                        optionReference = readString(p, ctxt);
+                        break;
+                    case "validUntil":
+                        validUntil = readTimeMillis(p, ctxt, zonedDateTimeDeserializer);
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+
+            return new OptionView(serviceId, optionReference, immediateStart, validUntil, leg);
+        }
+    }
+
+    /**
+     * Checks that the parser is positioned at the start of an object (or
+     * already inside of one) and returns the first token inside the object.
+     */
+    private static JsonToken startObject(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        var t = p.currentToken();
+
+        if (t == START_OBJECT) {
+            return p.nextToken();
+        }
+        if (t == FIELD_NAME || t == END_OBJECT) {
+            return t;
+        }
+
+        ctxt.handleUnexpectedToken(type, p);
+        return END_OBJECT;
+    }
+
+    private static Coordinates readCoordinates(JsonParser p, DeserializationContext ctxt, JsonDeserializer<?> deser) throws IOException {
+        var coordinates = new Coordinates();
+
+        for (var t = startObject(p, ctxt, Coordinates.class); t == FIELD_NAME; t = p.nextToken()) {
+            var name = p.getCurrentName();
+            p.nextToken();
+
+            switch (name) {
+                case "lat":
+                    coordinates.setLat(readDouble(p, ctxt));
+                    break;
+                case "lon":
+                    coordinates.setLon(readDouble(p, ctxt));
+                    break;
+                default:
+                    ctxt.handleUnknownProperty(p, deser, Coordinates.class, name);
+            }
+        }
+
+        return coordinates;
+    }
+
+    private static Place readPlace(JsonParser p, DeserializationContext ctxt, JsonDeserializer<?> deser) throws IOException {
+        if (p.currentToken() == VALUE_NULL) {
+            return null;
+        }
+
+        var place = new Place();
+
+        for (var t = startObject(p, ctxt, Place.class); t == FIELD_NAME; t = p.nextToken()) {
+            var name = p.getCurrentName();
+            p.nextToken();
+
+            switch (name) {
+                case "serviceId":
+                    place.setServiceId(readPooledString(p, ctxt));
+                    break;
+                case "lat":
+                    place.setLat(readDouble(p, ctxt));
+                    break;
+                case "lon":
+                    place.setLon(readDouble(p, ctxt));
+                    break;
+                case "id":
+                    place.setId(readPooledString(p, ctxt));
+                    break;
+                case "name":
+                    place.setName(readPooledString(p, ctxt));
+                    break;
+                case "parentId":
+                    place.setParentId(readPooledString(p, ctxt));
+                    break;
+                case "parentName":
+                    place.setParentName(readPooledString(p, ctxt));
+                    break;
+                default:
+                    ctxt.handleUnknownProperty(p, deser, Place.class, name);
+            }
+        }
+
+        return place;
+    }
+
+    private static String readString(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_STRING:
+                return p.getText();
+            case VALUE_NULL:
+                return null;
+            default:
+                return ctxt.readValue(p, String.class);
+        }
+    }
+
+    /**
+     * Reads identifiers and names which repeat a lot in result lists. See
+     * {@link DeduplicatingStringDeserializer}.
+     */
+    private static String readPooledString(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return DeduplicatingStringDeserializer.read(p, ctxt);
+    }
+
+    private static Double readDouble(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_NUMBER_INT:
+                return p.getDoubleValue();
+            case VALUE_NULL:
+                return null;
+            default:
+                return ctxt.readValue(p, Double.class);
+        }
+    }
+
+    private static Integer readInteger(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_NUMBER_INT:
+                return p.getIntValue();
+            case VALUE_NULL:
+                return null;
+            default:
+                return ctxt.readValue(p, Integer.class);
+        }
+    }
+
+    private static Boolean readBoolean(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return ctxt.readValue(p, Boolean.class);
+        }
+    }
+
+    private static ZonedDateTime readTime(JsonParser p, DeserializationContext ctxt, JsonDeserializer<Object> deser) throws IOException {
+        if (p.currentToken() == VALUE_NULL) {
+            return null;
+        }
+        if (deser == null) {
+            return ctxt.readValue(p, ZonedDateTime.class);
+        }
+
+        return (ZonedDateTime) deser.deserialize(p, ctxt);
+    }
+
+    private static long readTimeMillis(JsonParser p, DeserializationContext ctxt, JsonDeserializer<Object> deser) throws IOException {
+        var time = readTime(p, ctxt, deser);
+        return time == null ? LegView.NO_TIME : time.toInstant().toEpochMilli();
+    }
+
+    private static <T> T readValue(JsonParser p, DeserializationContext ctxt, Class<T> type) throws IOException {
+        return p.currentToken() == VALUE_NULL ? null : ctxt.readValue(p, type);
+    }
+
+    private static JsonDeserializer<Object> findZonedDateTimeDeserializer(DeserializationContext ctxt) throws JsonMappingException {
+        return ctxt.findRootValueDeserializer(ctxt.constructType(ZonedDateTime.class));
+    }
+}
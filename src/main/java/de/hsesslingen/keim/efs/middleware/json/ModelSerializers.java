@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streaming serializers for the model types registered in
+ * {@link MiddlewareModelModule}. They write the same properties in the same
+ * order as the reflective serialization of these classes would, but without
+ * the overhead of bean introspection and per-property dispatch. Nested values
+ * of other types (e.g. {@link java.time.ZonedDateTime} or
+ * {@link de.hsesslingen.keim.efs.middleware.model.Asset}) are still written by
+ * the serializers configured in the {@link SerializerProvider}.
+ *
+ * @author keim
+ */
+public final class ModelSerializers {
+
+    private ModelSerializers() {
+    }
+
+    public static class CoordinatesSerializer extends StdSerializer<Coordinates> {
+
+        private static final long serialVersionUID = 1L;
+
+        public CoordinatesSerializer() {
+            super(Coordinates.class);
+        }
+
+        @Override
+        public void serialize(Coordinates value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            writeDouble(gen, "lat", value.getLat());
+            writeDouble(gen, "lon", value.getLon());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class PlaceSerializer extends StdSerializer<Place> {
+
+        private static final long serialVersionUID = 1L;
+
+        public PlaceSerializer() {
+            super(Place.class);
+        }
+
+        @Override
+        public void serialize(Place value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            writeFields(value, gen);
+            gen.writeEndObject();
+        }
+
+        static void writeFields(Place value, JsonGenerator gen) throws IOException {
+            // Place is annotated with @JsonInclude(NON_NULL).
+            writeStringIfNotNull(gen, "serviceId", value.getServiceId());
+
+            if (value.getLat() != null) {
+                gen.writeNumberField("lat", value.getLat());
+            }
+            if (value.getLon() != null) {
+                gen.writeNumberField("lon", value.getLon());
+            }
+
+            writeStringIfNotNull(gen, "id", value.getId());
+            writeStringIfNotNull(gen, "name", value.getName());
+            writeStringIfNotNull(gen, "parentId", value.getParentId());
+            writeStringIfNotNull(gen, "parentName", value.getParentName());
+        }
+    }
+
+    public static class LegSerializer extends StdSerializer<Leg> {
+
+        private static final long serialVersionUID = 1L;
+
+        public LegSerializer() {
+            super(Leg.class);
+        }
+
+        @Override
+        public void serialize(Leg value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            provider.defaultSerializeField("startTime", value.getStartTime(), gen);
+            provider.defaultSerializeField("endTime", value.getEndTime(), gen);
+            writePlace(gen, "from", value.getFrom());
+            writePlace(gen, "to", value.getTo());
+            gen.writeStringField("assetId", value.getAssetId());
+            provider.defaultSerializeField("asset", value.getAsset(), gen);
+
+            gen.writeFieldName("subLegs");
+            if (value.getSubLegs() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeStartArray();
+                for (var subLeg : value.getSubLegs()) {
+                    if (subLeg == null) {
+                        gen.writeNull();
+                    } else {
+                        serialize(subLeg, gen, provider);
+                    }
+                }
+                gen.writeEndArray();
+            }
+
+            gen.writeFieldName("geoPath");
+            writeGeoPath(gen, value.getGeoPath());
+
+            var compactGeoPath = value.getCompactGeoPath();
+            gen.writeStringField("compactGeoPath", compactGeoPath != null ? compactGeoPath.encode() : null);
+
+            provider.defaultSerializeField("mode", value.getMode(), gen);
+
+            gen.writeFieldName("distanceMeter");
+            if (value.getDistanceMeter() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(value.getDistanceMeter());
+            }
+
+            gen.writeEndObject();
+        }
+
+        private static void writePlace(JsonGenerator gen, String name, Place place) throws IOException {
+            gen.writeFieldName(name);
+
+            if (place == null) {
+                gen.writeNull();
+            } else {
+                gen.writeStartObject(place);
+                PlaceSerializer.writeFields(place, gen);
+                gen.writeEndObject();
+            }
+        }
+
+        private static void writeGeoPath(JsonGenerator gen, List<Coordinates> geoPath) throws IOException {
+            if (geoPath == null) {
+                gen.writeNull();
+                return;
+            }
+
+            gen.writeStartArray();
+
+            for (var c : geoPath) {
+                if (c == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeStartObject(c);
+                    writeDouble(gen, "lat", c.getLat());
+                    writeDouble(gen, "lon", c.getLon());
+                    gen.writeEndObject();
+                }
+            }
+
+            gen.writeEndArray();
+        }
+    }
+
+    public static class OptionSerializer extends StdSerializer<Option> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LegSerializer legSerializer = new LegSerializer();
+
+        public OptionSerializer() {
+            super(Option.class);
+        }
+
+        @Override
+        public void serialize(Option value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            gen.writeStringField("serviceId", value.getServiceId());
+
+            gen.writeFieldName("leg");
+            if (value.getLeg() == null) {
+                gen.writeNull();
+            } else {
+                legSerializer.serialize(value.getLeg(), gen, provider);
+            }
+
+            gen.writeFieldName("immediateStart");
+            if (value.getImmediateStart() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeBoolean(value.getImmediateStart());
+            }
+
+            gen.writeStringField("optionReference", value.getOptionReference());
+            provider.defaultSerializeField("validUntil", value.getValidUntil(), gen);
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeDouble(JsonGenerator gen, String name, Double value) throws IOException {
+        gen.writeFieldName(name);
+
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeStringIfNotNull(JsonGenerator gen, String name, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(name, value);
+        }
+    }
+}
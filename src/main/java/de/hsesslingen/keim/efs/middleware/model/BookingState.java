@@ -23,6 +23,15 @@
  */
 package de.hsesslingen.keim.efs.middleware.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import static java.util.Collections.unmodifiableSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * The life,cycle state of the booking (from NEW to FINISHED)
  *
@@ -37,26 +46,113 @@ public enum BookingState {
     ABORTED, // Closed
     FINISHED; // Closed
 
-    public boolean canAdvanceTo(BookingState next) {
-        if (next == null) {
-            return false;
+    /**
+     * Bit i is set if the state with ordinal i may follow this state.
+     */
+    private int nextMask;
+    private Set<BookingState> nextStates;
+
+    static {
+        NEW.setNext(UPDATEREQUESTED, BOOKED, STARTED);
+        BOOKED.setNext(UPDATEREQUESTED, CANCELLED, STARTED);
+        STARTED.setNext(UPDATEREQUESTED, ABORTED, FINISHED);
+        UPDATEREQUESTED.setNext(values());
+        CANCELLED.setNext();
+        ABORTED.setNext();
+        FINISHED.setNext();
+    }
+
+    private void setNext(BookingState... next) {
+        var set = EnumSet.noneOf(BookingState.class);
+
+        for (var state : next) {
+            set.add(state);
+            nextMask |= 1 << state.ordinal();
         }
 
-        switch (this) {
-            case NEW:
-                return next == UPDATEREQUESTED || next == BOOKED || next == STARTED;
-            case BOOKED:
-                return next == UPDATEREQUESTED || next == CANCELLED || next == STARTED;
-            case STARTED:
-                return next == UPDATEREQUESTED || next == ABORTED || next == FINISHED;
-            case UPDATEREQUESTED:
-                return true;
-            case CANCELLED:
-            case FINISHED:
-            case ABORTED:
-            default:
+        nextStates = unmodifiableSet(set);
+    }
+
+    /**
+     * Returns whether a booking in this state may change to the given state.
+     *
+     * @param next
+     * @return
+     */
+    public boolean canAdvanceTo(BookingState next) {
+        return next != null && (nextMask & (1 << next.ordinal())) != 0;
+    }
+
+    /**
+     * Returns the states a booking in this state may change to.
+     *
+     * @return An unmodifiable set, which is empty for closed states.
+     */
+    public Set<BookingState> nextStates() {
+        return nextStates;
+    }
+
+    /**
+     * Returns whether this state is final, i.e. a booking in this state does
+     * not change anymore.
+     *
+     * @return
+     */
+    public boolean isClosed() {
+        return nextMask == 0;
+    }
+
+    /**
+     * Returns whether a booking may pass through the given states in the given
+     * order. A path with less than two states is always valid.
+     *
+     * @param path
+     * @return
+     */
+    public static boolean isValidPath(List<BookingState> path) {
+        for (int i = 1; i < path.size(); ++i) {
+            var previous = path.get(i - 1);
+
+            if (previous == null || !previous.canAdvanceTo(path.get(i))) {
                 return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns whether a booking may pass through the given states in the given
+     * order. A path with less than two states is always valid.
+     *
+     * @param path
+     * @return
+     */
+    public static boolean isValidPath(BookingState... path) {
+        return isValidPath(Arrays.asList(path));
+    }
+
+    /**
+     * Checks a batch of transitions, each given as a booking and the state it
+     * should change to, and returns those that are not allowed. Bookings
+     * without a state can not change to any state.
+     *
+     * @param transitions
+     * @return The invalid transitions in the order in which they were given.
+     */
+    public static List<Map.Entry<Booking, BookingState>> findInvalidTransitions(Collection<? extends Map.Entry<Booking, BookingState>> transitions) {
+        var invalid = new ArrayList<Map.Entry<Booking, BookingState>>();
+
+        for (var transition : transitions) {
+            var booking = transition.getKey();
+            var current = booking == null ? null : booking.getState();
+
+            if (current == null || !current.canAdvanceTo(transition.getValue())) {
+                invalid.add(transition);
+            }
         }
+
+        return invalid;
     }
 
 }
@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A memory efficient alternative to a {@code List<Coordinates>} for long geo
+ * paths. The points are held in a single {@code int[]} as fixed point values
+ * with six decimal places (E6), alternating latitude and longitude.
+ * <p>
+ * In JSON this class is represented as string in the encoded polyline format
+ * with a precision of six decimal places ("polyline6"), which is understood
+ * by many routing engines and map libraries.
+ *
+ * @author keim
+ */
+public final class CompactGeoPath implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final double E6 = 1e6;
+
+    /**
+     * Latitudes and longitudes in E6 fixed point, alternating.
+     */
+    private final int[] points;
+
+    private CompactGeoPath(int[] points) {
+        this.points = points;
+    }
+
+    /**
+     * Creates a geo path from the given coordinates. Their values are rounded
+     * to six decimal places. Coordinates without latitude or longitude are
+     * skipped, because they can not be represented.
+     *
+     * @param coordinates
+     * @return
+     */
+    public static CompactGeoPath fromCoordinates(List<? extends ICoordinates> coordinates) {
+        var points = new int[coordinates.size() * 2];
+        int i = 0;
+
+        for (var c : coordinates) {
+            if (c == null || c.getLat() == null || c.getLon() == null) {
+                continue;
+            }
+
+            points[i++] = toE6(c.getLat());
+            points[i++] = toE6(c.getLon());
+        }
+
+        return new CompactGeoPath(i < points.length ? Arrays.copyOf(points, i) : points);
+    }
+
+    /**
+     * Creates a geo path from the given latitudes and longitudes, which must
+     * have the same length.
+     *
+     * @param lats
+     * @param lons
+     * @return
+     */
+    public static CompactGeoPath fromLatLons(double[] lats, double[] lons) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException("Arrays of latitudes and longitudes must have the same length.");
+        }
+
+        var points = new int[lats.length * 2];
+
+        for (int i = 0; i < lats.length; ++i) {
+            points[2 * i] = toE6(lats[i]);
+            points[2 * i + 1] = toE6(lons[i]);
+        }
+
+        return new CompactGeoPath(points);
+    }
+
+    /**
+     * Decodes a geo path from the given string in polyline6 format.
+     *
+     * @param polyline
+     * @return
+     * @throws IllegalArgumentException If the string is not a valid polyline.
+     */
+    @JsonCreator
+    public static CompactGeoPath decode(String polyline) {
+        // Every value takes at least one char, so this is an upper bound.
+        var values = new int[polyline.length() + 1];
+        int count = 0;
+        int index = 0;
+        int length = polyline.length();
+
+        while (index < length) {
+            int result = 0;
+            int shift = 0;
+            int b;
+
+            do {
+                if (index >= length) {
+                    throw new IllegalArgumentException("Polyline ends in the middle of a value.");
+                }
+
+                b = polyline.charAt(index++) - 63;
+
+                if (b < 0 || b > 63) {
+                    throw new IllegalArgumentException("Invalid char in polyline at index " + (index - 1) + ".");
+                }
+
+                result |= (b & 0x1f) << shift;
+                shift += 5;
+            } while (b >= 0x20);
+
+            // Undo zig-zag encoding and delta encoding.
+            int delta = (result & 1) != 0 ? ~(result >>> 1) : result >>> 1;
+            values[count] = delta + (count >= 2 ? values[count - 2] : 0);
+            ++count;
+        }
+
+        if (count % 2 != 0) {
+            throw new IllegalArgumentException("Polyline contains an odd number of values.");
+        }
+
+        return new CompactGeoPath(Arrays.copyOf(values, count));
+    }
+
+    /**
+     * Encodes this geo path into the polyline6 format.
+     *
+     * @return
+     */
+    @JsonValue
+    public String encode() {
+        var sb = new StringBuilder(points.length * 4);
+        int prevLat = 0;
+        int prevLon = 0;
+
+        for (int i = 0; i < points.length; i += 2) {
+            encodeValue(points[i] - prevLat, sb);
+            encodeValue(points[i + 1] - prevLon, sb);
+            prevLat = points[i];
+            prevLon = points[i + 1];
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * The number of points in this geo path.
+     *
+     * @return
+     */
+    public int size() {
+        return points.length / 2;
+    }
+
+    public double getLat(int index) {
+        return points[2 * index] / E6;
+    }
+
+    public double getLon(int index) {
+        return points[2 * index + 1] / E6;
+    }
+
+    /**
+     * Converts this geo path into a list of {@link Coordinates}.
+     *
+     * @return
+     */
+    public List<Coordinates> toCoordinates() {
+        var result = new ArrayList<Coordinates>(size());
+
+        for (int i = 0; i < size(); ++i) {
+            result.add(new Coordinates(getLat(i), getLon(i)));
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CompactGeoPath
+                && Arrays.equals(points, ((CompactGeoPath) obj).points);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(points);
+    }
+
+    @Override
+    public String toString() {
+        return "CompactGeoPath(size=" + size() + ")";
+    }
+
+    private static int toE6(double value) {
+        return (int) Math.round(value * E6);
+    }
+
+    private static void encodeValue(int value, StringBuilder sb) {
+        // Zig-zag encoding moves the sign into the lowest bit.
+        int v = value < 0 ? ~(value << 1) : value << 1;
+
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>>= 5;
+        }
+
+        sb.append((char) (v + 63));
+    }
+}
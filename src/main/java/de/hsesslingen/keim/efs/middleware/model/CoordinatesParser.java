@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.model;
+
+/**
+ * Number parsing used by {@link ICoordinates#parseLatLon(String, ICoordinates.LatLonFunction, java.util.function.Supplier)}.
+ *
+ * @author keim
+ */
+final class CoordinatesParser {
+
+    /**
+     * Powers of ten that can be represented exactly as double.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CoordinatesParser() {
+    }
+
+    /**
+     * Parses the number between {@link start} (inclusive) and {@link end}
+     * (exclusive) of the given string. Returns {@link Double#NaN} if there is
+     * no valid number.
+     *
+     * @param s
+     * @param start
+     * @param end
+     * @return
+     */
+    static double parseDouble(String s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            ++i;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+
+        for (; i < end; ++i) {
+            char c = s.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                ++digits;
+
+                if (dot) {
+                    ++fractionDigits;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+
+        // Up to 15 digits and an exactly representable power of ten, the
+        // division is correctly rounded. Everything else is left to the JDK.
+        if (i == end && digits > 0 && digits <= 15) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        try {
+            double value = Double.parseDouble(s.substring(start, end));
+            return Double.isNaN(value) ? Double.NaN : value;
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+}
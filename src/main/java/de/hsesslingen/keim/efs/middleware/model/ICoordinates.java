@@ -26,7 +26,6 @@ package de.hsesslingen.keim.efs.middleware.model;
 import static java.lang.Math.*;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
-import static org.springframework.util.StringUtils.countOccurrencesOf;
 import static org.springframework.util.StringUtils.isEmpty;
 
 /**
@@ -43,10 +42,15 @@ import static org.springframework.util.StringUtils.isEmpty;
  */
 public interface ICoordinates {
 
+    /**
+     * The mean radius of the earth.
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
     /**
      * Used in distance calculations between coordinates.
      */
-    public static final double DOUBLE_EARTH_RADIUS_KM = 2.0 * 6371.0;
+    public static final double DOUBLE_EARTH_RADIUS_KM = 2.0 * EARTH_RADIUS_KM;
 
     /**
      * Used to convert degrees to radians.
@@ -58,6 +62,17 @@ public interface ICoordinates {
      */
     public static final double D180_BY_PI = 180d / Math.PI;
 
+    /**
+     * A function that accepts a latitude and a longitude as primitives.
+     *
+     * @param <C> The result type.
+     */
+    @FunctionalInterface
+    public static interface LatLonFunction<C> {
+
+        public C apply(double lat, double lon);
+    }
+
     /**
      * Get the latitude value of this coordinates pair.
      *
@@ -81,21 +96,86 @@ public interface ICoordinates {
      * @return The distance between two coordinates in kilometers.
      */
     public static double distanceKmBetween(ICoordinates a, ICoordinates b) {
-        double latA = degreesToRadians(a.getLat());
-        double latB = degreesToRadians(b.getLat());
-        double lonA = degreesToRadians(a.getLon());
-        double lonB = degreesToRadians(b.getLon());
+        return distanceKm(a.getLat(), a.getLon(), b.getLat(), b.getLon());
+    }
 
-        double latDiff = latB - latA;
-        double lonDiff = lonB - lonA;
+    /**
+     * Calculates the distance in kilometers between two coordinates given in
+     * degrees using the haversine formula.
+     * (https://en.wikipedia.org/wiki/Haversine_formula)
+     *
+     * @param latA
+     * @param lonA
+     * @param latB
+     * @param lonB
+     * @return The distance between two coordinates in kilometers.
+     */
+    public static double distanceKm(double latA, double lonA, double latB, double lonB) {
+        double latARad = degreesToRadians(latA);
+        double latBRad = degreesToRadians(latB);
 
-        double sinOfLat = sin(latDiff / 2d);
-        double sinOfLon = sin(lonDiff / 2d);
+        double sinOfLat = sin((latBRad - latARad) / 2d);
+        double sinOfLon = sin(degreesToRadians(lonB - lonA) / 2d);
 
-        double cosLatA = cos(latA);
-        double cosLatB = cos(latB);
+        return DOUBLE_EARTH_RADIUS_KM * asin(sqrt((sinOfLat * sinOfLat) + (sinOfLon * sinOfLon * cos(latARad) * cos(latBRad))));
+    }
+
+    /**
+     * Approximates the distance in kilometers between two coordinates given in
+     * degrees using an equirectangular projection. This is considerably cheaper
+     * than {@link #distanceKm(double, double, double, double)} and its error
+     * is negligible for distances of a few dozen kilometers, which makes it
+     * suitable e.g. for radius filtering or sorting by distance. It must not be
+     * used across the antimeridian or close to the poles.
+     *
+     * @param latA
+     * @param lonA
+     * @param latB
+     * @param lonB
+     * @return The approximate distance between two coordinates in kilometers.
+     */
+    public static double approxDistanceKm(double latA, double lonA, double latB, double lonB) {
+        double x = degreesToRadians(lonB - lonA) * cos(degreesToRadians((latA + latB) / 2d));
+        double y = degreesToRadians(latB - latA);
+
+        return EARTH_RADIUS_KM * sqrt(x * x + y * y);
+    }
+
+    /**
+     * Calculates the distances in kilometers from one point to many points
+     * using the haversine formula. The terms that only depend on the origin
+     * are calculated once for all points.
+     *
+     * @param lat The latitude of the origin in degrees.
+     * @param lon The longitude of the origin in degrees.
+     * @param packedLatLons The latitudes and longitudes of the points in
+     * degrees, alternating, i.e. {@code [lat0, lon0, lat1, lon1, ...]}.
+     * @param result An array of at least half the length of
+     * {@link packedLatLons} into which the distances are written. If
+     * {@code null}, a new array is created.
+     * @return The array of distances in kilometers.
+     */
+    public static double[] distancesKm(double lat, double lon, double[] packedLatLons, double[] result) {
+        int count = packedLatLons.length / 2;
+
+        if (result == null) {
+            result = new double[count];
+        } else if (result.length < count) {
+            throw new IllegalArgumentException("Result array is too small for " + count + " distances.");
+        }
+
+        double latRad = degreesToRadians(lat);
+        double cosLat = cos(latRad);
+
+        for (int i = 0; i < count; ++i) {
+            double otherLatRad = degreesToRadians(packedLatLons[2 * i]);
+
+            double sinOfLat = sin((otherLatRad - latRad) / 2d);
+            double sinOfLon = sin(degreesToRadians(packedLatLons[2 * i + 1] - lon) / 2d);
+
+            result[i] = DOUBLE_EARTH_RADIUS_KM * asin(sqrt((sinOfLat * sinOfLat) + (sinOfLon * sinOfLon * cosLat * cos(otherLatRad))));
+        }
 
-        double result = DOUBLE_EARTH_RADIUS_KM * asin(sqrt((sinOfLat * sinOfLat) + (sinOfLon * sinOfLon * cosLatA * cosLatB)));
         return result;
     }
 
@@ -128,8 +208,19 @@ public interface ICoordinates {
      * @return
      */
     public static boolean isValid(Double lat, Double lon) {
-        return lat != null && lon != null
-                && lat >= -90.0 && lat <= 90.0
+        return lat != null && lon != null && isValid((double) lat, (double) lon);
+    }
+
+    /**
+     * Checks whether the given lat and lon values are within their allowed
+     * boundaries.
+     *
+     * @param lat
+     * @param lon
+     * @return
+     */
+    public static boolean isValid(double lat, double lon) {
+        return lat >= -90.0 && lat <= 90.0
                 && lon >= -180.0 && lon <= 180.0;
     }
 
@@ -194,17 +285,64 @@ public interface ICoordinates {
      * @return
      */
     public static <C> C parse(String latCommaLonString, BiFunction<Double, Double, C> utilizer, Supplier<C> onFailValueSupplier) {
-        if (isEmpty(latCommaLonString) || countOccurrencesOf(latCommaLonString, ",") != 1) {
+        return parseLatLon(latCommaLonString, (lat, lon) -> utilizer.apply(lat, lon), onFailValueSupplier);
+    }
+
+    /**
+     * Same as {@link #parse(String, BiFunction, Supplier)} but passes the
+     * latitude and longitude as primitives to the given {@link utilizer}.
+     * <p>
+     * The string is parsed in a single pass without creating intermediate
+     * strings. Plain decimal numbers like "48.7406" are converted directly,
+     * other formats accepted by {@link Double#parseDouble(String)} (e.g.
+     * surrounding whitespace or exponents) are passed on to that method.
+     *
+     * @param <C>
+     * @param latCommaLonString
+     * @param utilizer
+     * @param onFailValueSupplier
+     * @return
+     */
+    public static <C> C parseLatLon(String latCommaLonString, LatLonFunction<C> utilizer, Supplier<C> onFailValueSupplier) {
+        if (isEmpty(latCommaLonString)) {
+            return onFailValueSupplier.get();
+        }
+
+        int comma = latCommaLonString.indexOf(',');
+
+        if (comma < 0 || latCommaLonString.indexOf(',', comma + 1) >= 0) {
             return onFailValueSupplier.get();
         }
 
-        String[] split = latCommaLonString.split(",");
+        double lat = CoordinatesParser.parseDouble(latCommaLonString, 0, comma);
+        double lon = CoordinatesParser.parseDouble(latCommaLonString, comma + 1, latCommaLonString.length());
 
-        try {
-            return utilizer.apply(Double.valueOf(split[0]), Double.valueOf(split[1]));
-        } catch (NumberFormatException ex) {
+        if (Double.isNaN(lat) || Double.isNaN(lon)) {
             return onFailValueSupplier.get();
         }
+
+        return utilizer.apply(lat, lon);
+    }
+
+    /**
+     * Same as {@link #parseLatLon(String, LatLonFunction, Supplier)} but also
+     * calls the {@link onFailValueSupplier} if the values of latitude or
+     * longitude exceed their allowed boundaries.
+     *
+     * @param <C>
+     * @param latCommaLonString
+     * @param utilizer
+     * @param onFailValueSupplier
+     * @return
+     */
+    public static <C> C parseLatLonAndValidate(String latCommaLonString, LatLonFunction<C> utilizer, Supplier<C> onFailValueSupplier) {
+        return parseLatLon(latCommaLonString, (lat, lon) -> {
+            if (!isValid(lat, lon)) {
+                return onFailValueSupplier.get();
+            }
+
+            return utilizer.apply(lat, lon);
+        }, onFailValueSupplier);
     }
 
     /**
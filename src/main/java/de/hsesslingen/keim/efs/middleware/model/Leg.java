@@ -36,6 +36,7 @@ import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 import java.time.ZonedDateTime;
 import java.util.List;
+import static java.util.stream.Collectors.toList;
 
 /**
  * An object containing route data. Information about the asset that is
@@ -112,6 +113,14 @@ public class Leg implements Serializable {
      */
     private List<Coordinates> geoPath;
 
+    /**
+     * A compact alternative to {@link geoPath}, which is transmitted as
+     * encoded polyline. Providers only fill this field instead of
+     * {@link geoPath} if the client requested compact geo paths. See
+     * {@link #withCompactGeoPaths()}.
+     */
+    private CompactGeoPath compactGeoPath;
+
     /**
      * The mode of this leg.
      */
@@ -132,9 +141,39 @@ public class Leg implements Serializable {
         this.asset = other.asset;
         this.subLegs = other.subLegs;
         this.geoPath = other.geoPath;
+        this.compactGeoPath = other.compactGeoPath;
         this.mode = other.mode;
         this.distanceMeter = other.distanceMeter;
         return this;
     }
 
+    /**
+     * Creates a copy of this leg in which the {@link geoPath} of this leg and
+     * of all its sub legs is converted into a {@link compactGeoPath}. The
+     * {@link geoPath} is removed in the copy. This leg and its sub legs are not
+     * modified, so the paths stay available to whoever holds them.
+     *
+     * @return
+     */
+    @JsonIgnore
+    public Leg withCompactGeoPaths() {
+        var copy = new Leg().updateSelfFrom(this);
+
+        if (geoPath != null) {
+            if (compactGeoPath == null) {
+                copy.compactGeoPath = CompactGeoPath.fromCoordinates(geoPath);
+            }
+
+            copy.geoPath = null;
+        }
+
+        if (subLegs != null) {
+            copy.subLegs = subLegs.stream()
+                    .map(l -> l != null ? l.withCompactGeoPaths() : null)
+                    .collect(toList());
+        }
+
+        return copy;
+    }
+
 }
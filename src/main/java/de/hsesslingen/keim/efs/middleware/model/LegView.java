@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.hsesslingen.keim.efs.middleware.json.ModelDeserializers.LegViewDeserializer;
+import de.hsesslingen.keim.efs.middleware.utils.FlexibleZonedDateTimeParser;
+import de.hsesslingen.keim.efs.mobility.service.Mode;
+import java.time.ZonedDateTime;
+import lombok.Value;
+
+/**
+ * An immutable, flat representation of the properties of a {@link Leg} that
+ * are needed to sort and filter options, using primitive fields instead of the
+ * nested and boxed values of {@link Leg}. Geo paths, assets and sub legs are
+ * not part of this view.
+ * <p>
+ * Absent times are represented by {@link #NO_TIME}, absent coordinates by
+ * {@link Double#NaN} and an absent distance by {@link #NO_DISTANCE}.
+ * <p>
+ * Views are read from the JSON of a leg, independent of the modules
+ * registered in the object mapper.
+ *
+ * @author keim
+ */
+@Value
+@JsonDeserialize(using = LegViewDeserializer.class)
+public class LegView {
+
+    public static final long NO_TIME = Long.MIN_VALUE;
+    public static final int NO_DISTANCE = -1;
+
+    long startTimeMillis;
+    long endTimeMillis;
+    double fromLat;
+    double fromLon;
+    String fromPlaceId;
+    double toLat;
+    double toLon;
+    String toPlaceId;
+    String assetId;
+    Mode mode;
+    int distanceMeter;
+
+    /**
+     * Creates a view of the given leg.
+     *
+     * @param leg
+     * @return
+     */
+    public static LegView of(Leg leg) {
+        var from = leg.getFrom();
+        var to = leg.getTo();
+
+        return new LegView(
+                toMillis(leg.getStartTime()), toMillis(leg.getEndTime()),
+                coordinate(from == null ? null : from.getLat()), coordinate(from == null ? null : from.getLon()),
+                from == null ? null : from.getId(),
+                coordinate(to == null ? null : to.getLat()), coordinate(to == null ? null : to.getLon()),
+                to == null ? null : to.getId(),
+                leg.getAssetId(), leg.getMode(),
+                leg.getDistanceMeter() == null ? NO_DISTANCE : leg.getDistanceMeter()
+        );
+    }
+
+    /**
+     * Creates a new {@link Leg} with the values of this view. Times are in the
+     * time zone of the system.
+     *
+     * @return
+     */
+    public Leg toLeg() {
+        return new Leg()
+                .setStartTime(toTime(startTimeMillis))
+                .setEndTime(toTime(endTimeMillis))
+                .setFrom(toPlace(fromLat, fromLon, fromPlaceId))
+                .setTo(toPlace(toLat, toLon, toPlaceId))
+                .setAssetId(assetId)
+                .setMode(mode)
+                .setDistanceMeter(distanceMeter == NO_DISTANCE ? null : distanceMeter);
+    }
+
+    static long toMillis(ZonedDateTime time) {
+        return time == null ? NO_TIME : time.toInstant().toEpochMilli();
+    }
+
+    static ZonedDateTime toTime(long millis) {
+        return millis == NO_TIME ? null : FlexibleZonedDateTimeParser.fromEpochMilli(millis);
+    }
+
+    private static double coordinate(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    private static Place toPlace(double lat, double lon, String id) {
+        boolean hasCoordinates = !Double.isNaN(lat) && !Double.isNaN(lon);
+
+        if (!hasCoordinates && id == null) {
+            return null;
+        }
+
+        var place = new Place(id);
+
+        if (hasCoordinates) {
+            place.setCoordinates(lat, lon);
+        }
+
+        return place;
+    }
+
+    public boolean hasStartTime() {
+        return startTimeMillis != NO_TIME;
+    }
+
+    public boolean hasEndTime() {
+        return endTimeMillis != NO_TIME;
+    }
+
+    public boolean hasDistance() {
+        return distanceMeter != NO_DISTANCE;
+    }
+}
@@ -101,4 +101,15 @@ public class Option implements Serializable {
         this.validUntil = other.validUntil;
         return this;
     }
+
+    /**
+     * Creates a copy of this option whose leg carries compact geo paths. See
+     * {@link Leg#withCompactGeoPaths()}. This option is not modified.
+     *
+     * @return
+     */
+    @JsonIgnore
+    public Option withCompactGeoPaths() {
+        return new Option(serviceId, leg != null ? leg.withCompactGeoPaths() : null, immediateStart, optionReference, validUntil);
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.hsesslingen.keim.efs.middleware.json.ModelDeserializers.OptionViewDeserializer;
+import lombok.Value;
+
+/**
+ * An immutable, flat representation of an {@link Option} for consumers that
+ * only sort and filter options, see {@link LegView}. Is read directly from the
+ * JSON of an option, independent of the modules registered in the object
+ * mapper, skipping all properties not contained in the view.
+ * <p>
+ * An absent {@link #getValidUntilMillis()} is represented by
+ * {@link LegView#NO_TIME}.
+ *
+ * @author keim
+ */
+@Value
+@JsonDeserialize(using = OptionViewDeserializer.class)
+public class OptionView {
+
+    String serviceId;
+    String optionReference;
+    boolean immediateStart;
+    long validUntilMillis;
+    LegView leg;
+
+    /**
+     * Creates a view of the given option.
+     *
+     * @param option
+     * @return
+     */
+    public static OptionView of(Option option) {
+        return new OptionView(
+                option.getServiceId(),
+                option.getOptionReference(),
+                Boolean.TRUE.equals(option.getImmediateStart()),
+                LegView.toMillis(option.getValidUntil()),
+                option.getLeg() == null ? null : LegView.of(option.getLeg())
+        );
+    }
+
+    /**
+     * Creates a new {@link Option} with the values of this view. Times are in
+     * the time zone of the system.
+     *
+     * @return
+     */
+    public Option toOption() {
+        return new Option()
+                .setServiceId(serviceId)
+                .setOptionReference(optionReference)
+                .setImmediateStart(immediateStart)
+                .setValidUntil(LegView.toTime(validUntilMillis))
+                .setLeg(leg == null ? null : leg.toLeg());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps equal {@link Place} objects to one shared instance. Options of the same
+ * provider often start or end at the same stations, which are otherwise
+ * deserialized into separate but equal objects. Sharing them reduces the heap
+ * used by large results and makes comparisons and grouping by place cheaper,
+ * as equal places are then identical.
+ * <p>
+ * Only places that are equal in all of their properties are shared. Because
+ * {@link Place} is mutable, changing a shared place changes it for all legs
+ * that reference it. A pool is therefore intended to be used for a single
+ * response and is not thread safe.
+ *
+ * @author keim
+ */
+public class PlacePool {
+
+    private final Map<Place, Place> places = new HashMap<>();
+
+    /**
+     * Returns the pooled place that equals the given one, or the given place
+     * itself, which is then pooled.
+     *
+     * @param place
+     * @return
+     */
+    public Place get(Place place) {
+        if (place == null) {
+            return null;
+        }
+
+        var pooled = places.putIfAbsent(place, place);
+        return pooled != null ? pooled : place;
+    }
+
+    /**
+     * Replaces the places of the given leg, its asset and all of its sub legs
+     * by pooled ones.
+     *
+     * @param leg
+     */
+    public void canonicalize(Leg leg) {
+        if (leg == null) {
+            return;
+        }
+
+        leg.setFrom(get(leg.getFrom()));
+        leg.setTo(get(leg.getTo()));
+
+        if (leg.getAsset() != null) {
+            leg.getAsset().setPlace(get(leg.getAsset().getPlace()));
+        }
+
+        if (leg.getSubLegs() != null) {
+            for (var subLeg : leg.getSubLegs()) {
+                canonicalize(subLeg);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct places in this pool.
+     *
+     * @return
+     */
+    public int size() {
+        return places.size();
+    }
+
+    /**
+     * Makes equal places in the given options share one instance, using a new
+     * pool.
+     *
+     * @param options
+     * @return The given options.
+     */
+    public static List<Option> canonicalizeOptions(List<Option> options) {
+        if (options == null) {
+            return null;
+        }
+
+        var pool = new PlacePool();
+
+        for (var option : options) {
+            if (option != null) {
+                pool.canonicalize(option.getLeg());
+            }
+        }
+
+        return options;
+    }
+}
@@ -23,19 +23,27 @@
  */
 package de.hsesslingen.keim.efs.middleware.provider;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.hsesslingen.keim.efs.middleware.provider.credentials.AbstractCredentials;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsCache;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsDebugFormatter;
+import de.hsesslingen.keim.efs.middleware.provider.config.RequestLogging;
 import de.hsesslingen.keim.efs.middleware.provider.credentials.ICredentialsDeserializer;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.IProviderMetrics;
+import de.hsesslingen.keim.efs.middleware.utils.LimitedStringWriter;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
 import static java.util.stream.Collectors.joining;
 import org.slf4j.Logger;
 import static org.slf4j.LoggerFactory.getLogger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import static org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * Used as a base class for provider APIs providing some commonly used methods.
@@ -45,17 +53,43 @@ import org.springframework.beans.factory.annotation.Value;
  */
 public abstract class ApiBase<C extends AbstractCredentials> {
 
+    /**
+     * Name of the request attribute that remembers between
+     * {@link #logParams(String, Supplier)} and {@link #logResult(Object)}
+     * whether the current request is logged. Being bound to the request, it
+     * does not outlive requests that fail before their result is logged.
+     */
+    private static final String REQUEST_SAMPLED_ATTRIBUTE = ApiBase.class.getName() + ".REQUEST_SAMPLED";
+
     protected final Logger logger = getLogger(getClass());
 
     @Value("${middleware.logging.debug.obfuscate-credentials:true}")
     private boolean obfuscateCredentialsForDebugLogging;
 
+    private Function<Object, Object> debugValueMapper;
+
     @Autowired
     private ObjectMapper mapper;
 
     @Autowired(required = false)
     private ICredentialsDeserializer<C> deserializer;
 
+    @Autowired(required = false)
+    private CredentialsCache credentialsCache;
+
+    @Autowired(required = false)
+    private RequestLogging requestLogging;
+
+    @Autowired(required = false)
+    private IProviderMetrics metrics;
+
+    @PostConstruct
+    private void initDebugValueMapper() {
+        debugValueMapper = obfuscateCredentialsForDebugLogging
+                ? ApiBase::obfuscate
+                : Function.identity();
+    }
+
     /**
      * Attempts to deserialize the given token into a credentials object.If the
      * given string value is {@code null} or empty, {@code null} is returned.<p>
@@ -66,15 +100,27 @@ public abstract class ApiBase<C extends AbstractCredentials> {
      * <p>
      * Last but not least, if such a bean is not implemented, the string is
      * tried to be deserialized without knowledge of the underlying structure.
+     * <p>
+     * If the {@link CredentialsCache} is enabled, parsed credentials are cached
+     * by token and reused for subsequent requests with the same token.
      *
      * @param token
      * @return
      */
+    @SuppressWarnings("unchecked")
     protected C parseToken(String token) {
         C result = null;
 
-        if (deserializer != null) {
+        if (credentialsCache != null) {
+            result = (C) credentialsCache.get(token);
+        }
+
+        if (result == null && deserializer != null) {
             result = deserializer.parseToken(token);
+
+            if (credentialsCache != null) {
+                credentialsCache.put(token, result);
+            }
         }
 
         if (result == null) {
@@ -86,6 +132,30 @@ public abstract class ApiBase<C extends AbstractCredentials> {
         return result;
     }
 
+    /**
+     * Returns the {@link IProviderMetrics} that should be used to wrap the calls
+     * of the user implemented services. If metrics are disabled, an
+     * implementation that simply calls the services is returned.
+     *
+     * @return
+     */
+    protected IProviderMetrics getMetrics() {
+        return metrics != null ? metrics : IProviderMetrics.NONE;
+    }
+
+    /**
+     * Removes the credentials of the given token from the
+     * {@link CredentialsCache}, if that one is enabled. Must be called whenever
+     * a token becomes invalid, e.g. because it was deleted.
+     *
+     * @param token
+     */
+    protected void invalidateCachedCredentials(String token) {
+        if (credentialsCache != null) {
+            credentialsCache.invalidate(token);
+        }
+    }
+
     /**
      * If the config property "middleware.logging.debug.obfuscate-credentials"
      * is set to true (which is default), this method obfuscates the given
@@ -123,68 +193,32 @@ public abstract class ApiBase<C extends AbstractCredentials> {
             return;
         }
 
-        var sb = new StringBuilder();
-
-        sb.append("Parsed credentials with following values: ");
-
-        var cl = creds.getClass();
-        var fields = cl.getDeclaredFields();
-
-        int count = 0;
-
-        for (var field : fields) {
-            field.setAccessible(true);
-
-            sb.append(field.getName());
-
-            try {
-                var value = field.get(creds);
-
-                if (obfuscateCredentialsForDebugLogging) {
-                    value = obfuscate(value);
-                }
-
-                sb.append("=").append(value);
-            } catch (IllegalAccessException ex) {
-                sb.append("->IllegalAccessException");
-            } catch (IllegalArgumentException ex) {
-                sb.append("->IllegalArgumentException");
-            }
-
-            sb.append(", ");
-
-            field.setAccessible(false);
-
-            ++count;
-        }
-
-        String output;
-
-        if (count == 0) {
-            sb.append("(no values parsed)");
-            output = sb.toString();
-        } else {
-            output = sb.toString();
-
-            if (output.endsWith(", ")) {
-                output = output.substring(0, output.lastIndexOf(","));
-            }
-        }
-
-        logger.debug(output);
+        logger.debug(CredentialsDebugFormatter.format(creds, debugValueMapper));
     }
 
     /**
      * Stringifies the given object. If serialization fails, a message string is
      * returned. This method is inteded to be used for logging.
+     * <p>
+     * The output is cut off after "middleware.logging.requests.max-payload-length"
+     * chars. Serialization is aborted at that point, so large objects are not
+     * rendered completely.
      *
      * @param o
      * @return
      */
     protected String stringify(Object o) {
+        var maxLength = requestLogging != null ? requestLogging.getMaxPayloadLength() : 0;
+        var writer = new LimitedStringWriter(maxLength);
+
         try {
-            return mapper.writeValueAsString(o);
-        } catch (JsonProcessingException ex) {
+            mapper.writeValue(writer, o);
+            return writer.toString();
+        } catch (IOException ex) {
+            if (writer.isLimitReached()) {
+                return writer + "... (truncated after " + maxLength + " chars)";
+            }
+
             return "Could not serialize object for logging. Exception occured.";
         }
     }
@@ -204,6 +238,11 @@ public abstract class ApiBase<C extends AbstractCredentials> {
      * <p>
      * The variables are only logged, and the supplier therefore only called, if
      * log level is set to DEBUG.
+     * <p>
+     * Requests are sampled per method name according to the properties
+     * "middleware.logging.requests.*". If the current request is not sampled,
+     * nothing is logged here and in the subsequent call of
+     * {@link #logResult(Object)}.
      *
      * @param methodName The name of the method whose params should be logged.
      * @param variablesAndValuesSupplier A function returning an array of
@@ -211,36 +250,50 @@ public abstract class ApiBase<C extends AbstractCredentials> {
      * pairwise.
      */
     protected void logParams(String methodName, Supplier<Object[]> variablesAndValuesSupplier) {
+        var sampled = requestLogging == null || requestLogging.sample(methodName);
+        var attributes = RequestContextHolder.getRequestAttributes();
+
+        if (attributes != null) {
+            attributes.setAttribute(REQUEST_SAMPLED_ATTRIBUTE, sampled, SCOPE_REQUEST);
+        }
+
+        if (!sampled) {
+            return;
+        }
+
         logger.info("Received " + methodName + "-request.");
 
         if (logger.isDebugEnabled() && variablesAndValuesSupplier != null) {
+            runLogTask(() -> debugOutputParams(methodName, variablesAndValuesSupplier));
+        }
+    }
 
-            var variablesAndValues = variablesAndValuesSupplier.get();
-
-            if (variablesAndValues != null) {
-                var sb = new StringBuilder("Params of this request:\n");
+    private void debugOutputParams(String methodName, Supplier<Object[]> variablesAndValuesSupplier) {
+        var variablesAndValues = variablesAndValuesSupplier.get();
 
-                boolean isVariable = true;
+        if (variablesAndValues != null) {
+            var sb = new StringBuilder("Params of this request:\n");
 
-                for (var v : variablesAndValues) {
-                    sb.append(v != null ? v : "null");
+            boolean isVariable = true;
 
-                    if (isVariable) {
-                        sb.append("=");
-                    } else {
-                        sb.append("\n");
-                    }
+            for (var v : variablesAndValues) {
+                sb.append(v != null ? v : "null");
 
-                    isVariable = !isVariable;
+                if (isVariable) {
+                    sb.append("=");
+                } else {
+                    sb.append("\n");
                 }
 
-                if (!isVariable) {
-                    // This means we had an uneven number of objects in variablesAndValues
-                    logger.warn("Provided uneven number of variables and values. Please contact the developers of this library and tell them that this warning occured in {} while logging params of method {}.", getClass().getName(), methodName);
-                }
+                isVariable = !isVariable;
+            }
 
-                logger.debug(sb.toString());
+            if (!isVariable) {
+                // This means we had an uneven number of objects in variablesAndValues
+                logger.warn("Provided uneven number of variables and values. Please contact the developers of this library and tell them that this warning occured in {} while logging params of method {}.", getClass().getName(), methodName);
             }
+
+            logger.debug(sb.toString());
         }
     }
 
@@ -265,8 +318,8 @@ public abstract class ApiBase<C extends AbstractCredentials> {
     protected void logParamsWithBody(String methodName, Object body, Supplier<Object[]> variablesAndValuesSupplier) {
         logParams(methodName, variablesAndValuesSupplier);
 
-        if (logger.isTraceEnabled()) {
-            logger.trace("Body of this request:\n{}", stringify(body));
+        if (logger.isTraceEnabled() && isRequestSampled()) {
+            runLogTask(() -> logger.trace("Body of this request:\n{}", stringify(body)));
         }
     }
 
@@ -275,16 +328,46 @@ public abstract class ApiBase<C extends AbstractCredentials> {
      * <p>
      * Oowever, if the given result object is an instance of {@link Collection},
      * the size of the collection will be logged in level DEBUG.
+     * <p>
+     * Nothing is logged if the preceding call of
+     * {@link #logParams(String, Supplier)} decided to skip the current request.
      *
      * @param result
      */
     protected void logResult(Object result) {
+        if (!isRequestSampled()) {
+            return;
+        }
+
         if (logger.isDebugEnabled() && result instanceof Collection) {
             logger.debug("Responding with a list of size {}.", ((Collection) result).size());
         }
 
         if (logger.isTraceEnabled()) {
-            logger.trace("Responding with following value:\n{}", stringify(result));
+            runLogTask(() -> logger.trace("Responding with following value:\n{}", stringify(result)));
+        }
+    }
+
+    /**
+     * Returns whether the current request is logged, as decided by the
+     * preceding call of {@link #logParams(String, Supplier)}. Outside of
+     * requests, e.g. on other threads than the one handling the request, this
+     * is always true.
+     *
+     * @return
+     */
+    protected boolean isRequestSampled() {
+        var attributes = RequestContextHolder.getRequestAttributes();
+
+        return attributes == null
+                || !Boolean.FALSE.equals(attributes.getAttribute(REQUEST_SAMPLED_ATTRIBUTE, SCOPE_REQUEST));
+    }
+
+    private void runLogTask(Runnable task) {
+        if (requestLogging != null) {
+            requestLogging.run(task);
+        } else {
+            task.run();
         }
     }
 
@@ -54,7 +54,8 @@ public class AssetsApi extends ApiBase implements IAssetsApi {
                 "assetId", assetId
         ));
 
-        var asset = service.getAssetById(assetId, parseToken(token));
+        var credentials = parseToken(token);
+        var asset = getMetrics().recordServiceCall("getAssetById", () -> service.getAssetById(assetId, credentials));
 
         logResult(asset);
 
@@ -23,15 +23,28 @@
  */
 package de.hsesslingen.keim.efs.middleware.provider;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.hsesslingen.keim.efs.middleware.config.SwaggerAutoConfiguration;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.AbstractCredentials;
+import static de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsUtils.hashToken;
+import de.hsesslingen.keim.efs.middleware.provider.idempotency.IIdempotencyStore;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
 
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import de.hsesslingen.keim.efs.middleware.model.Booking;
 import de.hsesslingen.keim.efs.middleware.model.BookingAction;
@@ -53,13 +66,44 @@ public class BookingApi extends ApiBase implements IBookingApi {
     @Autowired
     private IBookingService service;
 
+    @Autowired(required = false)
+    private IIdempotencyStore idempotencyStore;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Value("${middleware.provider.booking-changes.default-timeout-seconds:30}")
+    private int defaultChangeTimeoutSeconds;
+
+    @Value("${middleware.provider.booking-changes.max-timeout-seconds:60}")
+    private int maxChangeTimeoutSeconds;
+
+    @Value("${middleware.provider.booking-changes.max-waiting:10000}")
+    private int maxWaitingForChanges;
+
+    /**
+     * Only set if the service calls listeners on booking changes.
+     */
+    private BookingChangeFeed changeFeed;
+
+    @PostConstruct
+    private void initChangeFeed() {
+        var feed = new BookingChangeFeed(maxWaitingForChanges);
+        Consumer<Booking> listener = feed::publish;
+
+        if (service.addBookingChangeListener(listener)) {
+            changeFeed = feed;
+        }
+    }
+
     @Override
     public List<Booking> getBookings(BookingState state, String token) {
         logParams("getBookings", () -> array(
                 "state", state
         ));
 
-        var bookings = service.getBookings(state, parseToken(token));
+        var credentials = parseToken(token);
+        var bookings = getMetrics().recordServiceCall("getBookings", () -> service.getBookings(state, credentials));
 
         logResult(bookings);
 
@@ -72,7 +116,8 @@ public class BookingApi extends ApiBase implements IBookingApi {
                 "id", id
         ));
 
-        var result = service.getBookingById(id, parseToken(token));
+        var credentials = parseToken(token);
+        var result = getMetrics().recordServiceCall("getBookingById", () -> service.getBookingById(id, credentials));
 
         logResult(result);
 
@@ -85,19 +130,77 @@ public class BookingApi extends ApiBase implements IBookingApi {
             String optionReference,
             String token
     ) {
+        var idempotencyKey = getIdempotencyKey();
+
         logParamsWithBody("createNewBooking", newBooking, () -> array(
-                "optionReference", optionReference
+                "optionReference", optionReference,
+                "idempotencyKey", idempotencyKey
         ));
 
-        var result = service.createNewBooking(
-                newBooking, optionReference, parseToken(token)
-        );
+        var credentials = parseToken(token);
+        Supplier<Booking> create = () -> getMetrics().recordServiceCall("createNewBooking", () -> service.createNewBooking(
+                newBooking, optionReference, credentials
+        ));
+
+        Booking result;
+
+        if (idempotencyKey == null || idempotencyKey.isEmpty() || idempotencyStore == null) {
+            result = create.get();
+        } else {
+            var key = hashToken(idempotencyScope(token, credentials) + "\n" + idempotencyKey);
+            result = idempotencyStore.getOrCreate(key, hashRequest(newBooking, optionReference), create);
+        }
 
         logResult(result);
 
         return result;
     }
 
+    /**
+     * Reads the {@link #IDEMPOTENCY_KEY_HEADER} header of the current request.
+     * It is not a parameter of {@link #createNewBooking}, so that the method
+     * signature of {@link IBookingApi} stays the same for its implementors and
+     * callers.
+     */
+    private static String getIdempotencyKey() {
+        var attributes = RequestContextHolder.getRequestAttributes();
+
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest().getHeader(IDEMPOTENCY_KEY_HEADER);
+        }
+
+        return null;
+    }
+
+    /**
+     * Keys are chosen by clients, so they are scoped by the user to keep users
+     * apart. The identity of the user stays the same when the token is
+     * refreshed, so it is preferred over the token. Requests without both
+     * share one scope.
+     */
+    @SuppressWarnings("unchecked")
+    private String idempotencyScope(String token, AbstractCredentials credentials) {
+        var user = service.getUserIdentity(credentials);
+
+        if (user != null) {
+            return "user:" + user;
+        }
+
+        return token == null ? "" : "token:" + token;
+    }
+
+    /**
+     * Hashes the parts of a create-booking request, that must be the same
+     * when it is repeated with the same idempotency key.
+     */
+    private String hashRequest(NewBooking newBooking, String optionReference) {
+        try {
+            return hashToken(mapper.writeValueAsString(newBooking) + "\n" + optionReference);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     @Override
     public Booking modifyBooking(
             String id,
@@ -108,9 +211,10 @@ public class BookingApi extends ApiBase implements IBookingApi {
                 "id", id
         ));
 
-        var result = service.modifyBooking(
-                id, booking, parseToken(token)
-        );
+        var credentials = parseToken(token);
+        var result = getMetrics().recordServiceCall("modifyBooking", () -> service.modifyBooking(
+                id, booking, credentials
+        ));
 
         logResult(result);
 
@@ -130,13 +234,59 @@ public class BookingApi extends ApiBase implements IBookingApi {
                 "secret", obfuscateConditional(secret)
         ));
 
-        var result = service.performAction(
-                bookingId, action, secret, parseToken(token)
-        );
+        var credentials = parseToken(token);
+        var result = getMetrics().recordServiceCall("performAction", () -> service.performAction(
+                bookingId, action, secret, credentials
+        ));
 
         logResult(result);
 
         return result;
     }
 
+    @Override
+    public DeferredResult<Booking> awaitBookingChange(
+            String id,
+            BookingState knownState,
+            Integer timeoutSeconds,
+            String token
+    ) {
+        logParams("awaitBookingChange", () -> array(
+                "id", id,
+                "knownState", knownState,
+                "timeoutSeconds", timeoutSeconds
+        ));
+
+        int timeout = timeoutSeconds == null
+                ? defaultChangeTimeoutSeconds
+                : Math.max(0, Math.min(timeoutSeconds, maxChangeTimeoutSeconds));
+
+        var result = new DeferredResult<Booking>(TimeUnit.SECONDS.toMillis(timeout));
+
+        // Registering before getting the booking ensures that no change in between is missed.
+        boolean waiting = changeFeed != null
+                && knownState != null
+                && timeout > 0
+                && changeFeed.register(id, result);
+
+        Booking current;
+
+        try {
+            var credentials = parseToken(token);
+            current = getMetrics().recordServiceCall("awaitBookingChange", () -> service.getBookingById(id, credentials));
+        } catch (RuntimeException ex) {
+            result.setErrorResult(ex);
+            return result;
+        }
+
+        result.onTimeout(() -> result.setResult(current));
+
+        if (!waiting || current == null || current.getState() != knownState) {
+            logResult(current);
+            result.setResult(current);
+        }
+
+        return result;
+    }
+
 }
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Keeps the pending requests of {@link IBookingApi#awaitBookingChange} per
+ * booking id and completes them when a change of that booking is published.
+ * The number of pending requests is bounded.
+ *
+ * @author keim
+ */
+public class BookingChangeFeed {
+
+    private final Map<String, Set<DeferredResult<Booking>>> waiting = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+
+    public BookingChangeFeed(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Registers the given result to be completed with the next change of the
+     * booking with the given id.
+     *
+     * @param bookingId
+     * @param result
+     * @return {@code false} if too many requests are already pending, in which
+     * case nothing is registered.
+     */
+    public boolean register(String bookingId, DeferredResult<Booking> result) {
+        if (size.incrementAndGet() > maxSize) {
+            size.decrementAndGet();
+            return false;
+        }
+
+        result.onCompletion(() -> {
+            waiting.computeIfPresent(bookingId, (id, results) -> {
+                results.remove(result);
+                return results.isEmpty() ? null : results;
+            });
+            size.decrementAndGet();
+        });
+
+        waiting.compute(bookingId, (id, results) -> {
+            if (results == null) {
+                results = ConcurrentHashMap.newKeySet();
+            }
+            results.add(result);
+            return results;
+        });
+
+        return true;
+    }
+
+    /**
+     * Completes all pending requests for the given booking with it.
+     *
+     * @param booking
+     */
+    public void publish(Booking booking) {
+        if (booking == null || booking.getId() == null) {
+            return;
+        }
+
+        var results = waiting.remove(booking.getId());
+
+        if (results != null) {
+            results.forEach(result -> result.setResult(booking));
+        }
+    }
+
+    /**
+     * Returns the number of pending requests.
+     *
+     * @return
+     */
+    public int size() {
+        return size.get();
+    }
+}
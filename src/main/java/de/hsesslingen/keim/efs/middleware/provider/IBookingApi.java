@@ -39,6 +39,8 @@ import de.hsesslingen.keim.efs.middleware.model.BookingAction;
 import de.hsesslingen.keim.efs.middleware.model.NewBooking;
 import de.hsesslingen.keim.efs.middleware.model.Option;
 import static de.hsesslingen.keim.efs.middleware.provider.ITokensApi.TOKEN_DESCRIPTION;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import org.springframework.web.bind.annotation.RequestHeader;
@@ -56,6 +58,7 @@ import static de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequest.TOKEN_
 import de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
 
 /**
  * This API provides endpoints for creating and managing bookings at mobility
@@ -73,6 +76,8 @@ import org.springframework.http.ResponseEntity;
 public interface IBookingApi {
 
     public static final String PATH = "/bookings";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENCY_KEY_DESCRIPTION = "An optional unique key for this booking. Repeating the request with the same key and user returns the booking created before instead of creating a new one. Using the key for a different request is rejected with status 422.";
 
     /**
      * Returns a list of bookings associated with the account that is
@@ -119,6 +124,14 @@ public interface IBookingApi {
 
     /**
      * Creates a new booking and returns it.
+     * <p>
+     * Clients may send a unique key for this booking in the
+     * {@link #IDEMPOTENCY_KEY_HEADER} header. If a booking was already created
+     * with the same key by the same user, that booking is returned instead of
+     * creating a new one. This allows retrying the request safely, e.g. after a
+     * timeout. Using the key for a request with a different booking or option
+     * reference is rejected with status 422. The header is read by
+     * {@link BookingApi} itself, so it is not a parameter of this method.
      *
      * @param newBooking The {@link NewBooking} that should be created.
      * @param optionReference An optional reference to an {@link Option} that
@@ -133,6 +146,9 @@ public interface IBookingApi {
     @PostMapping(PATH)
     @ResponseStatus(HttpStatus.CREATED)
     @ApiOperation(value = "Create a new Booking", notes = "Creates a new Booking for a service-provider in BOOKED or STARTED state using the provided NewBooking object and returns it")
+    @ApiImplicitParams(
+            @ApiImplicitParam(name = IDEMPOTENCY_KEY_HEADER, value = IDEMPOTENCY_KEY_DESCRIPTION, paramType = "header", dataType = "string")
+    )
     public Booking createNewBooking(
             @ApiParam("The booking that should be created.")
             @RequestBody @Validated(OnCreate.class) @Valid @ConsistentBookingDateParams NewBooking newBooking,
@@ -199,6 +215,47 @@ public interface IBookingApi {
             @RequestHeader(name = TOKEN_HEADER, required = false) String token
     );
 
+    /**
+     * Waits until the booking with the given id changes and returns it. This
+     * allows tracking the progress of a booking without polling
+     * {@link #getBookingById(String, String)} repeatedly.
+     * <p>
+     * If the current state of the booking differs from {@code knownState}, it
+     * is returned immediately. Otherwise the request is answered as soon as the
+     * booking changes or after the given timeout, with the booking as it is at
+     * that moment. Consumers can send the next request with the returned state.
+     * <p>
+     * Providers whose {@link IBookingService} does not support
+     * {@link IBookingService#addBookingChangeListener} answer immediately, like
+     * {@link #getBookingById(String, String)}.
+     *
+     * @param id The ID of the booking to wait for.
+     * @param knownState The state of the booking known to the consumer.
+     * @param timeoutSeconds The maximum number of seconds to wait. The provider
+     * may limit this further.
+     * @param token A token that identifies and authenticates a user, sometimes
+     * with a limited duration of validity. See {@link ITokensApi} for more
+     * details on tokens. This value is almost certainly required by all
+     * mobility service providers for querying the {@link IBookingApi}.
+     * @return The {@link Booking} object
+     */
+    @GetMapping(PATH + "/{id}/changes")
+    @ResponseStatus(HttpStatus.OK)
+    @ApiOperation(value = "Wait for a change of a Booking", notes = "Returns the Booking with the given id as soon as its state differs from the known state or it changes, or when the timeout has passed")
+    public DeferredResult<Booking> awaitBookingChange(
+            @ApiParam("The ID of the booking to wait for.")
+            @PathVariable String id,
+            //
+            @ApiParam("The state of the booking known to the consumer. If the current state differs, the booking is returned immediately.")
+            @RequestParam(required = false) BookingState knownState,
+            //
+            @ApiParam("The maximum number of seconds to wait.")
+            @RequestParam(required = false) Integer timeoutSeconds,
+            //
+            @ApiParam(value = TOKEN_DESCRIPTION)
+            @RequestHeader(name = TOKEN_HEADER, required = false) String token
+    );
+
     /**
      * Assembles a request, matching the {@code GET /bookings} endpoint, for the
      * service with the given url using the given token. See
@@ -357,6 +414,50 @@ public interface IBookingApi {
                 .query("optionReference", optionReference);
     }
 
+    /**
+     * Assembles a request, matching the {@code POST /bookings} endpoint, for
+     * the service with the given url using the given token and idempotency
+     * key. See
+     * {@link IBookingApi#createNewBooking(NewBooking, String, String)} and
+     * {@link #IDEMPOTENCY_KEY_HEADER} for JavaDoc on that endpoint.
+     * <p>
+     * The returned request can be sent using {@code request.go()} which will
+     * return a {@link ResponseEntity}. Sending it again, e.g. after a timeout,
+     * does not create another booking.
+     *
+     * @param serviceUrl The base url of the mobility service that should be
+     * queried. Use {@link MobilityService#getServiceUrl()} to get this url.
+     * @param newBooking The {@link NewBooking} that should be created.
+     * @param optionReference An optional reference to an {@link Option} that
+     * unambiguously references this option for booking. This reference is
+     * sometimes given in instances of {@link Option}.
+     * @param token A token that identifies and authenticates a user, sometimes
+     * with a limited duration of validity. See {@link ITokensApi} for more
+     * details on tokens. This value is almost certainly required by all
+     * mobility service providers for querying the {@link IBookingApi}.
+     * @param idempotencyKey A unique key for this booking, e.g. a random UUID.
+     * Use the same key when retrying the request.
+     * @param requestTemplate The template that should be used as foundation for
+     * building the request.
+     * @return
+     */
+    public static MiddlewareRequest<Booking> buildCreateNewBookingRequest(
+            String serviceUrl,
+            NewBooking newBooking,
+            String optionReference,
+            String token,
+            String idempotencyKey,
+            MiddlewareRequestTemplate requestTemplate
+    ) {
+        var request = buildCreateNewBookingRequest(serviceUrl, newBooking, optionReference, token, requestTemplate);
+
+        if (idempotencyKey != null) {
+            request.header(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+
+        return request;
+    }
+
     /**
      * Assembles a request, matching the {@code PUT /bookings/{bookingId}}
      * endpoint, for the service with the given url using the given token. See
@@ -462,4 +563,50 @@ public interface IBookingApi {
         return buildPerformActionRequest(serviceUrl, bookingId, action, token, requestTemplate)
                 .query("secret", secret);
     }
+
+    /**
+     * Assembles a request, matching the {@code GET /bookings/{id}/changes}
+     * endpoint, for the service with the given url using the given token. See
+     * {@link IBookingApi#awaitBookingChange(String, BookingState, Integer, String)}
+     * for JavaDoc on that endpoint.
+     * <p>
+     * The returned request can be sent using {@code request.go()} which will
+     * return a {@link ResponseEntity}. The read timeout of the used request
+     * template must be longer than the given timeout.
+     *
+     * @param serviceUrl The base url of the mobility service that should be
+     * queried. Use {@link MobilityService#getServiceUrl()} to get this url.
+     * @param id The ID of the booking to wait for.
+     * @param knownState The state of the booking known to the consumer.
+     * @param timeoutSeconds The maximum number of seconds to wait.
+     * @param token A token that identifies and authenticates a user, sometimes
+     * with a limited duration of validity. See {@link ITokensApi} for more
+     * details on tokens. This value is almost certainly required by all
+     * mobility service providers for querying the {@link IBookingApi}.
+     * @param requestTemplate The template that should be used as foundation for
+     * building the request.
+     * @return
+     */
+    public static MiddlewareRequest<Booking> buildAwaitBookingChangeRequest(
+            String serviceUrl,
+            String id,
+            BookingState knownState,
+            Integer timeoutSeconds,
+            String token,
+            MiddlewareRequestTemplate requestTemplate
+    ) {
+        var request = requestTemplate
+                .get(serviceUrl + PATH + "/" + id + "/changes")
+                .token(token)
+                .expect(Booking.class);
+
+        if (knownState != null) {
+            request.query("knownState", knownState);
+        }
+        if (timeoutSeconds != null) {
+            request.query("timeoutSeconds", timeoutSeconds);
+        }
+
+        return request;
+    }
 }
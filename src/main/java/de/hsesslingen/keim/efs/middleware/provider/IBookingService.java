@@ -24,6 +24,7 @@
 package de.hsesslingen.keim.efs.middleware.provider;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
@@ -108,4 +109,38 @@ public interface IBookingService<C extends AbstractCredentials> {
             @Nullable String secret,
             @NonNull @Valid C credentials
     );
+
+    /**
+     * Registers a listener that must be called with the current state of a
+     * booking whenever it changes at the provider, e.g. when it is started or
+     * finished. Implementing this method is optional. If it is implemented,
+     * consumers can wait for changes of a booking using
+     * {@link IBookingApi#awaitBookingChange} instead of polling
+     * {@link IBookingApi#getBookingById}.
+     * <p>
+     * The listener can be called from any thread. It must not be called with
+     * bookings that are not stored at the provider.
+     *
+     * @param listener The listener to call with the changed booking.
+     * @return {@code true} if this service calls the listener on changes,
+     * {@code false} if it does not support listeners, which is the default.
+     */
+    public default boolean addBookingChangeListener(Consumer<Booking> listener) {
+        return false;
+    }
+
+    /**
+     * Returns a stable identifier of the user that is represented by the given
+     * credentials, e.g. the user id at the provider. It is used to scope the
+     * idempotency keys of {@link IBookingApi#createNewBooking}, so that a retry
+     * with a refreshed token still finds the booking created before.
+     * Implementing this method is optional.
+     *
+     * @param credentials The credentials of the request, can be {@code null}.
+     * @return The identifier or {@code null} if it is unknown, which is the
+     * default. Idempotency keys are then scoped by the token.
+     */
+    public default String getUserIdentity(@Nullable C credentials) {
+        return null;
+    }
 }
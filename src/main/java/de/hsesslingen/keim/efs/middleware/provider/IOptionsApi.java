@@ -25,6 +25,7 @@ package de.hsesslingen.keim.efs.middleware.provider;
 
 import static de.hsesslingen.keim.efs.middleware.config.SwaggerAutoConfiguration.FLEX_DATETIME_DESC;
 import de.hsesslingen.keim.efs.middleware.model.ICoordinates;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
 import static de.hsesslingen.keim.efs.middleware.model.ICoordinates.isValidAndNotNull;
 import static de.hsesslingen.keim.efs.middleware.model.ICoordinates.toLatLonString;
 import de.hsesslingen.keim.efs.middleware.model.Option;
@@ -119,6 +120,9 @@ public interface IOptionsApi {
      * @param limitTo An optional upper limit of results for the response.
      * @param includeGeoPaths Whether detailed information about the path of
      * legs or about free floating areas should be included, if available.
+     * @param compactGeoPaths Whether the paths of legs should be returned as
+     * encoded polyline in {@link Leg#getCompactGeoPath()} instead of a list of
+     * coordinates. Only relevant if {@link includeGeoPaths} is true.
      * @param token A token that identifies and authenticates a user, sometimes
      * with a limited duration of validity. See {@link ITokensApi} for more
      * details on tokens. Most providers do not require a token for querying
@@ -161,6 +165,9 @@ public interface IOptionsApi {
             @ApiParam("Whether detailed information about the path of legs or about free floating areas should be included.")
             @RequestParam(required = false, defaultValue = "false") Boolean includeGeoPaths,
             //
+            @ApiParam("Whether the paths of legs should be returned as encoded polyline (precision 6) in \"compactGeoPath\" instead of a list of coordinates in \"geoPath\".")
+            @RequestParam(required = false, defaultValue = "false") Boolean compactGeoPaths,
+            //
             @ApiParam(value = TOKEN_DESCRIPTION)
             @RequestHeader(name = TOKEN_HEADER, required = false) String token
     );
@@ -299,6 +306,63 @@ public interface IOptionsApi {
             Boolean includeGeoPaths,
             String token,
             MiddlewareRequestTemplate requestTemplate
+    ) {
+        return buildGetOptionsRequest(
+                serviceUrl, from, fromPlaceId, to, toPlaceId, startTime, endTime,
+                radiusMeter, sharingAllowed, modesAllowed,
+                limitTo, includeGeoPaths, null, token, requestTemplate
+        );
+    }
+
+    /**
+     * Same as
+     * {@link #buildGetOptionsRequest(String, ICoordinates, String, ICoordinates, String, ZonedDateTime, ZonedDateTime, Integer, Boolean, Set, Integer, Boolean, String, MiddlewareRequestTemplate)}
+     * but additionally allows requesting the paths of legs in their compact
+     * form.
+     *
+     * @param serviceUrl The base url of the mobility service that should be
+     * queried. Use {@link MobilityService#getServiceUrl()} to get this url.
+     * @param from The desired starting location (coordinates).
+     * @param fromPlaceId An optional place ID that represents the entity at
+     * position {@link from}.
+     * @param to A desired destination location (coordinates).
+     * @param toPlaceId An optional place ID that represents the entity at
+     * position {@link to}.
+     * @param startTime Optional desired start time of mobility.
+     * @param endTime Optional desired end time of mobility.
+     * @param radiusMeter Maximum distance a user wants to travel to reach the
+     * start point of the mobility option in meters.
+     * @param sharingAllowed Defines if user is ok with sharing his mobility
+     * option with others, potentially unknown people.
+     * @param modesAllowed Allowed modes for legs and potential sub-legs of all
+     * options returned.
+     * @param limitTo An optional upper limit of results for the response.
+     * @param includeGeoPaths Whether detailed information about the path of
+     * legs or about free floating areas should be included, if available.
+     * @param compactGeoPaths Whether the paths of legs should be returned as
+     * encoded polyline in {@link Leg#getCompactGeoPath()} instead of a list of
+     * coordinates.
+     * @param token A token that identifies and authenticates a user.
+     * @param requestTemplate The template that should be used as foundation for
+     * building the request.
+     * @return
+     */
+    public static MiddlewareRequest<List<Option>> buildGetOptionsRequest(
+            String serviceUrl,
+            ICoordinates from,
+            String fromPlaceId,
+            ICoordinates to,
+            String toPlaceId,
+            ZonedDateTime startTime,
+            ZonedDateTime endTime,
+            Integer radiusMeter,
+            Boolean sharingAllowed,
+            Set<Mode> modesAllowed,
+            Integer limitTo,
+            Boolean includeGeoPaths,
+            Boolean compactGeoPaths,
+            String token,
+            MiddlewareRequestTemplate requestTemplate
     ) {
         // Start build the request object...
         var request = requestTemplate
@@ -339,6 +403,9 @@ public interface IOptionsApi {
         if (includeGeoPaths != null) {
             request.query("includeGeoPaths", includeGeoPaths);
         }
+        if (compactGeoPaths != null) {
+            request.query("compactGeoPaths", compactGeoPaths);
+        }
         if (isNotBlank(token)) {
             request.token(token);
         }
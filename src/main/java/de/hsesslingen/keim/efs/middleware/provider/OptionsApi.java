@@ -24,7 +24,7 @@
 package de.hsesslingen.keim.efs.middleware.provider;
 
 import de.hsesslingen.keim.efs.middleware.config.SwaggerAutoConfiguration;
-import static de.hsesslingen.keim.efs.middleware.model.ICoordinates.parseAndValidate;
+import static de.hsesslingen.keim.efs.middleware.validation.ValidatedPositions.parseAndValidate;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +41,7 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import static java.util.Collections.disjoint;
 import java.util.Set;
+import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -79,6 +80,7 @@ public class OptionsApi extends ApiBase implements IOptionsApi {
             Set<Mode> modesAllowed,
             Integer limitTo,
             Boolean includeGeoPaths,
+            Boolean compactGeoPaths,
             String token
     ) {
         logParams("getOptions", () -> array(
@@ -92,7 +94,8 @@ public class OptionsApi extends ApiBase implements IOptionsApi {
                 "sharingAllowed", sharingAllowed,
                 "modesAllowed", stringifyCollection(modesAllowed, m -> m.name()),
                 "limitTo", limitTo,
-                "includeGeoPaths", includeGeoPaths
+                "includeGeoPaths", includeGeoPaths,
+                "compactGeoPaths", compactGeoPaths
         ));
 
         if (returnZeroUponModesMismatch
@@ -105,7 +108,9 @@ public class OptionsApi extends ApiBase implements IOptionsApi {
         }
 
         // Converting input params...
-        var placeFrom = Place.fromCoordinates(from);
+        Place placeFrom = parseAndValidate(from, Place::fromCoordinates, () -> {
+            throw new IllegalArgumentException("Invalid format for position \"" + from + "\".");
+        });
 
         if (fromPlaceId != null && !fromPlaceId.isBlank()) {
             placeFrom.setId(fromPlaceId);
@@ -118,11 +123,19 @@ public class OptionsApi extends ApiBase implements IOptionsApi {
         }
 
         // Getting options from user implemented OptionsService.
-        var result = optionsService.getOptions(
+        var credentials = parseToken(token);
+        List<Option> result = getMetrics().recordServiceCall("getOptions", () -> optionsService.getOptions(
                 placeFrom, placeTo, startTime, endTime, radiusMeter,
                 sharingAllowed, modesAllowed, limitTo, includeGeoPaths,
-                parseToken(token)
-        );
+                credentials
+        ));
+
+        if (Boolean.TRUE.equals(compactGeoPaths) && result != null) {
+            // Copies are compacted, because the service might keep the returned options.
+            result = result.stream()
+                    .map(o -> o != null ? o.withCompactGeoPaths() : null)
+                    .collect(toList());
+        }
 
         logResult(result);
 
@@ -24,7 +24,8 @@
 package de.hsesslingen.keim.efs.middleware.provider;
 
 import de.hsesslingen.keim.efs.middleware.config.SwaggerAutoConfiguration;
-import static de.hsesslingen.keim.efs.middleware.model.ICoordinates.parseAndValidate;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import static de.hsesslingen.keim.efs.middleware.validation.ValidatedPositions.parseAndValidate;
 import de.hsesslingen.keim.efs.middleware.model.Place;
 import io.swagger.annotations.Api;
 import java.util.List;
@@ -62,13 +63,13 @@ public class PlacesApi extends ApiBase implements IPlacesApi {
         ));
 
         // Convert input params...
-        var coordinates = parseAndValidate(areaCenter, () -> null);
+        Coordinates coordinates = parseAndValidate(areaCenter, Coordinates::new, () -> null);
 
         // Delegate search to user implemented PlacesService...
-        var places = service.search(
-                query, coordinates, radiusMeter, limitTo,
-                parseToken(token)
-        );
+        var credentials = parseToken(token);
+        var places = getMetrics().recordServiceCall("searchPlaces", () -> service.search(
+                query, coordinates, radiusMeter, limitTo, credentials
+        ));
 
         logResult(places);
 
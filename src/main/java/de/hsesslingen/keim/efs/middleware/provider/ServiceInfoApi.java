@@ -25,11 +25,14 @@ package de.hsesslingen.keim.efs.middleware.provider;
 
 import de.hsesslingen.keim.efs.middleware.config.SwaggerAutoConfiguration;
 import de.hsesslingen.keim.efs.middleware.provider.config.ProviderProperties;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoad;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoadTracker;
 import de.hsesslingen.keim.efs.mobility.service.MobilityService;
 import io.swagger.annotations.Api;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -47,9 +50,28 @@ public class ServiceInfoApi {
     @Autowired
     private ProviderProperties properties;
 
+    @Autowired(required = false)
+    private ProviderLoadTracker loadTracker;
+
     @GetMapping()
     public MobilityService getServiceInfo() {
         return properties.getMobilityService();
     }
 
+    /**
+     * Gets the current load of this provider. The same signals are attached
+     * to every response of the provider APIs in the
+     * {@link ProviderLoad#HEADER} header.
+     *
+     * @return The load or "404 Not Found" if load tracking is disabled.
+     */
+    @GetMapping("/load")
+    public ResponseEntity<ProviderLoad> getLoad() {
+        if (loadTracker == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(loadTracker.getLoad());
+    }
+
 }
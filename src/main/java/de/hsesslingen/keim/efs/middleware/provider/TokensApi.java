@@ -26,8 +26,10 @@ package de.hsesslingen.keim.efs.middleware.provider;
 
 import de.hsesslingen.keim.efs.middleware.config.SwaggerAutoConfiguration;
 import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenCredentials;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenValidityCache;
 import static de.hsesslingen.keim.efs.mobility.exception.HttpException.internalServerError;
 import io.swagger.annotations.Api;
+import java.time.Instant;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.validation.annotation.Validated;
@@ -46,6 +48,9 @@ public class TokensApi extends ApiBase implements ITokensApi {
     @Autowired
     private ITokensService service;
 
+    @Autowired(required = false)
+    private TokenValidityCache validityCache;
+
     @Override
     public TokenCredentials createToken(String userId, String secret) {
         logParams("createToken", () -> array(
@@ -53,7 +58,7 @@ public class TokensApi extends ApiBase implements ITokensApi {
                 "secret", obfuscateConditional(secret)
         ));
 
-        var token = service.createToken(userId, secret);
+        var token = getMetrics().recordServiceCall("createToken", () -> service.createToken(userId, secret));
 
         //<editor-fold defaultstate="collapsed" desc="Checking output and doing debug-logging.">
         if (token == null) {
@@ -72,6 +77,10 @@ public class TokensApi extends ApiBase implements ITokensApi {
         }
         //</editor-fold>
 
+        if (validityCache != null) {
+            validityCache.putCreated(token);
+        }
+
         return token;
     }
 
@@ -81,7 +90,22 @@ public class TokensApi extends ApiBase implements ITokensApi {
                 "token", obfuscateConditional(token))
         );
 
-        service.deleteToken(token);
+        // Invalidated before, so that concurrent checks can not cache the token as valid anymore, and after
+        // the deletion, so that the invalid entry outlives all checks that started before it completed.
+        invalidateCachedValidity(token);
+
+        getMetrics().recordServiceCall("deleteToken", () -> {
+            service.deleteToken(token);
+            return null;
+        });
+        invalidateCachedCredentials(token);
+        invalidateCachedValidity(token);
+    }
+
+    private void invalidateCachedValidity(String token) {
+        if (validityCache != null) {
+            validityCache.invalidate(token);
+        }
     }
 
     @Override
@@ -90,7 +114,22 @@ public class TokensApi extends ApiBase implements ITokensApi {
                 "token", obfuscateConditional(token))
         );
 
-        var result = service.isTokenValid(token);
+        if (validityCache != null) {
+            var cached = validityCache.get(token);
+
+            if (cached != null) {
+                logger.debug("Using cached validity of token.");
+                logResult(cached);
+                return cached;
+            }
+        }
+
+        var checkedSince = Instant.now();
+        var result = getMetrics().recordServiceCall("isTokenValid", () -> service.isTokenValid(token));
+
+        if (validityCache != null) {
+            validityCache.put(token, result, checkedSince);
+        }
 
         logResult(result);
 
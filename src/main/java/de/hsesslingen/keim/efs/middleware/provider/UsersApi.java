@@ -58,7 +58,8 @@ public class UsersApi extends ApiBase implements IUsersApi {
         );
         //</editor-fold>
 
-        var result = usersService.registerUser(customer, secret, parseToken(superUserToken));
+        var credentials = parseToken(superUserToken);
+        var result = getMetrics().recordServiceCall("registerUser", () -> usersService.registerUser(customer, secret, credentials));
 
         //<editor-fold defaultstate="collapsed" desc="Debug-logging output.">
         logger.debug("Responding with the following result: {}", result);
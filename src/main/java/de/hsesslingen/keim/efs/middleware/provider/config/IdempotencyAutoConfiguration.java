@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.config;
+
+import de.hsesslingen.keim.efs.middleware.provider.IBookingService;
+import de.hsesslingen.keim.efs.middleware.provider.idempotency.IIdempotencyStore;
+import de.hsesslingen.keim.efs.middleware.provider.idempotency.InMemoryIdempotencyStore;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides an {@link InMemoryIdempotencyStore} for the "Idempotency-Key"
+ * header of the booking API, unless the application defines its own
+ * {@link IIdempotencyStore}. Set "middleware.provider.idempotency.enabled" to
+ * false to ignore the header altogether.
+ *
+ * @author keim
+ */
+@Configuration
+@ConditionalOnBean(IBookingService.class)
+@ConditionalOnProperty(name = "middleware.provider.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(IIdempotencyStore.class)
+    public IIdempotencyStore idempotencyStore(
+            @Value("${middleware.provider.idempotency.expiry-seconds:3600}") long expirySeconds,
+            @Value("${middleware.provider.idempotency.max-size:10000}") int maxSize
+    ) {
+        return new InMemoryIdempotencyStore(Duration.ofSeconds(expirySeconds), maxSize);
+    }
+
+}
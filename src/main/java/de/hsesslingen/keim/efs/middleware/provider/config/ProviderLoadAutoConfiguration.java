@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.config;
+
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoad;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoadInterceptor;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoadTracker;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Tracks the load of the provider APIs and advertises it to consumers as
+ * {@link ProviderLoad} on every response. This is opt-in, because the header
+ * reveals the internal load to every client. Set
+ * "middleware.provider.load.enabled" to true to enable it and
+ * "middleware.provider.load.max-in-flight" to additionally reject requests
+ * above a fixed concurrency.
+ *
+ * @author keim
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "middleware.provider.load.enabled", havingValue = "true")
+public class ProviderLoadAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(ProviderLoadTracker.class)
+    public ProviderLoadTracker providerLoadTracker(
+            @Value("${middleware.provider.load.max-in-flight:0}") int maxInFlight,
+            @Value("${middleware.provider.load.window-seconds:60}") long windowSeconds
+    ) {
+        return new ProviderLoadTracker(maxInFlight, Duration.ofSeconds(windowSeconds));
+    }
+
+    @Bean
+    public WebMvcConfigurer providerLoadWebMvcConfigurer(ProviderLoadTracker tracker) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ProviderLoadInterceptor(tracker));
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.config;
+
+import de.hsesslingen.keim.efs.middleware.provider.metrics.IProviderMetrics;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.MicrometerProviderMetrics;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Enables metrics for the provider APIs if Micrometer is on the classpath and
+ * the property "middleware.provider.metrics.enabled" is set to true. The
+ * metrics are registered in the application's {@link MeterRegistry} or, if
+ * there is none, in the global registry of Micrometer.
+ *
+ * @author keim
+ */
+@Configuration
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(name = "middleware.provider.metrics.enabled", havingValue = "true")
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+public class ProviderMetricsAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(IProviderMetrics.class)
+    public IProviderMetrics providerMetrics(
+            ObjectProvider<MeterRegistry> registry,
+            ObjectProvider<ProviderProperties> properties
+    ) {
+        var props = properties.getIfAvailable();
+
+        var serviceId = props != null && props.getMobilityService() != null
+                ? props.getMobilityService().getId()
+                : "unknown";
+
+        return new MicrometerProviderMetrics(
+                registry.getIfAvailable(() -> Metrics.globalRegistry),
+                serviceId
+        );
+    }
+
+    @Bean
+    public WebMvcConfigurer providerMetricsWebMvcConfigurer(IProviderMetrics metrics) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ProviderMetricsInterceptor(metrics));
+            }
+        };
+    }
+}
@@ -23,6 +23,8 @@
  */
 package de.hsesslingen.keim.efs.middleware.provider.config;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.hsesslingen.keim.efs.middleware.provider.AssetsApi;
 import de.hsesslingen.keim.efs.middleware.provider.BookingApi;
 import de.hsesslingen.keim.efs.middleware.provider.TokensApi;
@@ -39,18 +41,32 @@ import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import javax.annotation.PostConstruct;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
 import org.springframework.stereotype.Component;
 
 /**
+ * Registers the mobility service of this provider in the service directory
+ * once the application is ready and keeps the registration up to date: The
+ * service is registered again when it changes and, as a heartbeat, at a
+ * regular interval, so that it reappears after the service directory lost its
+ * registrations.
+ * <p>
+ * If {@code middleware.provider.api.registration.deregister-on-shutdown} is
+ * enabled, the service is deregistered when the application shuts down. This
+ * is disabled by default: Registrations are keyed by the service id, so when
+ * several instances of a provider run, one of them shutting down would remove
+ * the registration of all of them until their next heartbeat.
  *
  * @author keim
  */
@@ -62,6 +78,14 @@ public class ProviderRegistrator {
 
     @Value("${middleware.provider.api.registration.retry-delay:5}")
     private long retryDelay;
+    @Value("${middleware.provider.api.registration.max-retry-delay:300}")
+    private long maxRetryDelay;
+    @Value("${middleware.provider.api.registration.check-interval:30}")
+    private long checkInterval;
+    @Value("${middleware.provider.api.registration.heartbeat-interval:300}")
+    private long heartbeatInterval;
+    @Value("${middleware.provider.api.registration.deregister-on-shutdown:false}")
+    private boolean deregisterOnShutdown;
     @Value("${middleware.provider.api.registration.disabled:false}")
     private boolean registrationDisabled;
     @Value("${middleware.service-directory-url}")
@@ -91,10 +115,21 @@ public class ProviderRegistrator {
     @Autowired
     private MiddlewareRequestTemplate rt;
 
+    @Autowired(required = false)
+    private ObjectMapper mapper = new ObjectMapper();
+
     private ScheduledExecutorService executor;
     private TaskScheduler scheduler;
     private ScheduledFuture future;
 
+    private RegistrationPolicy policy;
+    private boolean stopped;
+
+    @PostConstruct
+    private void initPolicy() {
+        policy = new RegistrationPolicy(retryDelay, maxRetryDelay, checkInterval, heartbeatInterval);
+    }
+
     /**
      * Gets the scheduler used for provider registration. If none is created
      * yet, it will create a new one.
@@ -105,7 +140,11 @@ public class ProviderRegistrator {
         if (scheduler == null) {
             logger.info("Creating task scheduler for provider registration...");
 
-            executor = Executors.newSingleThreadScheduledExecutor();
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "provider-registration");
+                thread.setDaemon(true);
+                return thread;
+            });
             scheduler = new ConcurrentTaskScheduler(executor);
         }
 
@@ -220,23 +259,98 @@ public class ProviderRegistrator {
         checkAndUpdateConfiguredApis();
 
         logger.info("Trying to register my service at the service-directory...");
+        heartbeat();
+    }
 
-        try {
-            register(properties.getMobilityService());
-        } catch (Exception ex) {
-            logger.info("Registration failed. Retrying after {} seconds.", retryDelay);
-            logger.trace("Fail reason:", ex);
+    /**
+     * Registers the mobility service if it was not registered yet, if it
+     * changed since the last registration or if the heartbeat interval passed,
+     * and schedules the next run as decided by the {@link RegistrationPolicy}.
+     */
+    private synchronized void heartbeat() {
+        if (stopped) {
+            return;
+        }
+
+        var service = properties.getMobilityService();
+        var snapshot = snapshot(service);
+        var now = Instant.now();
+
+        boolean changed = policy.isChanged(snapshot);
+        boolean failed = false;
+
+        if (changed || policy.isHeartbeatDue(now)) {
+            try {
+                register(service);
+
+                if (!policy.isRegistered()) {
+                    logger.info("Registration successful.");
+                } else if (changed) {
+                    logger.info("Mobility service changed. Registration updated.");
+                } else {
+                    logger.debug("Registration renewed.");
+                }
+
+                policy.registered(snapshot, now);
+            } catch (Exception ex) {
+                policy.failed();
+                failed = true;
+                logger.trace("Fail reason:", ex);
+            }
+        }
+
+        long nextDelayMillis = policy.nextDelayMillis();
 
-            future = getScheduler().schedule(this::registerInServiceDirectory, Instant.now().plusSeconds(retryDelay));
+        if (failed) {
+            logger.info("Registration failed. Retrying after {} seconds.", MILLISECONDS.toSeconds(nextDelayMillis));
+        }
 
+        if (nextDelayMillis < 0) {
+            // Neither heartbeats nor change checks are wanted, so the first registration suffices.
+            if (scheduler != null) {
+                logger.info("Shutting down registration scheduler...");
+                shutdownScheduler();
+            }
             return;
         }
 
-        if (scheduler != null) {
-            logger.info("Registration successful. Shutting down registration-retry-scheduler...");
-            shutdownScheduler();
-        } else {
-            logger.info("Registration successful.");
+        future = getScheduler().schedule(this::heartbeat, Instant.now().plusMillis(nextDelayMillis));
+    }
+
+    /**
+     * Removes the mobility service from the service directory when the
+     * application shuts down, so that consumers stop sending requests to it.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void deregisterFromServiceDirectory() {
+        stopped = true;
+        shutdownScheduler();
+
+        if (!deregisterOnShutdown || !policy.isRegistered()) {
+            return;
+        }
+
+        try {
+            deregister(properties.getMobilityService());
+            policy.deregistered();
+            logger.info("Deregistered from service-directory.");
+        } catch (Exception ex) {
+            logger.warn("Deregistration from service-directory failed: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Serializes the service to detect changes without relying on its equals
+     * implementation.
+     *
+     * @return The snapshot or {@code null} if the service can not be
+     * serialized, which registers it again on every check.
+     */
+    private String snapshot(MobilityService service) {
+        try {
+            return mapper.writeValueAsString(service);
+        } catch (JsonProcessingException ex) {
+            return null;
         }
     }
 
@@ -244,4 +358,8 @@ public class ProviderRegistrator {
         rt.post(baseUrl + "/services").toInternal().body(service).go();
     }
 
+    private void deregister(MobilityService service) {
+        rt.delete(baseUrl + "/services/" + service.getId()).toInternal().go();
+    }
+
 }
@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.config;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Decides when the {@link ProviderRegistrator} registers the mobility service
+ * in the service directory and when it checks again. It keeps the state of the
+ * last registration and the number of consecutive failures.
+ * <p>
+ * This class is not thread safe. The registrator only uses it while holding
+ * its own lock.
+ *
+ * @author keim
+ */
+public class RegistrationPolicy {
+
+    private final long retryDelay;
+    private final long maxRetryDelay;
+    private final long checkInterval;
+    private final long heartbeatInterval;
+
+    private String registeredSnapshot;
+    private Instant registeredAt;
+    private int failures;
+
+    /**
+     * @param retryDelay The delay before the first retry of a failed
+     * registration in seconds.
+     * @param maxRetryDelay The maximum delay between retries in seconds.
+     * @param checkInterval The interval of checks for changes of the service
+     * in seconds. Values smaller than 1 disable the checks.
+     * @param heartbeatInterval The interval in which the service is registered
+     * again in seconds. Values smaller than 1 disable the heartbeat.
+     */
+    public RegistrationPolicy(long retryDelay, long maxRetryDelay, long checkInterval, long heartbeatInterval) {
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.checkInterval = checkInterval;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /**
+     * Checks whether the service was not registered yet or changed since the
+     * last registration. A service that could not be serialized is always
+     * considered as changed.
+     *
+     * @param snapshot The current snapshot of the service or {@code null}.
+     * @return
+     */
+    public boolean isChanged(String snapshot) {
+        return registeredAt == null || snapshot == null || !snapshot.equals(registeredSnapshot);
+    }
+
+    /**
+     * Checks whether the heartbeat interval passed since the last
+     * registration.
+     *
+     * @param now
+     * @return
+     */
+    public boolean isHeartbeatDue(Instant now) {
+        return heartbeatInterval > 0
+                && registeredAt != null
+                && !now.isBefore(registeredAt.plusSeconds(heartbeatInterval));
+    }
+
+    public boolean isRegistered() {
+        return registeredAt != null;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Records a successful registration of the given snapshot.
+     *
+     * @param snapshot
+     * @param at
+     */
+    public void registered(String snapshot, Instant at) {
+        registeredSnapshot = snapshot;
+        registeredAt = at;
+        failures = 0;
+    }
+
+    /**
+     * Records a failed registration.
+     */
+    public void failed() {
+        ++failures;
+    }
+
+    /**
+     * Records that the service was removed from the service directory.
+     */
+    public void deregistered() {
+        registeredSnapshot = null;
+        registeredAt = null;
+    }
+
+    /**
+     * Returns the delay until the next run of the registrator. After failures
+     * this is the {@link #backoff(int)} delay. Otherwise it is the check
+     * interval or, if checks are disabled, the heartbeat interval, randomly
+     * changed by up to 20%.
+     *
+     * @return The delay in milliseconds or -1 if neither checks nor heartbeats
+     * are wanted, so no further run is needed.
+     */
+    public long nextDelayMillis() {
+        if (failures > 0) {
+            return backoff(failures);
+        }
+
+        // Heartbeats are only sent on checks, so they are also used as checks if checks are disabled.
+        long period = checkInterval > 0 ? checkInterval : heartbeatInterval;
+
+        if (period <= 0) {
+            return -1;
+        }
+
+        return jitter(SECONDS.toMillis(period), 0.2);
+    }
+
+    /**
+     * Returns the delay before the given retry, growing exponentially from
+     * the retry delay up to the maximum retry delay. The delay is randomly
+     * chosen between half of and the full exponential value, so that many
+     * providers do not retry in lockstep while the service directory is
+     * unavailable.
+     *
+     * @param failures The number of consecutive failures.
+     * @return The delay in milliseconds.
+     */
+    public long backoff(int failures) {
+        long base = SECONDS.toMillis(Math.max(1, retryDelay));
+        long max = Math.max(base, SECONDS.toMillis(maxRetryDelay));
+        long delay = base << Math.min(failures - 1, 30);
+
+        if (delay <= 0 || delay > max) {
+            delay = max;
+        }
+
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Returns the given delay, randomly changed by up to the given ratio.
+     *
+     * @param delay
+     * @param ratio
+     * @return
+     */
+    public static long jitter(long delay, double ratio) {
+        return Math.round(delay * (1 + ratio * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.config;
+
+import de.hsesslingen.keim.efs.middleware.utils.LogSampler;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the state needed for sampled request logging that is shared between
+ * all provider APIs: One {@link LogSampler} per endpoint and, if enabled, the
+ * executor used for formatting log output asynchronously.
+ *
+ * @author keim
+ */
+@Component
+public class RequestLogging {
+
+    private final RequestLoggingProperties properties;
+    private final Map<String, LogSampler> samplers = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public RequestLogging(RequestLoggingProperties properties) {
+        this.properties = properties;
+
+        if (properties.isAsync()) {
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(Math.max(properties.getAsyncQueueSize(), 1)),
+                    r -> {
+                        var t = new Thread(r, "middleware-request-logging");
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.DiscardPolicy()
+            );
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns whether the current request to the given endpoint should be
+     * logged.
+     *
+     * @param endpoint
+     * @return
+     */
+    public boolean sample(String endpoint) {
+        return samplers.computeIfAbsent(endpoint, this::createSampler).sample();
+    }
+
+    /**
+     * Runs the given log task either on the logging thread, if asynchronous
+     * logging is enabled, or directly on the current thread. If the queue of
+     * the logging thread is full, the task is dropped.
+     *
+     * @param task
+     */
+    public void run(Runnable task) {
+        if (executor != null) {
+            executor.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    public int getMaxPayloadLength() {
+        return properties.getMaxPayloadLength();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private LogSampler createSampler(String endpoint) {
+        var sampleRate = properties.getEndpointSampleRates()
+                .getOrDefault(endpoint, properties.getSampleRate());
+
+        return new LogSampler(sampleRate, properties.getMaxPerSecond());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Controls how much of the incoming requests and outgoing responses is logged
+ * by the provider APIs.
+ *
+ * @author keim
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "middleware.logging.requests")
+public class RequestLoggingProperties {
+
+    /**
+     * Only every n-th request of an endpoint is logged. Defaults to 1, which
+     * logs every request.
+     */
+    private int sampleRate = 1;
+
+    /**
+     * Overrides {@link #sampleRate} for single endpoints. The keys are the
+     * method names used for logging, e.g. "getOptions".
+     */
+    private Map<String, Integer> endpointSampleRates = new HashMap<>();
+
+    /**
+     * The maximum number of requests per endpoint and second that are logged.
+     * Values smaller than 1 disable the limit, which is the default.
+     */
+    private int maxPerSecond = 0;
+
+    /**
+     * If true, params and results are formatted on a background thread instead
+     * of the request thread. The logged objects are then read after they have
+     * been handed over to the service implementation, so only enable this if
+     * those do not modify their params and results afterwards.
+     */
+    private boolean async = false;
+
+    /**
+     * The maximum number of pending log tasks if {@link #async} is enabled.
+     * Tasks exceeding this number are dropped.
+     */
+    private int asyncQueueSize = 1000;
+
+    /**
+     * The maximum number of chars of serialized request bodies and responses
+     * that are logged. Values smaller than 1 disable the limit.
+     */
+    private int maxPayloadLength = 10000;
+
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.credentials;
+
+import de.hsesslingen.keim.efs.middleware.utils.Cache;
+import static de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsUtils.hashToken;
+import java.time.Duration;
+import java.time.Instant;
+import org.slf4j.Logger;
+import static org.slf4j.LoggerFactory.getLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches credentials objects that were parsed from tokens, so that the same
+ * token does not have to be deserialized again on every request of a session.
+ * Entries are keyed by a hash of the raw token, are bounded in number and
+ * expire after a configurable duration or at the moment given in
+ * {@link TokenCredentials#getValidUntil()}, whichever comes first.
+ * <p>
+ * This cache is opt-in. Set {@code middleware.provider.credentials-cache.enabled}
+ * to true to activate it. Only activate it if parsing a token yields the same
+ * credentials object for the whole lifetime of the token and if your services
+ * do not modify the credentials objects they receive.
+ *
+ * @author keim
+ */
+@Component
+@ConditionalOnProperty(name = "middleware.provider.credentials-cache.enabled", havingValue = "true")
+public class CredentialsCache {
+
+    private static final Logger logger = getLogger(CredentialsCache.class);
+
+    private final Cache<String, AbstractCredentials> cache;
+
+    public CredentialsCache(
+            @Value("${middleware.provider.credentials-cache.expiry-seconds:300}") long expirySeconds,
+            @Value("${middleware.provider.credentials-cache.max-size:10000}") int maxSize
+    ) {
+        logger.debug("Instantiating CredentialsCache with expiry of {} seconds and max size of {}.", expirySeconds, maxSize);
+        this.cache = new Cache<>(Duration.ofSeconds(expirySeconds), maxSize);
+    }
+
+    /**
+     * Returns the cached credentials for the given token or {@code null} if
+     * there are none.
+     *
+     * @param token
+     * @return
+     */
+    public AbstractCredentials get(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        return cache.get(hashToken(token)).orElse(null);
+    }
+
+    /**
+     * Caches the credentials that were parsed from the given token. Nothing is
+     * cached if either of both is {@code null} or if the credentials are
+     * {@link TokenCredentials} that are already expired.
+     *
+     * @param token
+     * @param credentials
+     */
+    public void put(String token, AbstractCredentials credentials) {
+        if (token == null || token.isEmpty() || credentials == null) {
+            return;
+        }
+
+        Instant validUntil = null;
+
+        if (credentials instanceof TokenCredentials) {
+            var zonedValidUntil = ((TokenCredentials) credentials).getValidUntil();
+
+            if (zonedValidUntil != null) {
+                validUntil = zonedValidUntil.toInstant();
+
+                if (!validUntil.isAfter(Instant.now())) {
+                    return;
+                }
+            }
+        }
+
+        cache.set(hashToken(token), credentials, validUntil);
+    }
+
+    /**
+     * Removes the credentials of the given token from the cache.
+     *
+     * @param token
+     */
+    public void invalidate(String token) {
+        if (token != null) {
+            cache.remove(hashToken(token));
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.credentials;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.function.Function;
+
+/**
+ * Formats the field values of credentials objects for debug logging. The
+ * fields of each credentials class are looked up only once and read using
+ * cached {@link MethodHandle}s afterwards, so formatting a credentials object
+ * does not need any reflection.
+ *
+ * @author keim
+ */
+public final class CredentialsDebugFormatter {
+
+    private static final String PREFIX = "Parsed credentials with following values: ";
+    private static final String NO_VALUES = PREFIX + "(no values parsed)";
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<FieldAccessor[]> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected FieldAccessor[] computeValue(Class<?> type) {
+            return createAccessors(type);
+        }
+    };
+
+    private CredentialsDebugFormatter() {
+    }
+
+    /**
+     * Formats the declared fields of the given credentials object as
+     * comma-separated name=value pairs. Each value is passed through the given
+     * mapper before it is appended, which allows obfuscating the values.
+     *
+     * @param creds
+     * @param valueMapper
+     * @return
+     */
+    public static String format(AbstractCredentials creds, Function<Object, Object> valueMapper) {
+        var accessors = ACCESSORS.get(creds.getClass());
+
+        if (accessors.length == 0) {
+            return NO_VALUES;
+        }
+
+        var sb = new StringBuilder(PREFIX.length() + accessors.length * 24);
+        sb.append(PREFIX);
+
+        for (int i = 0; i < accessors.length; ++i) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+
+            accessors[i].appendTo(sb, creds, valueMapper);
+        }
+
+        return sb.toString();
+    }
+
+    private static FieldAccessor[] createAccessors(Class<?> type) {
+        var accessors = new ArrayList<FieldAccessor>();
+        MethodHandles.Lookup lookup;
+
+        try {
+            lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException ex) {
+            lookup = null;
+        }
+
+        for (var field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                continue;
+            }
+
+            MethodHandle getter = null;
+
+            if (lookup != null) {
+                try {
+                    getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                } catch (IllegalAccessException ex) {
+                    // Remains null and is rendered as such.
+                }
+            }
+
+            accessors.add(new FieldAccessor(field.getName(), getter));
+        }
+
+        return accessors.toArray(new FieldAccessor[0]);
+    }
+
+    /**
+     * Reads a single field using a method handle and appends it as name=value.
+     */
+    private static class FieldAccessor {
+
+        private final String namePrefix;
+        private final MethodHandle getter;
+
+        FieldAccessor(String name, MethodHandle getter) {
+            this.namePrefix = name + "=";
+            this.getter = getter;
+        }
+
+        void appendTo(StringBuilder sb, Object creds, Function<Object, Object> valueMapper) {
+            if (getter == null) {
+                sb.append(namePrefix, 0, namePrefix.length() - 1).append("->IllegalAccessException");
+                return;
+            }
+
+            Object value;
+
+            try {
+                value = (Object) getter.invokeExact(creds);
+            } catch (Throwable ex) {
+                sb.append(namePrefix, 0, namePrefix.length() - 1).append("->").append(ex.getClass().getSimpleName());
+                return;
+            }
+
+            sb.append(namePrefix).append(valueMapper.apply(value));
+        }
+    }
+
+}
@@ -26,6 +26,10 @@ package de.hsesslingen.keim.efs.middleware.provider.credentials;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -152,4 +156,26 @@ public class CredentialsUtils {
         return null;
     }
 
+    /**
+     * Computes a SHA-256 hash of the given token. The result can be used as key
+     * for caching values associated with a token without keeping the raw
+     * token in memory.
+     *
+     * @param token The raw token value.
+     * @return The Base64 encoded hash or null if the token is null.
+     */
+    public static String hashToken(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            // Every JVM is required to support SHA-256.
+            throw new IllegalStateException(ex);
+        }
+    }
+
 }
@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.credentials;
+
+import de.hsesslingen.keim.efs.middleware.utils.Cache;
+import static de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsUtils.hashToken;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import org.slf4j.Logger;
+import static org.slf4j.LoggerFactory.getLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the results of token validity checks, so that frequent checks of the
+ * same token do not each cause a call of the tokens service. Entries are keyed
+ * by a hash of the raw token and are bounded in number. Valid tokens are
+ * cached for a short duration, but never beyond their
+ * {@link TokenCredentials#getValidUntil()}, if that is known from creating the
+ * token. Invalid tokens are cached for an even shorter duration.
+ * <p>
+ * This cache is opt-in. Set
+ * {@code middleware.provider.token-validity-cache.enabled} to true to activate
+ * it. Only activate it if your tokens service can tolerate that a token which
+ * got invalid at the operator is reported as valid for a few more seconds.
+ * <p>
+ * Tokens deleted via the tokens API are cached as invalid immediately, for as
+ * long as valid tokens are cached. A check that started before the deletion
+ * can not cache the token as valid again: Valid results never replace cached
+ * invalid ones, and results of checks that started longer ago than valid
+ * tokens are cached are not cached at all.
+ *
+ * @author keim
+ */
+@Component
+@ConditionalOnProperty(name = "middleware.provider.token-validity-cache.enabled", havingValue = "true")
+public class TokenValidityCache {
+
+    private static final Logger logger = getLogger(TokenValidityCache.class);
+
+    private final Cache<String, Boolean> cache;
+    private final Duration validDuration;
+    private final Duration invalidDuration;
+
+    public TokenValidityCache(
+            @Value("${middleware.provider.token-validity-cache.valid-seconds:30}") long validSeconds,
+            @Value("${middleware.provider.token-validity-cache.invalid-seconds:5}") long invalidSeconds,
+            @Value("${middleware.provider.token-validity-cache.max-size:10000}") int maxSize
+    ) {
+        logger.debug("Instantiating TokenValidityCache with {} seconds for valid and {} seconds for invalid tokens and max size of {}.", validSeconds, invalidSeconds, maxSize);
+        this.cache = new Cache<>(null, maxSize);
+        this.validDuration = Duration.ofSeconds(validSeconds);
+        this.invalidDuration = Duration.ofSeconds(invalidSeconds);
+    }
+
+    /**
+     * Returns the cached validity of the given token or {@code null} if it is
+     * unknown.
+     *
+     * @param token
+     * @return
+     */
+    public Boolean get(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        return cache.get(hashToken(token)).orElse(null);
+    }
+
+    /**
+     * Caches the result of a validity check of the given token that was just
+     * started.
+     *
+     * @param token
+     * @param valid
+     */
+    public void put(String token, boolean valid) {
+        put(token, valid, Instant.now());
+    }
+
+    /**
+     * Caches the result of a validity check of the given token. A valid result
+     * does not replace a cached invalid one, e.g. of a token that was deleted
+     * while it was checked.
+     *
+     * @param token
+     * @param valid
+     * @param checkedSince The moment the check was started.
+     */
+    public synchronized void put(String token, boolean valid, Instant checkedSince) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+
+        var now = Instant.now();
+        var key = hashToken(token);
+
+        if (valid) {
+            if (!checkedSince.plus(validDuration).isAfter(now) || Boolean.FALSE.equals(cache.get(key).orElse(null))) {
+                return;
+            }
+
+            cache.set(key, true, now.plus(validDuration));
+        } else {
+            cache.set(key, false, now.plus(invalidDuration));
+        }
+    }
+
+    /**
+     * Caches the given token as valid, because it was just created. If the
+     * moment until the token is valid is known, it is not considered valid
+     * beyond that moment.
+     *
+     * @param credentials
+     */
+    public void putCreated(TokenCredentials credentials) {
+        if (credentials == null || credentials.getToken() == null || credentials.getToken().isEmpty()) {
+            return;
+        }
+
+        var expiresAt = Instant.now().plus(validDuration);
+        ZonedDateTime validUntil = credentials.getValidUntil();
+
+        if (validUntil != null) {
+            if (!validUntil.toInstant().isAfter(Instant.now())) {
+                return;
+            }
+            if (validUntil.toInstant().isBefore(expiresAt)) {
+                expiresAt = validUntil.toInstant();
+            }
+        }
+
+        cache.set(hashToken(credentials.getToken()), true, expiresAt);
+    }
+
+    /**
+     * Caches the given token as invalid, because it was deleted. The entry is
+     * kept as long as valid tokens are cached, so that checks which started
+     * before can not cache the token as valid again.
+     *
+     * @param token
+     */
+    public synchronized void invalidate(String token) {
+        if (token != null && !token.isEmpty()) {
+            cache.set(hashToken(token), false, Instant.now().plus(validDuration));
+        }
+    }
+
+}
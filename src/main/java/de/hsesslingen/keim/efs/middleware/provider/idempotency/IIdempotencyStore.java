@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.idempotency;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import java.util.function.Supplier;
+
+/**
+ * Stores the results of requests that carry an idempotency key, so that a
+ * repeated request with the same key returns the stored result instead of
+ * performing the action again. This allows consumers to retry requests like
+ * creating a booking after a timeout, without risking duplicates.
+ * <p>
+ * The default implementation is {@link InMemoryIdempotencyStore}. Provide a
+ * bean of this interface to replace it, e.g. with a store that is shared by
+ * several instances of a provider.
+ *
+ * @author keim
+ */
+public interface IIdempotencyStore {
+
+    /**
+     * Returns the stored result for the given key or, if there is none,
+     * creates it using the given function and stores it along with the hash of
+     * the request. If a creation for the same key is already in progress, this
+     * method waits for it and returns its result instead of calling the
+     * function again.
+     * <p>
+     * If the key was used for a request with a different hash, implementations
+     * must throw an {@link IdempotencyKeyReusedException}. They must not store
+     * anything if the function throws an exception, so that the request can be
+     * retried.
+     *
+     * @param key The idempotency key, already scoped to the calling user.
+     * @param requestHash A hash of the request, which must be the same for
+     * all repetitions of the request.
+     * @param create The function that actually creates the booking.
+     * @return
+     */
+    public Booking getOrCreate(String key, String requestHash, Supplier<Booking> create);
+
+}
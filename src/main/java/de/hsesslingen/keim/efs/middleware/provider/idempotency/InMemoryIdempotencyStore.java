@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.idempotency;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.utils.Cache;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * An {@link IIdempotencyStore} that keeps the results in memory. The number
+ * of results is bounded and they expire after a configurable duration.
+ * Results are lost on restart and are not shared between several instances of
+ * a provider. Each result is kept with the hash of the request that created it.
+ *
+ * @author keim
+ */
+public class InMemoryIdempotencyStore implements IIdempotencyStore {
+
+    private final Cache<String, Result> results;
+    private final Map<String, Result> inProgress = new ConcurrentHashMap<>();
+
+    public InMemoryIdempotencyStore(Duration expiryDuration, int maxSize) {
+        this.results = new Cache<>(expiryDuration, maxSize);
+    }
+
+    @Override
+    public Booking getOrCreate(String key, String requestHash, Supplier<Booking> create) {
+        var stored = results.get(key);
+        if (stored.isPresent()) {
+            return stored.get().of(requestHash).join();
+        }
+
+        var result = new Result(requestHash, new CompletableFuture<>());
+        var running = inProgress.putIfAbsent(key, result);
+
+        if (running != null) {
+            return await(running.of(requestHash));
+        }
+
+        var future = result.booking;
+
+        try {
+            // The previous creation may have finished in the meantime.
+            stored = results.get(key);
+            if (stored.isPresent()) {
+                var booking = stored.get().of(requestHash).join();
+                future.complete(booking);
+                return booking;
+            }
+
+            var booking = create.get();
+            future.complete(booking);
+
+            if (booking != null) {
+                results.set(key, result);
+            }
+
+            return booking;
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inProgress.remove(key, result);
+        }
+    }
+
+    /**
+     * Returns the number of stored results.
+     *
+     * @return
+     */
+    public int size() {
+        return results.size();
+    }
+
+    private static class Result {
+
+        private final String requestHash;
+        private final CompletableFuture<Booking> booking;
+
+        Result(String requestHash, CompletableFuture<Booking> booking) {
+            this.requestHash = requestHash;
+            this.booking = booking;
+        }
+
+        /**
+         * Returns the booking, if it was created for a request with the given
+         * hash.
+         */
+        CompletableFuture<Booking> of(String requestHash) {
+            if (!Objects.equals(this.requestHash, requestHash)) {
+                throw new IdempotencyKeyReusedException();
+            }
+
+            return booking;
+        }
+    }
+
+    private static Booking await(CompletableFuture<Booking> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * Records metrics about the requests handled by the provider APIs and about
+ * the calls into the user implemented services (e.g. {@code IOptionsService}).
+ * Comparing both allows telling apart the time spent in the middleware (HTTP
+ * handling, JSON mapping) from the time spent in the service implementation.
+ * <p>
+ * An implementation is only available as a bean if metrics are enabled. See
+ * {@link de.hsesslingen.keim.efs.middleware.provider.config.ProviderMetricsAutoConfiguration}.
+ *
+ * @author keim
+ */
+public interface IProviderMetrics {
+
+    /**
+     * Records nothing and simply calls the services.
+     */
+    public static final IProviderMetrics NONE = new IProviderMetrics() {
+        @Override
+        public <T> T recordServiceCall(String endpoint, Supplier<T> call) {
+            return call.get();
+        }
+
+        @Override
+        public void recordRequest(String endpoint, int status, long durationNanos, Throwable error) {
+        }
+    };
+
+    /**
+     * Calls the given service method and records its duration, the size of its
+     * result (if it is a collection) and whether it threw an exception. The
+     * result is returned and exceptions are rethrown as they are.
+     *
+     * @param <T>
+     * @param endpoint The name of the provider API method, e.g. "getOptions".
+     * @param call
+     * @return
+     */
+    public <T> T recordServiceCall(String endpoint, Supplier<T> call);
+
+    /**
+     * Records a completely handled request of a provider API endpoint.
+     *
+     * @param endpoint The name of the provider API method, e.g. "getOptions".
+     * @param status The HTTP status of the response.
+     * @param durationNanos The time it took to handle the request.
+     * @param error The exception that occured while handling the request or
+     * {@code null}.
+     */
+    public void recordRequest(String endpoint, int status, long durationNanos, Throwable error);
+
+}
@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of {@link IProviderMetrics} that exports to a Micrometer
+ * {@link MeterRegistry}. All meters are tagged with the id of the mobility
+ * service and the endpoint. The following meters are recorded:
+ * <ul>
+ * <li>{@code middleware.provider.requests}: Timer for the complete handling
+ * of a request, additionally tagged with status and exception.</li>
+ * <li>{@code middleware.provider.service.calls}: Timer for the calls of the
+ * user implemented services, additionally tagged with the outcome.</li>
+ * <li>{@code middleware.provider.service.errors}: Counter for exceptions
+ * thrown by the services, additionally tagged with the exception.</li>
+ * <li>{@code middleware.provider.result.size}: Distribution of the sizes of
+ * collections returned by the services.</li>
+ * </ul>
+ *
+ * @author keim
+ */
+public class MicrometerProviderMetrics implements IProviderMetrics {
+
+    private static final String NONE = "None";
+    private static final int MAX_STATUS = 600;
+
+    private final MeterRegistry registry;
+    private final String serviceId;
+    private final Map<String, EndpointMeters> endpoints = new ConcurrentHashMap<>();
+
+    public MicrometerProviderMetrics(MeterRegistry registry, String serviceId) {
+        this.registry = registry;
+        this.serviceId = serviceId;
+    }
+
+    @Override
+    public <T> T recordServiceCall(String endpoint, Supplier<T> call) {
+        var meters = meters(endpoint);
+        var start = System.nanoTime();
+        var outcome = "success";
+
+        try {
+            var result = call.get();
+
+            if (result instanceof Collection) {
+                meters.resultSize().record(((Collection<?>) result).size());
+            }
+
+            return result;
+        } catch (RuntimeException | Error ex) {
+            outcome = "error";
+            meters.errors(ex).increment();
+            throw ex;
+        } finally {
+            meters.serviceTimer(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordRequest(String endpoint, int status, long durationNanos, Throwable error) {
+        meters(endpoint)
+                .requestTimer(status, error != null ? error.getClass() : null)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private EndpointMeters meters(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, EndpointMeters::new);
+    }
+
+    /**
+     * The meters of a single endpoint. Meters are registered on first use and
+     * cached afterwards, so that recording does not need to look them up in
+     * the registry.
+     */
+    private class EndpointMeters {
+
+        private final String endpoint;
+        private final Map<String, Timer> serviceTimers = new ConcurrentHashMap<>();
+        private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+        // Request timers by exception type, each indexed by status code.
+        private final Map<Class<?>, AtomicReferenceArray<Timer>> requestTimers = new ConcurrentHashMap<>();
+        private volatile DistributionSummary resultSize;
+
+        EndpointMeters(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        Timer requestTimer(int status, Class<?> errorType) {
+            // Void stands for "no exception", because the map does not allow null keys.
+            var byStatus = requestTimers.computeIfAbsent(
+                    errorType != null ? errorType : Void.class,
+                    t -> new AtomicReferenceArray<>(MAX_STATUS)
+            );
+
+            if (status < 0 || status >= MAX_STATUS) {
+                return registerRequestTimer(status, errorType);
+            }
+
+            var timer = byStatus.get(status);
+
+            if (timer == null) {
+                timer = registerRequestTimer(status, errorType);
+                byStatus.set(status, timer);
+            }
+
+            return timer;
+        }
+
+        private Timer registerRequestTimer(int status, Class<?> errorType) {
+            return Timer.builder("middleware.provider.requests")
+                    .description("Duration of handling requests of provider API endpoints.")
+                    .tags("service", serviceId, "endpoint", endpoint)
+                    .tag("status", Integer.toString(status))
+                    .tag("exception", errorType != null ? errorType.getSimpleName() : NONE)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        Timer serviceTimer(String outcome) {
+            return serviceTimers.computeIfAbsent(outcome, o -> Timer.builder("middleware.provider.service.calls")
+                    .description("Duration of calls into the service implementations.")
+                    .tags("service", serviceId, "endpoint", endpoint, "outcome", o)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+
+        Counter errors(Throwable error) {
+            return errors.computeIfAbsent(error.getClass(), t -> Counter.builder("middleware.provider.service.errors")
+                    .description("Number of exceptions thrown by the service implementations.")
+                    .tags("service", serviceId, "endpoint", endpoint)
+                    .tag("exception", t.getSimpleName())
+                    .register(registry));
+        }
+
+        DistributionSummary resultSize() {
+            var summary = resultSize;
+
+            if (summary == null) {
+                // Registering twice is harmless, the registry returns the same meter.
+                summary = DistributionSummary.builder("middleware.provider.result.size")
+                        .description("Number of elements returned by the service implementations.")
+                        .tags("service", serviceId, "endpoint", endpoint)
+                        .publishPercentileHistogram()
+                        .register(registry);
+                resultSize = summary;
+            }
+
+            return summary;
+        }
+    }
+}
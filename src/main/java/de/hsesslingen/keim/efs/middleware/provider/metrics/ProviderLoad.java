@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.metrics;
+
+import java.util.Locale;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lightweight load signals of a provider. Providers attach them to every
+ * response of their APIs in the {@link #HEADER} header, so that consumers can
+ * prefer idle providers and spare saturated ones.
+ *
+ * @author keim
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProviderLoad {
+
+    public static final String HEADER = "X-Provider-Load";
+
+    /**
+     * The number of requests the provider is currently processing, not
+     * counting the request that this load is sent with.
+     */
+    private int inFlight;
+
+    /**
+     * The number of requests the provider processes at most at the same time
+     * before it rejects further ones. Zero if there is no limit.
+     */
+    private int maxInFlight;
+
+    /**
+     * The 95th percentile of the response times of recent requests in
+     * milliseconds.
+     */
+    private long p95LatencyMillis;
+
+    /**
+     * The share of recent requests that were rejected because the provider or
+     * its backend was overloaded.
+     */
+    private double shedRate;
+
+    /**
+     * Checks whether the provider currently rejects a considerable share of
+     * requests or runs at its capacity.
+     *
+     * @param maxShedRate The shed rate from which on a provider is regarded
+     * saturated.
+     * @return
+     */
+    public boolean isSaturated(double maxShedRate) {
+        return shedRate >= maxShedRate || (maxInFlight > 0 && inFlight >= maxInFlight);
+    }
+
+    /**
+     * Formats these signals as value of the {@link #HEADER} header.
+     *
+     * @return
+     */
+    public String toHeaderValue() {
+        return String.format(Locale.ROOT, "inFlight=%d;maxInFlight=%d;p95=%d;shedRate=%.3f",
+                inFlight, maxInFlight, p95LatencyMillis, shedRate);
+    }
+
+    /**
+     * Parses the value of a {@link #HEADER} header. Unknown entries are
+     * ignored to allow adding more signals later on.
+     *
+     * @param value
+     * @return The parsed signals or {@code null} if the value is missing or
+     * malformed.
+     */
+    public static ProviderLoad parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        var load = new ProviderLoad();
+
+        try {
+            for (var entry : value.split(";")) {
+                int eq = entry.indexOf('=');
+
+                if (eq < 0) {
+                    continue;
+                }
+
+                var key = entry.substring(0, eq).trim();
+                var val = entry.substring(eq + 1).trim();
+
+                switch (key) {
+                    case "inFlight":
+                        load.inFlight = Integer.parseInt(val);
+                        break;
+                    case "maxInFlight":
+                        load.maxInFlight = Integer.parseInt(val);
+                        break;
+                    case "p95":
+                        load.p95LatencyMillis = Long.parseLong(val);
+                        break;
+                    case "shedRate":
+                        load.shedRate = Double.parseDouble(val);
+                        break;
+                }
+            }
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+
+        return load;
+    }
+
+}
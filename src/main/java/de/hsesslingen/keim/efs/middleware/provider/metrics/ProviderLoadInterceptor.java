@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.metrics;
+
+import static de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderMetricsInterceptor.isProviderApi;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Tracks the requests to the provider APIs in a {@link ProviderLoadTracker}
+ * and adds the current {@link ProviderLoad} to every response. The load on
+ * responses to accepted requests does not count the request itself as in
+ * flight. Requests that exceed the maximum number of requests in flight are
+ * rejected with "503 Service Unavailable". Asynchronously processed requests,
+ * like long-polls, are not tracked once they wait for their result.
+ *
+ * @author keim
+ */
+public class ProviderLoadInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ProviderLoadInterceptor.class.getName() + ".start";
+
+    private final ProviderLoadTracker tracker;
+
+    public ProviderLoadInterceptor(ProviderLoadTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isProviderApi(handler) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        if (!tracker.tryStart()) {
+            tracker.recordShed();
+            response.setHeader(ProviderLoad.HEADER, tracker.getLoad().toHeaderValue());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return false;
+        }
+
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        response.setHeader(ProviderLoad.HEADER, tracker.getLoadExcluding(1).toHeaderValue());
+
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) != null) {
+            request.removeAttribute(START_ATTRIBUTE);
+            tracker.abandon();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        var start = request.getAttribute(START_ATTRIBUTE);
+
+        if (start instanceof Long) {
+            request.removeAttribute(START_ATTRIBUTE);
+
+            int status = response.getStatus();
+            boolean shed = status == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || status == HttpStatus.SERVICE_UNAVAILABLE.value();
+
+            tracker.finish(System.nanoTime() - (Long) start, shed);
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks the load of the provider APIs and summarizes it as
+ * {@link ProviderLoad}. The response times of the most recent requests are
+ * kept in a fixed size ring buffer, so tracking a request does not allocate
+ * and the summary only covers the given time window.
+ * <p>
+ * If a maximum number of requests in flight is set, further requests are
+ * expected to be rejected. Rejected requests count as shed, as well as
+ * requests that were answered with "429 Too Many Requests" or "503 Service
+ * Unavailable".
+ *
+ * @author keim
+ */
+public class ProviderLoadTracker {
+
+    private static final int SAMPLES = 1024;
+    private static final long SHED = -1;
+    private static final long SUMMARY_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final int maxInFlight;
+    private final long windowNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLongArray times = new AtomicLongArray(SAMPLES);
+    private final AtomicLongArray durations = new AtomicLongArray(SAMPLES);
+
+    private volatile ProviderLoad summary;
+    private volatile long summarizedAt;
+
+    /**
+     * @param maxInFlight The maximum number of requests in flight or zero for
+     * no limit.
+     * @param window The time window of recent requests that make up the
+     * latency and shed rate.
+     */
+    public ProviderLoadTracker(int maxInFlight, Duration window) {
+        this.maxInFlight = Math.max(0, maxInFlight);
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Counts a request as in flight, unless the maximum number of requests in
+     * flight is reached.
+     *
+     * @return Whether the request may be processed.
+     */
+    public boolean tryStart() {
+        if (maxInFlight == 0) {
+            inFlight.incrementAndGet();
+            return true;
+        }
+
+        int current;
+        do {
+            current = inFlight.get();
+
+            if (current >= maxInFlight) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+    /**
+     * Records the completion of a request started with {@link #tryStart()}.
+     *
+     * @param durationNanos
+     * @param shed Whether the request was rejected due to overload.
+     */
+    public void finish(long durationNanos, boolean shed) {
+        inFlight.decrementAndGet();
+        record(shed ? SHED : Math.max(0, durationNanos));
+    }
+
+    /**
+     * Stops counting a request started with {@link #tryStart()} as in flight
+     * without recording its response time, e.g. because it is processed
+     * asynchronously.
+     */
+    public void abandon() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Records a request that was rejected without being started.
+     */
+    public void recordShed() {
+        record(SHED);
+    }
+
+    private void record(long duration) {
+        int i = (int) (next.getAndIncrement() & (SAMPLES - 1));
+        durations.set(i, duration);
+        times.set(i, System.nanoTime());
+    }
+
+    /**
+     * Gets the current load. The latency and shed rate are summarized at most
+     * once per second, the number of requests in flight is always up to date.
+     *
+     * @return
+     */
+    public ProviderLoad getLoad() {
+        return getLoadExcluding(0);
+    }
+
+    /**
+     * Same as {@link #getLoad()}, but does not count the given number of
+     * requests as in flight. Responses to accepted requests advertise the
+     * load without themselves, so that a provider that still has room for
+     * its current request is not regarded as saturated.
+     *
+     * @param requests The number of own requests in flight.
+     * @return
+     */
+    public ProviderLoad getLoadExcluding(int requests) {
+        var now = System.nanoTime();
+        var current = summary;
+
+        if (current == null || now - summarizedAt > SUMMARY_INTERVAL_NANOS) {
+            current = summarize(now);
+            summary = current;
+            summarizedAt = now;
+        }
+
+        return new ProviderLoad(Math.max(0, inFlight.get() - requests), maxInFlight, current.getP95LatencyMillis(), current.getShedRate());
+    }
+
+    private ProviderLoad summarize(long now) {
+        var recent = new long[SAMPLES];
+        int served = 0;
+        int shed = 0;
+
+        for (int i = 0; i < SAMPLES; ++i) {
+            var time = times.get(i);
+
+            if (time == 0 || now - time > windowNanos) {
+                continue;
+            }
+
+            var duration = durations.get(i);
+
+            if (duration == SHED) {
+                ++shed;
+            } else {
+                recent[served++] = duration;
+            }
+        }
+
+        long p95 = 0;
+
+        if (served > 0) {
+            Arrays.sort(recent, 0, served);
+            p95 = Duration.ofNanos(recent[(int) Math.ceil(served * 0.95) - 1]).toMillis();
+        }
+
+        int total = served + shed;
+        return new ProviderLoad(0, maxInFlight, p95, total == 0 ? 0 : (double) shed / total);
+    }
+
+}
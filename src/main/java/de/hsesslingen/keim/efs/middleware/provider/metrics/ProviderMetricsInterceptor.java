@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.provider.metrics;
+
+import de.hsesslingen.keim.efs.middleware.provider.ApiBase;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Measures the complete handling time of requests to the provider APIs, i.e.
+ * all subclasses of {@link ApiBase}, and reports it to
+ * {@link IProviderMetrics#recordRequest(String, int, long, Throwable)}.
+ *
+ * @author keim
+ */
+public class ProviderMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ProviderMetricsInterceptor.class.getName() + ".start";
+
+    private final IProviderMetrics metrics;
+
+    public ProviderMetricsInterceptor(IProviderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isProviderApi(handler)) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        var start = request.getAttribute(START_ATTRIBUTE);
+
+        if (start instanceof Long && isProviderApi(handler)) {
+            metrics.recordRequest(
+                    ((HandlerMethod) handler).getMethod().getName(),
+                    response.getStatus(),
+                    System.nanoTime() - (Long) start,
+                    ex != null ? ex : resolvedException(request)
+            );
+        }
+    }
+
+    /**
+     * Gets the exception that was handled by an exception resolver. Those
+     * exceptions are not passed to {@link #afterCompletion}.
+     */
+    private static Throwable resolvedException(HttpServletRequest request) {
+        var ex = request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
+
+        if (ex == null) {
+            ex = request.getAttribute(WebUtils.ERROR_EXCEPTION_ATTRIBUTE);
+        }
+
+        return ex instanceof Throwable ? (Throwable) ex : null;
+    }
+
+    static boolean isProviderApi(Object handler) {
+        return handler instanceof HandlerMethod
+                && ApiBase.class.isAssignableFrom(((HandlerMethod) handler).getBeanType());
+    }
+}
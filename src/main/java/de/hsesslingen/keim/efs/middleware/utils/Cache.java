@@ -31,6 +31,16 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Stores items of type {@link V} in a map by an key of type {@link K}..
+ * <p>
+ * If an expiry duration is set, items are considered absent once they are
+ * older than this duration. Items can also be given an individual expiry
+ * moment using {@link #set(Object, Object, Instant)}. If a maximum size is set,
+ * expired items are removed when the cache is full and, if that does not free
+ * enough space, an arbitrary item is evicted to make room for the new one.
+ * <p>
+ * Expired items are never returned by {@link #get(Object)}, even if
+ * {@link #cleanUp()} was not called since they expired. Earlier versions of
+ * this cache returned such items until the next clean up.
  *
  * @author boesch
  * @param <V>
@@ -39,6 +49,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class Cache<K, V> {
 
     private Duration expiryDuration;
+    private int maxSize = 0;
     private final Map<K, Item> map = new ConcurrentHashMap<>();
 
     public Cache() {
@@ -48,6 +59,11 @@ public class Cache<K, V> {
         this.expiryDuration = expiryDuration;
     }
 
+    public Cache(Duration expiryDuration, int maxSize) {
+        this.expiryDuration = expiryDuration;
+        this.maxSize = maxSize;
+    }
+
     /**
      * Returns the item expiry duration set for this cache.
      *
@@ -66,6 +82,26 @@ public class Cache<K, V> {
         this.expiryDuration = expiryDuration;
     }
 
+    /**
+     * Returns the maximum number of items in this cache. A value of zero or
+     * less means unbounded.
+     *
+     * @return
+     */
+    protected int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of items in this cache. A value of zero or less
+     * means unbounded.
+     *
+     * @param maxSize
+     */
+    protected void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
     /**
      * Sets a value for the given id.
      *
@@ -73,11 +109,26 @@ public class Cache<K, V> {
      * @param value
      */
     public void set(K key, V value) {
-        if (map.containsKey(key)) {
-            map.get(key).setItem(value);
-        } else {
-            map.put(key, new Item(value));
+        set(key, value, null);
+    }
+
+    /**
+     * Sets a value for the given id, which expires at the given moment. If an
+     * expiry duration is set for this cache as well, the item expires at
+     * whichever moment comes first.
+     *
+     * @param key
+     * @param value
+     * @param expiresAt The moment at which the item expires or {@code null} to
+     * only use the expiry duration of this cache.
+     */
+    public void set(K key, V value, Instant expiresAt) {
+        if (maxSize > 0 && map.size() >= maxSize && !map.containsKey(key)) {
+            makeRoom();
         }
+
+        // Items are replaced instead of updated, so that get() never removes a fresh item.
+        map.put(key, new Item(value, expiresAt));
     }
 
     /**
@@ -106,6 +157,16 @@ public class Cache<K, V> {
         this.map.clear();
     }
 
+    /**
+     * Returns the number of items in this cache, including items that are
+     * expired but not yet cleaned up.
+     *
+     * @return
+     */
+    public int size() {
+        return map.size();
+    }
+
     /**
      * Gets the value of the given id.
      *
@@ -113,48 +174,76 @@ public class Cache<K, V> {
      * @return
      */
     public Optional<V> get(K key) {
-        if (map.containsKey(key)) {
-            return Optional.of(map.get(key).getItem());
-        } else {
+        var item = map.get(key);
+
+        if (item == null) {
+            return Optional.empty();
+        }
+
+        if (item.isExpired(Instant.now())) {
+            map.remove(key, item);
             return Optional.empty();
         }
+
+        return Optional.of(item.getItem());
     }
 
     /**
      * Removes expired items from the cache.
      */
     public void cleanUp() {
-        if (expiryDuration != null) {
-            var now = Instant.now();
-            map.values().removeIf(item -> item.getLastUpdated().plus(expiryDuration).isBefore(now));
+        var now = Instant.now();
+        map.values().removeIf(item -> item.isExpired(now));
+    }
+
+    /**
+     * Frees at least one slot by first removing expired items and, if too few
+     * expired, evicting arbitrary ones. A sixteenth of the slots is freed at
+     * once, so that a full cache does not scan all items on every insert.
+     */
+    private void makeRoom() {
+        cleanUp();
+
+        int target = maxSize - Math.max(1, maxSize / 16);
+        var it = map.keySet().iterator();
+
+        while (map.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
         }
     }
 
     /**
      * Wrapper class to store an element in the cache, containing meta
-     * information (update timestamp).
+     * information (update timestamp). Items are immutable.
      */
     private class Item {
 
-        private V item;
-        private Instant lastUpdated;
+        private final V item;
+        private final Instant lastUpdated;
+        private final Instant expiresAt;
 
-        public Item(V item) {
-            this.setItem(item);
+        public Item(V item, Instant expiresAt) {
+            this.item = item;
+            this.lastUpdated = Instant.now();
+            this.expiresAt = expiresAt;
         }
 
         public V getItem() {
             return item;
         }
 
-        public final void setItem(V item) {
-            this.item = item;
-            this.lastUpdated = Instant.now();
-        }
-
         public Instant getLastUpdated() {
             return lastUpdated;
         }
 
+        public boolean isExpired(Instant now) {
+            if (expiresAt != null && !expiresAt.isAfter(now)) {
+                return true;
+            }
+
+            return expiryDuration != null && lastUpdated.plus(expiryDuration).isBefore(now);
+        }
+
     }
 }
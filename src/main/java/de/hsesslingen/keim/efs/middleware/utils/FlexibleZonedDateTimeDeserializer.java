@@ -28,6 +28,7 @@ import java.time.Instant;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import java.time.ZonedDateTime;
@@ -42,6 +43,11 @@ public class FlexibleZonedDateTimeDeserializer extends JsonDeserializer<ZonedDat
 
     @Override
     public ZonedDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+        if (p.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            // Milliseconds since epoch can be taken from the token directly.
+            return FlexibleZonedDateTimeParser.fromEpochMilli(p.getLongValue());
+        }
+
         var value = p.getText();
 
         try {
@@ -23,6 +23,7 @@
  */
 package de.hsesslingen.keim.efs.middleware.utils;
 
+import java.time.DateTimeException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -31,7 +32,6 @@ import java.time.OffsetDateTime;
 import java.time.OffsetTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.regex.Pattern;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
@@ -58,12 +58,14 @@ import org.springframework.stereotype.Component;
  * fully qualified ISO-timestamp including timezone should be used. This
  * resolves any ambiguity.
  * <p>
- * The following methods for parsing a temporal object are used in the described
- * order. If one succeeds, the result is returned immediately without trying the
- * remaining methods:
+ * The following methods for parsing a temporal object are supported. The
+ * format of the value is detected by scanning its chars once, and only the
+ * matching method is called. If that one fails, the remaining methods are
+ * tried in the described order. If one succeeds, the result is returned
+ * immediately without trying the remaining methods:
  * <ol>
- * <li>Regex-Parsing a milliseconds value describing the milliseconds since 01.
- * Jan. 1970.</li>
+ * <li>Parsing a milliseconds value describing the milliseconds since 01. Jan.
+ * 1970.</li>
  * <li>{@link ZonedDateTime#parse(CharSequence)}</li>
  * <li>{@link OffsetDateTime#parse(CharSequence)} and if successful,
  * {@link OffsetDateTime#toZonedDateTime()} on the returned object.</li>
@@ -84,19 +86,140 @@ import org.springframework.stereotype.Component;
  * {@link LocalDateTime#atZone(ZoneId)} with {@link ZoneId#systemDefault()} to
  * convert it to a {@link ZonedDateTime}.</li>
  * </ol>
+ * <p>
+ * The system default zone is read once when this class is loaded.
  *
  * @author boesch
  */
 @Component
 public class FlexibleZonedDateTimeParser implements Converter<String, ZonedDateTime> {
 
-    private static Pattern MILLIS_PATTERN = Pattern.compile("^[0-9]+$");
+    /**
+     * The formats that can be detected by {@link #detectFormat(String)}.
+     */
+    enum Format {
+        MILLIS, ZONED_DATE_TIME, LOCAL_DATE_TIME, LOCAL_DATE, OFFSET_TIME, LOCAL_TIME, UNKNOWN
+    }
+
+    /**
+     * Converts milliseconds since epoch into a {@link ZonedDateTime} in the
+     * system time zone, the same way as strings of digits are parsed.
+     *
+     * @param epochMilli
+     * @return
+     */
+    public static ZonedDateTime fromEpochMilli(long epochMilli) {
+        return Instant.ofEpochMilli(epochMilli).atZone(ZoneId.systemDefault());
+    }
 
     public static ZonedDateTime tryParseZonedDateTime(String value) {
-        if (MILLIS_PATTERN.matcher(value).matches()) {
-            return Instant.ofEpochMilli(Long.parseLong(value)).atZone(ZoneId.systemDefault());
+        try {
+            switch (detectFormat(value)) {
+                case MILLIS:
+                    return fromEpochMilli(Long.parseLong(value));
+                case ZONED_DATE_TIME:
+                    // Also handles offsets, which gives the same result as OffsetDateTime.
+                    return ZonedDateTime.parse(value);
+                case LOCAL_DATE_TIME:
+                    return LocalDateTime.parse(value).atZone(ZoneId.systemDefault());
+                case LOCAL_DATE:
+                    return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault());
+                case OFFSET_TIME:
+                    return OffsetTime.parse(value).atDate(LocalDate.now()).toZonedDateTime();
+                case LOCAL_TIME:
+                    return LocalTime.parse(value).atDate(LocalDate.now()).atZone(ZoneId.systemDefault());
+                default:
+                    break;
+            }
+        } catch (DateTimeException | NumberFormatException ex) {
+            // The detection is only a heuristic. Let the fallbacks decide.
+        }
+
+        return parseWithFallbacks(value);
+    }
+
+    /**
+     * Detects the format of the given value by scanning its chars once. The
+     * detection only looks at the separators and does not validate the value.
+     *
+     * @param value
+     * @return
+     */
+    static Format detectFormat(String value) {
+        int length = value.length();
+
+        if (length == 0) {
+            return Format.UNKNOWN;
+        }
+
+        boolean allDigits = true;
+        int dateSeparator = -1;
+        int timeSeparator = -1;
+        int firstColon = -1;
+        boolean offsetOrZone = false;
+
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                continue;
+            }
+
+            allDigits = false;
+
+            switch (c) {
+                case 'T':
+                    if (timeSeparator < 0) {
+                        timeSeparator = i;
+                    }
+                    break;
+                case ':':
+                    if (firstColon < 0) {
+                        firstColon = i;
+                    }
+                    break;
+                case '-':
+                    // Minus signs after the start of the time are offsets.
+                    if (firstColon >= 0) {
+                        offsetOrZone = true;
+                    } else if (dateSeparator < 0 && i > 0) {
+                        dateSeparator = i;
+                    }
+                    break;
+                case '+':
+                    if (i > 0) {
+                        offsetOrZone = true;
+                    }
+                    break;
+                case 'Z':
+                case '[':
+                    offsetOrZone = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (allDigits) {
+            return Format.MILLIS;
+        }
+
+        if (timeSeparator > 0 && dateSeparator > 0) {
+            return offsetOrZone ? Format.ZONED_DATE_TIME : Format.LOCAL_DATE_TIME;
         }
 
+        if (dateSeparator > 0 && firstColon < 0) {
+            return Format.LOCAL_DATE;
+        }
+
+        if (firstColon > 0 && dateSeparator < 0 && timeSeparator < 0) {
+            return offsetOrZone ? Format.OFFSET_TIME : Format.LOCAL_TIME;
+        }
+
+        return Format.UNKNOWN;
+    }
+
+    private static ZonedDateTime parseWithFallbacks(String value) {
         try {
             return ZonedDateTime.parse(value);
         } catch (Exception ex) {
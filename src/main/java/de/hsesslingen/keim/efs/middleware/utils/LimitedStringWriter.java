@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A {@link Writer} that collects its input into a string but stops accepting
+ * input once a maximum length is reached. Writing beyond the limit throws an
+ * {@link IOException}, which can be used to abort an ongoing serialization
+ * early instead of rendering the complete value first and truncating it
+ * afterwards.
+ *
+ * @author keim
+ */
+public class LimitedStringWriter extends Writer {
+
+    private final StringBuilder sb = new StringBuilder();
+    private final int maxLength;
+    private boolean limitReached = false;
+
+    /**
+     * @param maxLength The maximum number of chars to collect. Values smaller
+     * than 1 disable the limit.
+     */
+    public LimitedStringWriter(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (maxLength < 1) {
+            sb.append(cbuf, off, len);
+            return;
+        }
+
+        var remaining = maxLength - sb.length();
+
+        if (len > remaining) {
+            sb.append(cbuf, off, Math.max(remaining, 0));
+            limitReached = true;
+            throw new IOException("Maximum length of " + maxLength + " chars reached.");
+        }
+
+        sb.append(cbuf, off, len);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether an event (e.g. a log statement) should be emitted or not.
+ * Two strategies are combined: Deterministic 1-in-N sampling and a token
+ * bucket that limits the number of accepted events per second.
+ * <p>
+ * An event is accepted only if it passes both checks. This class is thread
+ * safe.
+ *
+ * @author keim
+ */
+public class LogSampler {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final int sampleRate;
+    private final int maxPerSecond;
+    private final AtomicLong counter = new AtomicLong();
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param sampleRate Only every n-th event is accepted. Values smaller than
+     * 2 accept every event.
+     * @param maxPerSecond The maximum number of accepted events per second.
+     * Values smaller than 1 disable the limit.
+     */
+    public LogSampler(int sampleRate, int maxPerSecond) {
+        this.sampleRate = sampleRate;
+        this.maxPerSecond = maxPerSecond;
+        this.tokens = maxPerSecond;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
+    /**
+     * Returns whether the current event should be accepted.
+     *
+     * @return
+     */
+    public boolean sample() {
+        return sample(System.nanoTime());
+    }
+
+    /**
+     * Same as {@link #sample()} but uses the given value of
+     * {@link System#nanoTime()} as the current time.
+     *
+     * @param nanoTime
+     * @return
+     */
+    public boolean sample(long nanoTime) {
+        if (sampleRate > 1 && counter.getAndIncrement() % sampleRate != 0) {
+            return false;
+        }
+
+        return maxPerSecond < 1 || tryAcquire(nanoTime);
+    }
+
+    private synchronized boolean tryAcquire(long nanoTime) {
+        var elapsed = nanoTime - lastRefill;
+
+        if (elapsed > 0) {
+            tokens = Math.min(maxPerSecond, tokens + elapsed * maxPerSecond / NANOS_PER_SECOND);
+            lastRefill = nanoTime;
+        }
+
+        if (tokens >= 1) {
+            --tokens;
+            return true;
+        }
+
+        return false;
+    }
+}
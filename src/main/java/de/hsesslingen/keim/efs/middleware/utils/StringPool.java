@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.utils;
+
+import java.util.Arrays;
+
+/**
+ * A bounded pool that makes equal strings share one instance, e.g. the service
+ * IDs and place names that repeat in every option of a large result list.
+ * <p>
+ * The pool is lossy: Each string is stored in a slot determined by its hash
+ * code and replaces whatever string was stored there before. It therefore
+ * never grows beyond its size and needs no eviction, at the cost of missing
+ * some duplicates in case of collisions. Strings longer than the maximum
+ * length are never pooled.
+ * <p>
+ * This class is thread safe. Concurrent writes to the same slot can lose one
+ * of the strings, which only results in a missed duplicate.
+ *
+ * @author keim
+ */
+public class StringPool {
+
+    private final String[] slots;
+    private final int mask;
+    private final int maxLength;
+
+    /**
+     * @param size The number of slots, rounded up to the next power of two.
+     * @param maxLength Strings longer than this are not pooled.
+     */
+    public StringPool(int size, int maxLength) {
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+
+        this.slots = new String[capacity];
+        this.mask = capacity - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns a pooled string that equals the given one, or the given string
+     * itself, which is then pooled.
+     *
+     * @param s
+     * @return
+     */
+    public String get(String s) {
+        if (s == null || s.length() > maxLength) {
+            return s;
+        }
+
+        int i = index(s.hashCode());
+        var pooled = slots[i];
+
+        if (s.equals(pooled)) {
+            return pooled;
+        }
+
+        slots[i] = s;
+        return s;
+    }
+
+    /**
+     * Returns a pooled string with the given characters. A new string is only
+     * created if there is no such string in the pool, which allows to read
+     * repeated values directly from the buffer of a parser without allocating
+     * strings for them.
+     *
+     * @param chars
+     * @param offset
+     * @param length
+     * @return
+     */
+    public String get(char[] chars, int offset, int length) {
+        if (length > maxLength) {
+            return new String(chars, offset, length);
+        }
+
+        // Same as String.hashCode().
+        int hash = 0;
+        for (int j = offset, end = offset + length; j < end; ++j) {
+            hash = 31 * hash + chars[j];
+        }
+
+        int i = index(hash);
+        var pooled = slots[i];
+
+        if (pooled != null && contentEquals(pooled, chars, offset, length)) {
+            return pooled;
+        }
+
+        var s = new String(chars, offset, length);
+        slots[i] = s;
+        return s;
+    }
+
+    /**
+     * Removes all strings from the pool.
+     */
+    public void clear() {
+        Arrays.fill(slots, null);
+    }
+
+    private int index(int hash) {
+        // Spread the higher bits, as the slots are addressed by the lower ones.
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean contentEquals(String s, char[] chars, int offset, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+
+        for (int j = 0; j < length; ++j) {
+            if (s.charAt(j) != chars[offset + j]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -37,8 +37,12 @@ public class PositionValidator implements ConstraintValidator<PositionAsString,
 
     @Override
     public boolean isValid(String pos, ConstraintValidatorContext context) {
-        // parseAndValidate parses and returns true upon success and false upon failure.
-        return pos == null || ICoordinates.parseAndValidate(pos, (lat, lon) -> true, () -> false);
+        // parseLatLonAndValidate parses and returns true upon success and false upon failure.
+        // Valid positions are remembered, so the controller does not need to parse them again.
+        return pos == null || ICoordinates.parseLatLonAndValidate(pos, (lat, lon) -> {
+            ValidatedPositions.remember(pos, lat, lon);
+            return true;
+        }, () -> false);
     }
 
 }
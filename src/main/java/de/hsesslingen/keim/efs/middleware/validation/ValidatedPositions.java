@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2020 Hochschule Esslingen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package de.hsesslingen.keim.efs.middleware.validation;
+
+import de.hsesslingen.keim.efs.middleware.model.ICoordinates;
+import de.hsesslingen.keim.efs.middleware.model.ICoordinates.LatLonFunction;
+import java.util.function.Supplier;
+
+/**
+ * Hands positions that were already parsed by the {@link PositionValidator}
+ * over to the controller, so that request params annotated with
+ * {@link PositionAsString} are parsed only once per request.
+ * <p>
+ * The validator remembers the last few parsed positions of the current thread.
+ * The controller looks them up by identity of the param string, so only the
+ * exact string instance that was validated can match. Strings that were not
+ * validated before are simply parsed.
+ *
+ * @author keim
+ */
+public final class ValidatedPositions {
+
+    private static final int SLOTS = 4;
+
+    private static final ThreadLocal<ValidatedPositions> CURRENT = ThreadLocal.withInitial(ValidatedPositions::new);
+
+    private final String[] positions = new String[SLOTS];
+    private final double[] lats = new double[SLOTS];
+    private final double[] lons = new double[SLOTS];
+    private int next = 0;
+
+    private ValidatedPositions() {
+    }
+
+    /**
+     * Remembers the parsed and validated values of the given position string
+     * for the current thread.
+     *
+     * @param position
+     * @param lat
+     * @param lon
+     */
+    static void remember(String position, double lat, double lon) {
+        var current = CURRENT.get();
+        var slot = current.next;
+
+        current.positions[slot] = position;
+        current.lats[slot] = lat;
+        current.lons[slot] = lon;
+        current.next = (slot + 1) % SLOTS;
+    }
+
+    /**
+     * Passes the latitude and longitude of the given position string to the
+     * given {@link utilizer}. If this exact string was validated before by
+     * {@link PositionValidator} on the current thread, the values parsed then
+     * are used. Otherwise the string is parsed and validated using
+     * {@link ICoordinates#parseLatLonAndValidate(String, LatLonFunction, Supplier)}.
+     *
+     * @param <C>
+     * @param position
+     * @param utilizer
+     * @param onFailValueSupplier Called if the string is invalid.
+     * @return
+     */
+    public static <C> C parseAndValidate(String position, LatLonFunction<C> utilizer, Supplier<C> onFailValueSupplier) {
+        if (position != null) {
+            var current = CURRENT.get();
+
+            for (int i = 0; i < SLOTS; ++i) {
+                if (current.positions[i] == position) {
+                    return utilizer.apply(current.lats[i], current.lons[i]);
+                }
+            }
+        }
+
+        return ICoordinates.parseLatLonAndValidate(position, utilizer, onFailValueSupplier);
+    }
+}
@@ -0,0 +1,224 @@
+package middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.consumer.BookingIndex;
+import de.hsesslingen.keim.efs.middleware.consumer.MiddlewareService;
+import de.hsesslingen.keim.efs.middleware.consumer.ProviderProxy;
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.BookingState;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+import static de.hsesslingen.keim.efs.mobility.service.MobilityService.API.BOOKING_API;
+import de.hsesslingen.keim.efs.mobility.service.MobilityService;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ *
+ * @author keim
+ */
+public class BookingIndexTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.parse("2020-05-01T12:00:00+02:00");
+
+    private BookingIndex index;
+    private List<ProviderProxy> providers;
+    private long now = 0;
+
+    @Before
+    public void setUp() {
+        // No providers by default, so that reads are served from the index alone.
+        providers = List.of();
+
+        var middlewareService = new MiddlewareService() {
+            @Override
+            public Collection<ProviderProxy> getProviders() {
+                return providers;
+            }
+
+            @Override
+            public ProviderProxy getProvider(String serviceId) {
+                return providers.stream().filter(p -> p.getServiceId().equals(serviceId)).findAny().orElse(null);
+            }
+        };
+
+        index = new BookingIndex() {
+            @Override
+            protected long nanoTime() {
+                return now;
+            }
+        };
+        ReflectionTestUtils.setField(index, "middlewareService", middlewareService);
+    }
+
+    /**
+     * A provider that returns the bookings given by a callback, which is
+     * called when the index syncs with this provider.
+     */
+    private static class BookingsProviderProxy extends ProviderProxy {
+
+        private final Supplier<List<Booking>> bookings;
+
+        BookingsProviderProxy(String serviceId, Supplier<List<Booking>> bookings) {
+            super(new MobilityService().setId(serviceId).setApis(Set.of(BOOKING_API)), null);
+            this.bookings = bookings;
+        }
+
+        @Override
+        public List<Booking> getBookings(String token) {
+            return bookings.get();
+        }
+    }
+
+    private static Booking booking(String serviceId, String id, BookingState state, int startHour) {
+        var booking = new Booking().setServiceId(serviceId).setId(id).setState(state);
+        booking.setLeg(new Leg(new Place("from"), START.plusHours(startHour)));
+        return booking;
+    }
+
+    private static List<String> ids(List<Booking> bookings) {
+        return bookings.stream().map(Booking::getId).collect(toList());
+    }
+
+    @Test
+    public void testIndices() {
+        index.update("alice", booking("service-a", "3", BookingState.BOOKED, 3));
+        index.update("alice", booking("service-b", "1", BookingState.FINISHED, 1));
+        index.update("alice", booking("service-a", "2", BookingState.BOOKED, 2));
+        index.update("bob", booking("service-a", "4", BookingState.BOOKED, 4));
+
+        assertEquals(List.of("1", "2", "3"), ids(index.getBookings("alice", null)));
+        assertEquals(List.of("2", "3"), ids(index.getBookings("alice", BookingState.BOOKED, null)));
+        assertEquals(List.of("2", "3"), ids(index.getBookingsOfProvider("alice", "service-a", null)));
+        assertEquals(List.of("2"), ids(index.getBookings("alice", START.plusHours(2), START.plusHours(3), null)));
+    }
+
+    @Test
+    public void testUpdateMovesBookingBetweenIndices() {
+        index.update("alice", booking("service-a", "1", BookingState.BOOKED, 1));
+        index.update("alice", booking("service-a", "1", BookingState.STARTED, 2));
+
+        assertTrue(index.getBookings("alice", BookingState.BOOKED, null).isEmpty());
+        assertEquals(List.of("1"), ids(index.getBookings("alice", BookingState.STARTED, null)));
+        assertEquals(1, index.getBookings("alice", null).size());
+
+        index.removeUser("alice");
+        assertTrue(index.getBookings("alice", null).isEmpty());
+    }
+
+    @Test
+    public void testSyncKeepsNewerUpdates() {
+        // The booking changes while the provider is answering the sync.
+        providers = List.of(new BookingsProviderProxy("service-a", () -> {
+            index.update("alice", booking("service-a", "1", BookingState.STARTED, 1));
+            return List.of(booking("service-a", "1", BookingState.BOOKED, 1));
+        }));
+
+        assertEquals(List.of("1"), ids(index.getBookings("alice", BookingState.STARTED, null)));
+        assertTrue(index.getBookings("alice", BookingState.BOOKED, null).isEmpty());
+    }
+
+    @Test
+    public void testSyncReplacesOlderUpdates() {
+        index.update("alice", booking("service-a", "1", BookingState.STARTED, 1));
+        index.update("alice", booking("service-a", "2", BookingState.BOOKED, 2));
+
+        providers = List.of(new BookingsProviderProxy("service-a",
+                () -> List.of(booking("service-a", "1", BookingState.FINISHED, 1))));
+
+        assertEquals(List.of("1"), ids(index.getBookings("alice", BookingState.FINISHED, null)));
+        assertEquals(1, index.getBookings("alice", null).size());
+    }
+
+    @Test
+    public void testLateChangeDoesNotAddRemovedUser() throws Exception {
+        var requested = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var answered = new CountDownLatch(1);
+
+        providers = List.of(new BookingsProviderProxy("service-a",
+                () -> List.of(booking("service-a", "1", BookingState.BOOKED, 1))) {
+            @Override
+            public Booking awaitBookingChange(String id, BookingState knownState, Integer timeoutSeconds, String token) {
+                requested.countDown();
+
+                // Ignores interrupts to simulate a request that close() cannot stop.
+                var booking = booking("service-a", "1", BookingState.STARTED, 1);
+                while (true) {
+                    try {
+                        release.await();
+                        answered.countDown();
+                        return booking;
+                    } catch (InterruptedException ex) {
+                        // Keep waiting.
+                    }
+                }
+            }
+        });
+
+        index.follow("alice", serviceId -> "token");
+        assertTrue(requested.await(5, TimeUnit.SECONDS));
+
+        index.removeUser("alice");
+        release.countDown();
+        assertTrue(answered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testIdleUsersRemoved() {
+        index.update("alice", booking("service-a", "1", BookingState.BOOKED, 1));
+        index.update("bob", booking("service-a", "2", BookingState.BOOKED, 2));
+
+        now += TimeUnit.MINUTES.toNanos(20);
+        index.getBookings("bob", null);
+
+        now += TimeUnit.MINUTES.toNanos(15);
+        index.removeIdleUsers();
+
+        assertEquals(1, index.size());
+        assertTrue(index.getBookings("alice", null).isEmpty());
+        assertEquals(List.of("2"), ids(index.getBookings("bob", null)));
+    }
+
+    @Test
+    public void testConcurrentReadsSyncOnce() throws Exception {
+        var calls = new AtomicInteger();
+        var release = new CountDownLatch(1);
+
+        providers = List.of(new BookingsProviderProxy("service-a", () -> {
+            calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(booking("service-a", "1", BookingState.BOOKED, 1));
+        }));
+
+        var first = CompletableFuture.supplyAsync(() -> index.getBookings("alice", null));
+        var second = CompletableFuture.supplyAsync(() -> index.getBookings("alice", null));
+
+        // Gives both reads the time to reach the provider.
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(List.of("1"), ids(first.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of("1"), ids(second.get(5, TimeUnit.SECONDS)));
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,98 @@
+package middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.consumer.BookingSubscription;
+import de.hsesslingen.keim.efs.middleware.consumer.ProviderProxy;
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.BookingState;
+import de.hsesslingen.keim.efs.mobility.service.MobilityService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class BookingSubscriptionTest {
+
+    /**
+     * Answers the requests for changes with the queued bookings.
+     */
+    private static class QueueProviderProxy extends ProviderProxy {
+
+        private final BlockingQueue<Booking> changes = new LinkedBlockingQueue<>();
+        private final List<BookingState> knownStates = new CopyOnWriteArrayList<>();
+
+        QueueProviderProxy() {
+            super(new MobilityService().setId("provider"), null);
+        }
+
+        @Override
+        public Booking awaitBookingChange(String id, BookingState knownState, Integer timeoutSeconds, String token) {
+            knownStates.add(knownState);
+
+            try {
+                var booking = changes.poll(timeoutSeconds, TimeUnit.SECONDS);
+                if (booking == null) {
+                    throw new IllegalStateException("No change.");
+                }
+                return booking;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    private static Booking booking(BookingState state) {
+        return new Booking().setId("booking-1").setState(state);
+    }
+
+    @Test
+    public void testFollowsUntilClosed() throws Exception {
+        var provider = new QueueProviderProxy();
+        var received = new CopyOnWriteArrayList<Booking>();
+        var finished = new CountDownLatch(3);
+
+        provider.changes.add(booking(BookingState.BOOKED));
+        provider.changes.add(booking(BookingState.STARTED));
+        provider.changes.add(booking(BookingState.FINISHED));
+
+        var subscription = new BookingSubscription(provider, "booking-1", () -> "token", 5, 0, b -> {
+            received.add(b);
+            finished.countDown();
+        });
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(BookingState.BOOKED, BookingState.STARTED, BookingState.FINISHED),
+                received.stream().map(Booking::getState).collect(toList()));
+        assertEquals(Arrays.asList(null, BookingState.BOOKED, BookingState.STARTED), provider.knownStates);
+        assertTrue(subscription.isDone());
+    }
+
+    @Test
+    public void testCloseStopsRequests() throws Exception {
+        var provider = new QueueProviderProxy();
+        var received = new CopyOnWriteArrayList<Booking>();
+
+        var subscription = new BookingSubscription(provider, "booking-1", () -> "token", 5, 0, received::add);
+        assertFalse(subscription.isDone());
+
+        subscription.close();
+        assertTrue(subscription.isDone());
+
+        provider.changes.add(booking(BookingState.BOOKED));
+        Thread.sleep(200);
+
+        assertTrue(received.isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+package middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.consumer.GzipResponseInterceptor;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import org.springframework.test.web.client.MockRestServiceServer;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ *
+ * @author keim
+ */
+public class GzipResponseInterceptorTest {
+
+    private static final String URL = "http://provider/api/options";
+    private static final String JSON = "[{\"serviceId\":\"service\"},{\"serviceId\":\"service\"}]";
+
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @Before
+    public void setup() {
+        restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new GzipResponseInterceptor());
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    private static byte[] gzip(String s) throws Exception {
+        var out = new ByteArrayOutputStream();
+
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testCompressedResponse() throws Exception {
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        server.expect(requestTo(URL))
+                .andExpect(header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andRespond(withSuccess(gzip(JSON), MediaType.APPLICATION_JSON).headers(headers));
+
+        assertEquals(JSON, restTemplate.getForObject(URL, String.class));
+        server.verify();
+    }
+
+    @Test
+    public void testUncompressedResponse() {
+        server.expect(requestTo(URL))
+                .andRespond(withSuccess(JSON, MediaType.APPLICATION_JSON));
+
+        assertEquals(JSON, restTemplate.getForObject(URL, String.class));
+        server.verify();
+    }
+}
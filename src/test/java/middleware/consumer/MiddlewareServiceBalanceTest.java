@@ -0,0 +1,141 @@
+package middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.consumer.MiddlewareService;
+import de.hsesslingen.keim.efs.middleware.consumer.ProviderProxy;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoad;
+import de.hsesslingen.keim.efs.mobility.service.MobilityService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests the ordering of providers by their advertised load.
+ *
+ * @author keim
+ */
+public class MiddlewareServiceBalanceTest {
+
+    private MiddlewareService service;
+
+    @Before
+    public void setUp() {
+        service = new MiddlewareService();
+        ReflectionTestUtils.setField(service, "loadBalancing", true);
+        ReflectionTestUtils.setField(service, "loadMaxAgeSeconds", 30L);
+        ReflectionTestUtils.setField(service, "maxShedRate", 0.5);
+    }
+
+    private static ProviderProxy provider(String id) {
+        return new ProviderProxy(new MobilityService().setId(id), null);
+    }
+
+    private static ProviderProxy provider(String id, ProviderLoad load) {
+        var provider = provider(id);
+        setLoad(provider, load, System.nanoTime());
+        return provider;
+    }
+
+    private static void setLoad(ProviderProxy provider, ProviderLoad load, long receivedAt) {
+        ReflectionTestUtils.invokeMethod(provider, "setLoad", load, receivedAt);
+    }
+
+    private static ProviderLoad load(long p95LatencyMillis, double shedRate) {
+        return new ProviderLoad(0, 0, p95LatencyMillis, shedRate);
+    }
+
+    private List<String> balance(boolean skipSaturated, ProviderProxy... providers) {
+        Stream<ProviderProxy> balanced = ReflectionTestUtils.invokeMethod(service, "balance", Stream.of(providers), skipSaturated);
+        return balanced.map(ProviderProxy::getServiceId).collect(toList());
+    }
+
+    @Test
+    public void testOrderedByCost() {
+        assertEquals(List.of("idle", "fast", "slow"), balance(false,
+                provider("slow", load(400, 0)),
+                provider("fast", load(100, 0)),
+                provider("idle")
+        ));
+    }
+
+    @Test
+    public void testOldLoadRegardedAsIdle() {
+        var old = provider("old");
+        setLoad(old, load(1000, 0), System.nanoTime() - Duration.ofSeconds(60).toNanos());
+
+        assertEquals(List.of("old", "fast"), balance(false, provider("fast", load(100, 0)), old));
+    }
+
+    @Test
+    public void testSaturatedSkipped() {
+        assertEquals(List.of("fast"), balance(true,
+                provider("saturated", load(10, 0.6)),
+                provider("fast", load(100, 0))
+        ));
+    }
+
+    @Test
+    public void testSaturatedKeptIfNotSkipped() {
+        assertEquals(List.of("fast", "saturated"), balance(false,
+                provider("saturated", load(100, 0.6)),
+                provider("fast", load(100, 0))
+        ));
+    }
+
+    @Test
+    public void testAllSaturatedKept() {
+        var full = provider("full", new ProviderLoad(10, 10, 100, 0));
+
+        assertEquals(List.of("full", "shedding"), balance(true,
+                provider("shedding", load(100, 0.9)),
+                full
+        ));
+    }
+
+    @Test
+    public void testDisabled() {
+        ReflectionTestUtils.setField(service, "loadBalancing", false);
+
+        assertEquals(List.of("slow", "fast"), balance(true,
+                provider("slow", load(400, 0.9)),
+                provider("fast", load(100, 0))
+        ));
+    }
+
+    @Test
+    public void testLoadChangingWhileSorting() throws Exception {
+        var providers = new ArrayList<ProviderProxy>();
+        for (int i = 0; i < 100; i++) {
+            providers.add(provider("provider-" + i, load(i, 0)));
+        }
+
+        // Responses update the loads concurrently, sometimes to outdated ones.
+        var running = new AtomicBoolean(true);
+        var updater = new Thread(() -> {
+            var random = ThreadLocalRandom.current();
+            while (running.get()) {
+                var provider = providers.get(random.nextInt(providers.size()));
+                var receivedAt = random.nextBoolean() ? System.nanoTime() : System.nanoTime() - Duration.ofSeconds(60).toNanos();
+                setLoad(provider, load(random.nextInt(1000), 0), receivedAt);
+            }
+        });
+        updater.start();
+
+        try {
+            for (int i = 0; i < 500; i++) {
+                var balanced = balance(false, providers.toArray(ProviderProxy[]::new));
+                assertEquals(providers.size(), balanced.size());
+            }
+        } finally {
+            running.set(false);
+            updater.join();
+        }
+    }
+}
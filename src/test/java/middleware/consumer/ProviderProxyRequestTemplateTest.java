@@ -0,0 +1,97 @@
+package middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.consumer.ProviderProxy;
+import de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequestTemplate;
+import de.hsesslingen.keim.efs.mobility.service.MobilityService;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import middleware.MiddlewareTestApplication;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import org.springframework.test.web.client.MockRestServiceServer;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Checks that requests sent by a {@link ProviderProxy} through the default
+ * {@link MiddlewareRequestTemplate} ask for and decompress gzip responses.
+ *
+ * @author keim
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {MiddlewareTestApplication.class, ProviderProxyRequestTemplateTest.CapturingConfiguration.class},
+        properties = "middleware.compression.enabled=true")
+@ActiveProfiles("test")
+public class ProviderProxyRequestTemplateTest {
+
+    private static final String URL = "http://provider/api/bookings";
+    private static final String JSON = "[{\"id\":\"booking-1\"},{\"id\":\"booking-2\"}]";
+
+    @TestConfiguration
+    public static class CapturingConfiguration {
+
+        static final List<RestTemplate> BUILT = new ArrayList<>();
+
+        @Bean
+        public RestTemplateCustomizer capturingRestTemplateCustomizer() {
+            return BUILT::add;
+        }
+    }
+
+    @Autowired
+    private MiddlewareRequestTemplate requestTemplate;
+
+    private MockRestServiceServer server;
+    private ProviderProxy proxy;
+
+    @Before
+    public void setup() {
+        assertEquals(1, CapturingConfiguration.BUILT.size());
+
+        server = MockRestServiceServer.bindTo(CapturingConfiguration.BUILT.get(0)).build();
+        proxy = new ProviderProxy(new MobilityService().setId("provider").setServiceUrl("http://provider/api"), requestTemplate);
+    }
+
+    private static byte[] gzip(String s) throws Exception {
+        var out = new ByteArrayOutputStream();
+
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testCompressedResponse() throws Exception {
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        server.expect(requestTo(URL))
+                .andExpect(header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andRespond(withSuccess(gzip(JSON), MediaType.APPLICATION_JSON).headers(headers));
+
+        var bookings = proxy.getBookings("token");
+
+        assertEquals(2, bookings.size());
+        assertTrue(bookings.stream().anyMatch(b -> "booking-2".equals(b.getId())));
+        server.verify();
+    }
+}
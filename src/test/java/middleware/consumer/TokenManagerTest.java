@@ -0,0 +1,139 @@
+package middleware.consumer;
+
+import de.hsesslingen.keim.efs.middleware.consumer.TokenManager;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenCredentials;
+import java.time.ZonedDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class TokenManagerTest {
+
+    /**
+     * Creates tokens "token-1", "token-2", ... that are valid for the given
+     * number of seconds.
+     */
+    private static class TestTokenManager extends TokenManager {
+
+        private final AtomicInteger created = new AtomicInteger();
+        private final long validSeconds;
+        private volatile long nanoOffset;
+        private volatile CountDownLatch createLatch;
+        private final AtomicInteger timedOut = new AtomicInteger();
+
+        TestTokenManager(long validSeconds) {
+            this.validSeconds = validSeconds;
+        }
+
+        @Override
+        protected TokenCredentials createToken(String serviceId, String userId, String secret) {
+            var latch = createLatch;
+
+            if (latch != null) {
+                // Blocks until all expected refreshes run at the same time.
+                latch.countDown();
+                try {
+                    if (!latch.await(5, TimeUnit.SECONDS)) {
+                        timedOut.incrementAndGet();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return new TokenCredentials("token-" + created.incrementAndGet(), ZonedDateTime.now().plusSeconds(validSeconds));
+        }
+
+        @Override
+        protected long nanoTime() {
+            return System.nanoTime() + nanoOffset;
+        }
+    }
+
+    @Test
+    public void testTokenGetter() {
+        var manager = new TestTokenManager(3600);
+        manager.createToken("alice", "service-a", "alice@example.com", "secret");
+        manager.createToken("bob", "service-a", "bob@example.com", "secret");
+
+        var getter = manager.tokenGetter("alice");
+
+        assertEquals("token-1", getter.apply("service-a"));
+        assertNull(getter.apply("service-b"));
+        assertEquals("token-2", manager.getToken("bob", "service-a"));
+    }
+
+    @Test
+    public void testRefreshBeforeExpiry() {
+        var manager = new TestTokenManager(30);
+        manager.createToken("alice", "service-a", "alice@example.com", "secret");
+        manager.setToken("bob", "service-a", new TokenCredentials("foreign", ZonedDateTime.now().plusSeconds(30)));
+
+        manager.refreshTokens().join();
+
+        assertEquals("token-2", manager.getToken("alice", "service-a"));
+        assertEquals("foreign", manager.getToken("bob", "service-a"));
+    }
+
+    @Test
+    public void testExpiredTokens() {
+        var manager = new TestTokenManager(3600);
+        manager.setToken("alice", "service-a", new TokenCredentials("expired", ZonedDateTime.now().minusSeconds(1)));
+        manager.setToken("alice", "service-b", new TokenCredentials("unlimited", null));
+
+        assertNull(manager.getToken("alice", "service-a"));
+        assertEquals("unlimited", manager.getToken("alice", "service-b"));
+
+        manager.refreshTokens().join();
+        assertEquals(1, manager.size());
+
+        manager.removeTokens("alice");
+        assertEquals(0, manager.size());
+    }
+
+    @Test
+    public void testIdleTokensRemoved() {
+        var manager = new TestTokenManager(30);
+        manager.createToken("alice", "service-a", "alice@example.com", "secret");
+        manager.createToken("bob", "service-a", "bob@example.com", "secret");
+
+        manager.nanoOffset = TimeUnit.MINUTES.toNanos(20);
+        assertEquals("token-2", manager.getToken("bob", "service-a"));
+
+        manager.nanoOffset = TimeUnit.MINUTES.toNanos(40);
+        manager.refreshTokens().join();
+
+        assertEquals(1, manager.size());
+        assertNull(manager.getToken("alice", "service-a"));
+        assertEquals("token-3", manager.getToken("bob", "service-a"));
+        assertEquals(3, manager.created.get());
+    }
+
+    @Test
+    public void testParallelRefresh() {
+        var manager = new TestTokenManager(30);
+        manager.createToken("alice", "service-a", "alice@example.com", "secret");
+        manager.createToken("bob", "service-a", "bob@example.com", "secret");
+        manager.createToken("carol", "service-a", "carol@example.com", "secret");
+
+        manager.createLatch = new CountDownLatch(3);
+        var refresh = manager.refreshTokens();
+
+        // The refresh runs in the background, so the caller is not blocked.
+        assertFalse(refresh.isDone());
+
+        refresh.join();
+        assertEquals(0, manager.timedOut.get());
+        assertEquals(6, manager.created.get());
+
+        manager.shutdown();
+    }
+}
@@ -0,0 +1,72 @@
+package middleware.consumer.metrics;
+
+import de.hsesslingen.keim.efs.middleware.consumer.metrics.MicrometerConsumerMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ *
+ * @author keim
+ */
+public class MicrometerConsumerMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerConsumerMetrics metrics = new MicrometerConsumerMetrics(registry);
+
+    @Test
+    public void testProviderCall() {
+        metrics.recordProviderCall("a", "getOptions", () -> ResponseEntity.ok(List.of(1, 2)));
+        var timer = registry.get("middleware.consumer.provider.calls")
+                .tags("service", "a", "endpoint", "getOptions", "outcome", "success")
+                .timer();
+        var meters = registry.getMeters().size();
+
+        metrics.recordProviderCall("a", "getOptions", () -> ResponseEntity.ok(List.of(3)));
+
+        assertEquals(meters, registry.getMeters().size());
+        assertSame(timer, registry.get("middleware.consumer.provider.calls").tags("service", "a", "outcome", "success").timer());
+        assertEquals(2, timer.count());
+        assertEquals(3, registry.get("middleware.consumer.provider.result.size").summary().totalAmount(), 0);
+    }
+
+    @Test
+    public void testProviderCallOutcomes() {
+        try {
+            metrics.recordProviderCall("a", "getOptions", () -> {
+                throw new ResourceAccessException("timed out", new SocketTimeoutException());
+            });
+            fail("Exception expected.");
+        } catch (ResourceAccessException ex) {
+        }
+
+        try {
+            metrics.recordProviderCall("a", "getOptions", () -> {
+                throw new IllegalStateException();
+            });
+            fail("Exception expected.");
+        } catch (IllegalStateException ex) {
+        }
+
+        assertEquals(1, registry.get("middleware.consumer.provider.calls").tag("outcome", "timeout").timer().count());
+        assertEquals(1, registry.get("middleware.consumer.provider.calls").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void testFanOut() {
+        metrics.recordFanOut("getOptions", 4, TimeUnit.MILLISECONDS.toNanos(120), TimeUnit.MILLISECONDS.toNanos(100));
+        metrics.recordFanOut("getOptions", 2, TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(40));
+
+        assertEquals(2, registry.get("middleware.consumer.fanout").tag("endpoint", "getOptions").timer().count());
+        assertEquals(6, registry.get("middleware.consumer.fanout.providers").summary().totalAmount(), 0);
+        assertEquals(1.25, registry.get("middleware.consumer.fanout.slowest.ratio").gauge().value(), 0.0001);
+    }
+
+}
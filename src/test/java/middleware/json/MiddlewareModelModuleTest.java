@@ -0,0 +1,244 @@
+package middleware.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareModelModule;
+import de.hsesslingen.keim.efs.middleware.model.Asset;
+import de.hsesslingen.keim.efs.middleware.model.CompactGeoPath;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.LegView;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.OptionView;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+import de.hsesslingen.keim.efs.mobility.service.Mode;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class MiddlewareModelModuleTest {
+
+    private final ObjectMapper reflective = createMapper();
+    private final ObjectMapper streaming = createMapper().registerModule(new MiddlewareModelModule());
+
+    private static ObjectMapper createMapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.ADJUST_DATES_TO_CONTEXT_TIME_ZONE);
+    }
+
+    private static Option createOption() {
+        var from = new Place("from-id").setLat(48.7).setLon(9.3).setName("Esslingen");
+        var to = Place.fromCoordinates(48.78, 9.18).setServiceId("service");
+
+        var subLeg = new Leg(from, ZonedDateTime.parse("2020-05-01T12:00:00+02:00"), Mode.WALK)
+                .setGeoPath(List.of(new Coordinates(48.7, 9.3), new Coordinates(48.71, 9.29)));
+
+        var asset = new Asset();
+        asset.setId("asset-1");
+        asset.setServiceId("service");
+        asset.setMode(Mode.CAR);
+
+        var leg = new Leg(from, ZonedDateTime.parse("2020-05-01T12:00:00+02:00"), Mode.CAR)
+                .setTo(to)
+                .setEndTime(ZonedDateTime.parse("2020-05-01T12:30:00+02:00"))
+                .setAsset(asset)
+                .setSubLegs(List.of(subLeg))
+                .setDistanceMeter(12345);
+
+        return new Option("service", leg, true)
+                .setOptionReference("ref")
+                .setValidUntil(ZonedDateTime.parse("2020-05-01T11:00:00Z"));
+    }
+
+    private static final Set<Class<?>> MODULE_TYPES = Set.of(Option.class, Leg.class, Place.class, Coordinates.class);
+
+    /**
+     * Creates JSON in which every property of the given type, as found by
+     * reflection, is set. Nested model types are filled the same way.
+     */
+    private JsonNode sample(JavaType type, int depth) {
+        var raw = type.getRawClass();
+        var nodes = JsonNodeFactory.instance;
+
+        if (raw == String.class) {
+            return nodes.textNode("x");
+        } else if (raw == Double.class || raw == double.class) {
+            return nodes.numberNode(1.5);
+        } else if (raw == Integer.class || raw == int.class) {
+            return nodes.numberNode(7);
+        } else if (raw == Boolean.class || raw == boolean.class) {
+            return nodes.booleanNode(true);
+        } else if (raw == ZonedDateTime.class) {
+            return nodes.textNode("2020-05-01T12:00:00Z");
+        } else if (raw.isEnum()) {
+            return nodes.textNode(((Enum<?>) raw.getEnumConstants()[0]).name());
+        } else if (raw == CompactGeoPath.class) {
+            return reflective.valueToTree(CompactGeoPath.fromCoordinates(List.of(new Coordinates(48.7, 9.3))));
+        } else if (type.isCollectionLikeType()) {
+            var array = nodes.arrayNode();
+
+            if (depth < 2) {
+                array.add(sample(type.getContentType(), depth + 1));
+            }
+
+            return array;
+        } else if (MODULE_TYPES.contains(raw)) {
+            var object = nodes.objectNode();
+
+            for (var property : reflective.getDeserializationConfig().introspect(type).findProperties()) {
+                if (property.hasSetter() || property.hasField()) {
+                    object.set(property.getName(), sample(property.getPrimaryType(), depth + 1));
+                }
+            }
+
+            return object;
+        }
+
+        // Other types, e.g. Asset, are not handled by the module.
+        return nodes.objectNode();
+    }
+
+    @Test
+    public void testAllPropertiesCovered() throws Exception {
+        // Fails if a property is added to a model class but not to the hand-written code.
+        for (var type : MODULE_TYPES) {
+            var json = sample(reflective.constructType(type), 0);
+            var expected = reflective.treeToValue(json, type);
+
+            assertEquals(type.getSimpleName() + " is not read completely.", expected, streaming.treeToValue(json, type));
+            assertEquals(
+                    type.getSimpleName() + " is not written completely.",
+                    reflective.readTree(reflective.writeValueAsString(expected)),
+                    reflective.readTree(streaming.writeValueAsString(expected))
+            );
+        }
+    }
+
+    @Test
+    public void testSerializationMatchesReflective() throws Exception {
+        var option = createOption();
+
+        assertEquals(reflective.writeValueAsString(option), streaming.writeValueAsString(option));
+        assertEquals(reflective.writeValueAsString(new Option()), streaming.writeValueAsString(new Option()));
+
+        var compact = createOption().withCompactGeoPaths();
+        assertEquals(reflective.writeValueAsString(compact), streaming.writeValueAsString(compact));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        var option = createOption();
+        var json = reflective.writeValueAsString(option);
+
+        var expected = reflective.readValue(json, Option.class);
+        var actual = streaming.readValue(json, Option.class);
+
+        assertEquals(expected, actual);
+        assertEquals(option, actual);
+    }
+
+    @Test
+    public void testIdentifiersShared() throws Exception {
+        var json = reflective.writeValueAsString(List.of(createOption(), createOption()));
+        var options = streaming.readValue(json, new TypeReference<List<Option>>() {
+        });
+
+        assertSame(options.get(0).getServiceId(), options.get(1).getServiceId());
+        assertSame(options.get(0).getLeg().getFrom().getName(), options.get(1).getLeg().getFrom().getName());
+        assertSame(options.get(0).getLeg().getAsset().getServiceId(), options.get(1).getLeg().getAsset().getServiceId());
+    }
+
+    @Test
+    public void testIdentifiersNotSharedWithoutModule() throws Exception {
+        var json = "[{\"id\":\"asset-1\",\"serviceId\":\"service\"},{\"id\":\"asset-2\",\"serviceId\":\"service\"}]";
+        var type = new TypeReference<List<Asset>>() {
+        };
+
+        var pooled = streaming.readValue(json, type);
+        assertSame(pooled.get(0).getServiceId(), pooled.get(1).getServiceId());
+
+        var plain = reflective.readValue(json, type);
+        assertEquals(plain.get(0).getServiceId(), plain.get(1).getServiceId());
+        assertNotSame(plain.get(0).getServiceId(), plain.get(1).getServiceId());
+    }
+
+    @Test
+    public void testReadViews() throws Exception {
+        var option = createOption();
+        var json = reflective.writeValueAsString(List.of(option, new Option()));
+
+        var views = streaming.readValue(json, new TypeReference<List<OptionView>>() {
+        });
+
+        assertEquals(OptionView.of(option), views.get(0));
+        assertEquals("asset-1", views.get(0).getLeg().getAssetId());
+        assertEquals(OptionView.of(new Option()), views.get(1));
+    }
+
+    @Test
+    public void testReadViewsWithoutModule() throws Exception {
+        var option = createOption();
+        var json = reflective.writeValueAsString(List.of(option));
+
+        var views = reflective.readValue(json, new TypeReference<List<OptionView>>() {
+        });
+
+        assertEquals(OptionView.of(option), views.get(0));
+        assertEquals(LegView.of(option.getLeg()), reflective.readValue(reflective.writeValueAsString(option.getLeg()), LegView.class));
+    }
+
+    @Test
+    public void testViewIdentifiersNotSharedWithoutModule() throws Exception {
+        var json = "[{\"serviceId\":\"service\"},{\"serviceId\":\"service\"}]";
+        var type = new TypeReference<List<OptionView>>() {
+        };
+
+        var pooled = streaming.readValue(json, type);
+        assertSame(pooled.get(0).getServiceId(), pooled.get(1).getServiceId());
+
+        var plain = reflective.readValue(json, type);
+        assertEquals(plain.get(0).getServiceId(), plain.get(1).getServiceId());
+        assertNotSame(plain.get(0).getServiceId(), plain.get(1).getServiceId());
+    }
+
+    @Test
+    public void testLenientValues() throws Exception {
+        var place = streaming.readValue("{\"lat\":\"48.5\",\"lon\":9,\"name\":null}", Place.class);
+
+        assertEquals(48.5, place.getLat(), 0.0);
+        assertEquals(9.0, place.getLon(), 0.0);
+        assertNull(place.getName());
+    }
+
+    @Test(expected = UnrecognizedPropertyException.class)
+    public void testUnknownProperty() throws Exception {
+        streaming.readValue("{\"lat\":48.5,\"unknown\":1}", Place.class);
+    }
+
+    @Test
+    public void testIgnoredUnknownProperty() throws Exception {
+        var place = streaming.copy()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue("{\"lat\":48.5,\"unknown\":{\"a\":[1,2]},\"lon\":9.1}", Place.class);
+
+        assertEquals(9.1, place.getLon(), 0.0);
+    }
+}
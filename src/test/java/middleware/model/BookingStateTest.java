@@ -0,0 +1,69 @@
+package middleware.model;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.BookingState;
+import static de.hsesslingen.keim.efs.middleware.model.BookingState.*;
+import java.util.EnumSet;
+import java.util.List;
+import static java.util.Map.entry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class BookingStateTest {
+
+    @Test
+    public void testTransitions() {
+        assertEquals(EnumSet.of(UPDATEREQUESTED, BOOKED, STARTED), NEW.nextStates());
+        assertEquals(EnumSet.of(UPDATEREQUESTED, CANCELLED, STARTED), BOOKED.nextStates());
+        assertEquals(EnumSet.of(UPDATEREQUESTED, ABORTED, FINISHED), STARTED.nextStates());
+        assertEquals(EnumSet.allOf(BookingState.class), UPDATEREQUESTED.nextStates());
+
+        for (var state : List.of(CANCELLED, ABORTED, FINISHED)) {
+            assertTrue(state.isClosed());
+            assertTrue(state.nextStates().isEmpty());
+        }
+
+        for (var from : values()) {
+            assertFalse(from.canAdvanceTo(null));
+
+            for (var to : values()) {
+                assertEquals(from.nextStates().contains(to), from.canAdvanceTo(to));
+            }
+        }
+    }
+
+    @Test
+    public void testPaths() {
+        assertTrue(BookingState.isValidPath(NEW, BOOKED, STARTED, FINISHED));
+        assertTrue(BookingState.isValidPath(NEW, UPDATEREQUESTED, CANCELLED));
+        assertTrue(BookingState.isValidPath(FINISHED));
+        assertFalse(BookingState.isValidPath(NEW, FINISHED));
+        assertFalse(BookingState.isValidPath(BOOKED, CANCELLED, BOOKED));
+    }
+
+    @Test
+    public void testFindInvalidTransitions() {
+        var booked = new Booking().setId("booked").setState(BOOKED);
+        var finished = new Booking().setId("finished").setState(FINISHED);
+        var noState = new Booking().setId("none");
+
+        var invalid = BookingState.findInvalidTransitions(List.of(
+                entry(booked, STARTED),
+                entry(finished, STARTED),
+                entry(booked, FINISHED),
+                entry(noState, BOOKED)
+        ));
+
+        assertEquals(List.of(
+                entry(finished, STARTED),
+                entry(booked, FINISHED),
+                entry(noState, BOOKED)
+        ), invalid);
+    }
+}
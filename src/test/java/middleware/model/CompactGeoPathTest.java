@@ -0,0 +1,97 @@
+package middleware.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.hsesslingen.keim.efs.middleware.model.CompactGeoPath;
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class CompactGeoPathTest {
+
+    @Test
+    public void testEncodeAndDecode() {
+        var coordinates = List.of(
+                new Coordinates(38.5, -120.2),
+                new Coordinates(40.7, -120.95),
+                new Coordinates(43.252, -126.453),
+                new Coordinates(-0.000001, 179.999999)
+        );
+
+        var path = CompactGeoPath.fromCoordinates(coordinates);
+        var decoded = CompactGeoPath.decode(path.encode());
+
+        assertEquals(path, decoded);
+        assertEquals(coordinates, decoded.toCoordinates());
+    }
+
+    @Test
+    public void testKnownPolyline() {
+        // Reference value from the polyline algorithm documentation, scaled to precision 6.
+        var path = CompactGeoPath.fromLatLons(new double[]{38.5, 40.7, 43.252}, new double[]{-120.2, -120.95, -126.453});
+
+        assertEquals("_izlhA~rlgdF_{geC~ywl@_kwzCn`{nI", path.encode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPolyline() {
+        CompactGeoPath.decode("_izlhA~rlgdF_");
+    }
+
+    @Test
+    public void testCompactCopyKeepsOriginal() {
+        var path = List.of(new Coordinates(48.7, 9.3), new Coordinates(48.71, 9.31));
+        var subLeg = new Leg().setGeoPath(path);
+        var leg = new Leg().setGeoPath(path).setSubLegs(List.of(subLeg));
+        var option = new Option("service", leg, true);
+
+        var copy = option.withCompactGeoPaths();
+
+        assertEquals(path, option.getLeg().getGeoPath());
+        assertEquals(path, subLeg.getGeoPath());
+        assertNull(leg.getCompactGeoPath());
+
+        assertNull(copy.getLeg().getGeoPath());
+        assertNull(copy.getLeg().getSubLegs().get(0).getGeoPath());
+        assertNotNull(copy.getLeg().getSubLegs().get(0).getCompactGeoPath());
+        assertEquals(path, copy.getLeg().getCompactGeoPath().toCoordinates());
+        assertEquals(true, copy.getImmediateStart());
+    }
+
+    @Test
+    public void testIncompletePointsSkipped() {
+        var path = new ArrayList<Coordinates>();
+        path.add(new Coordinates(48.7, 9.3));
+        path.add(new Coordinates(null, 9.305));
+        path.add(null);
+        path.add(new Coordinates(48.705, null));
+        path.add(new Coordinates(48.71, 9.31));
+
+        var compact = CompactGeoPath.fromCoordinates(path);
+
+        assertEquals(List.of(new Coordinates(48.7, 9.3), new Coordinates(48.71, 9.31)), compact.toCoordinates());
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        var mapper = new ObjectMapper();
+        var leg = new Leg().setGeoPath(List.of(new Coordinates(48.7, 9.3), new Coordinates(48.71, 9.31))).withCompactGeoPaths();
+
+        assertNull(leg.getGeoPath());
+
+        var json = mapper.writeValueAsString(leg.getCompactGeoPath());
+        var parsed = mapper.readValue(json, CompactGeoPath.class);
+
+        assertEquals(leg.getCompactGeoPath(), parsed);
+    }
+
+}
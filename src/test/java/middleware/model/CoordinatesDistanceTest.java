@@ -0,0 +1,44 @@
+package middleware.model;
+
+import de.hsesslingen.keim.efs.middleware.model.Coordinates;
+import static de.hsesslingen.keim.efs.middleware.model.ICoordinates.approxDistanceKm;
+import static de.hsesslingen.keim.efs.middleware.model.ICoordinates.distanceKm;
+import static de.hsesslingen.keim.efs.middleware.model.ICoordinates.distanceKmBetween;
+import static de.hsesslingen.keim.efs.middleware.model.ICoordinates.distancesKm;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class CoordinatesDistanceTest {
+
+    @Test
+    public void testDistanceKm() {
+        // Esslingen to Stuttgart, roughly 10.2 km as the crow flies.
+        var a = new Coordinates(48.7406, 9.3108);
+        var b = new Coordinates(48.7758, 9.1829);
+
+        var distance = distanceKm(48.7406, 9.3108, 48.7758, 9.1829);
+
+        assertEquals(distanceKmBetween(a, b), distance, 1e-9);
+        assertEquals(10.2, distance, 0.1);
+        assertEquals(distance, approxDistanceKm(48.7406, 9.3108, 48.7758, 9.1829), distance * 0.001);
+    }
+
+    @Test
+    public void testDistancesKm() {
+        var packed = new double[]{48.7758, 9.1829, 52.52, 13.405, 48.7406, 9.3108};
+        var result = distancesKm(48.7406, 9.3108, packed, null);
+
+        assertEquals(3, result.length);
+
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(distanceKm(48.7406, 9.3108, packed[2 * i], packed[2 * i + 1]), result[i], 1e-9);
+        }
+
+        assertEquals(0, result[2], 1e-9);
+    }
+
+}
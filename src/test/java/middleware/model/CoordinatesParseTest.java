@@ -0,0 +1,53 @@
+package middleware.model;
+
+import de.hsesslingen.keim.efs.middleware.model.ICoordinates;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class CoordinatesParseTest {
+
+    private static double[] parse(String s) {
+        return ICoordinates.parseLatLon(s, (lat, lon) -> new double[]{lat, lon}, () -> null);
+    }
+
+    @Test
+    public void testValidFormats() {
+        assertArrayEquals(new double[]{48.7406, 9.3108}, parse("48.7406,9.3108"), 0);
+        assertArrayEquals(new double[]{-33.865143, 151.2099}, parse("-33.865143,+151.2099"), 0);
+        assertArrayEquals(new double[]{0.5, 1}, parse(".5,1."), 0);
+        assertArrayEquals(new double[]{48.7406, 9.3108}, parse(" 48.7406, 9.3108 "), 0);
+        assertArrayEquals(new double[]{48.7406, 9.3108}, parse("4.87406e1,9.3108"), 0);
+        assertArrayEquals(new double[]{48.12345678901234567, 9}, parse("48.12345678901234567,9"), 0);
+    }
+
+    @Test
+    public void testSameResultAsDoubleParsing() {
+        var values = new String[]{"0.1", "48.774", "-122.419416", "9.18290000000001", "89.999999"};
+
+        for (var lat : values) {
+            for (var lon : values) {
+                assertArrayEquals(new double[]{Double.parseDouble(lat), Double.parseDouble(lon)}, parse(lat + "," + lon), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidFormats() {
+        assertNull(parse(null));
+        assertNull(parse(""));
+        assertNull(parse("48.7"));
+        assertNull(parse("48.7,"));
+        assertNull(parse(",9.3"));
+        assertNull(parse("48.7,9.3,1"));
+        assertNull(parse("48.7.1,9.3"));
+        assertNull(parse("abc,9.3"));
+        assertNull(parse("-,9.3"));
+        assertNull(parse("NaN,9.3"));
+    }
+
+}
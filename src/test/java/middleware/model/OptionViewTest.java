@@ -0,0 +1,56 @@
+package middleware.model;
+
+import de.hsesslingen.keim.efs.middleware.model.LegView;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.OptionView;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+import de.hsesslingen.keim.efs.mobility.service.Mode;
+import java.time.ZonedDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class OptionViewTest {
+
+    @Test
+    public void testConversion() {
+        var startTime = ZonedDateTime.parse("2020-05-01T12:00:00+02:00");
+        var leg = new Leg(new Place("station-1").setLat(48.74).setLon(9.31), startTime, Mode.BICYCLE)
+                .setDistanceMeter(1200);
+        var option = new Option("service", leg, true).setOptionReference("ref");
+
+        var view = OptionView.of(option);
+
+        assertEquals("service", view.getServiceId());
+        assertTrue(view.isImmediateStart());
+        assertEquals(startTime.toInstant().toEpochMilli(), view.getLeg().getStartTimeMillis());
+        assertFalse(view.getLeg().hasEndTime());
+        assertEquals(48.74, view.getLeg().getFromLat(), 0.0);
+        assertTrue(Double.isNaN(view.getLeg().getToLat()));
+        assertEquals(1200, view.getLeg().getDistanceMeter());
+
+        var converted = view.toOption();
+
+        assertEquals(view, OptionView.of(converted));
+        assertEquals(startTime.toInstant(), converted.getLeg().getStartTime().toInstant());
+        assertEquals("station-1", converted.getLeg().getFrom().getId());
+        assertNull(converted.getLeg().getTo());
+    }
+
+    @Test
+    public void testAbsentValues() {
+        var view = LegView.of(new Leg());
+
+        assertFalse(view.hasStartTime());
+        assertFalse(view.hasDistance());
+        assertNull(view.toLeg().getDistanceMeter());
+        assertNull(view.toLeg().getFrom());
+    }
+}
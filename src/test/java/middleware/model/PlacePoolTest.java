@@ -0,0 +1,49 @@
+package middleware.model;
+
+import de.hsesslingen.keim.efs.middleware.model.Asset;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.Option;
+import de.hsesslingen.keim.efs.middleware.model.Place;
+import de.hsesslingen.keim.efs.middleware.model.PlacePool;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class PlacePoolTest {
+
+    private static Place station() {
+        return new Place("station-1").setLat(48.74).setLon(9.31).setName("Station");
+    }
+
+    @Test
+    public void testEqualPlacesShared() {
+        var pool = new PlacePool();
+        var first = pool.get(station());
+
+        assertSame(first, pool.get(station()));
+        assertNotSame(first, pool.get(station().setName("Other name")));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testCanonicalizeOptions() {
+        var asset = new Asset().setPlace(station());
+        var subLeg = new Leg().setFrom(station());
+        var a = new Option("service", new Leg().setFrom(station()).setTo(Place.fromCoordinates(48.7, 9.3)).setAsset(asset).setSubLegs(List.of(subLeg)), false);
+        var b = new Option("service", new Leg().setFrom(Place.fromCoordinates(48.7, 9.3)).setTo(station()), false);
+
+        PlacePool.canonicalizeOptions(List.of(a, b));
+
+        var shared = a.getLeg().getFrom();
+        assertSame(shared, b.getLeg().getTo());
+        assertSame(shared, asset.getPlace());
+        assertSame(shared, subLeg.getFrom());
+        assertSame(a.getLeg().getTo(), b.getLeg().getFrom());
+    }
+}
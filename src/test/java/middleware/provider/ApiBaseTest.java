@@ -0,0 +1,95 @@
+package middleware.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.hsesslingen.keim.efs.middleware.provider.ApiBase;
+import de.hsesslingen.keim.efs.middleware.provider.config.RequestLogging;
+import de.hsesslingen.keim.efs.middleware.provider.config.RequestLoggingProperties;
+import java.util.Map;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Tests the sampled request logging of {@link ApiBase}.
+ *
+ * @author keim
+ */
+public class ApiBaseTest {
+
+    private static class TestApi extends ApiBase {
+
+        public boolean logParamsAndCheck(String methodName) {
+            logParams(methodName, null);
+            return isRequestSampled();
+        }
+
+        public boolean checkSampled() {
+            return isRequestSampled();
+        }
+
+        public String stringifyValue(Object o) {
+            return stringify(o);
+        }
+    }
+
+    private final TestApi api = new TestApi();
+    private final RequestLoggingProperties properties = new RequestLoggingProperties();
+
+    @Before
+    public void setUp() {
+        properties.setSampleRate(2);
+        properties.setMaxPayloadLength(10);
+
+        ReflectionTestUtils.setField(api, "requestLogging", new RequestLogging(properties));
+        ReflectionTestUtils.setField(api, "mapper", new ObjectMapper());
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static void startRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @Test
+    public void testSampledPerRequest() {
+        startRequest();
+        assertTrue(api.logParamsAndCheck("getOptions"));
+
+        startRequest();
+        assertFalse(api.logParamsAndCheck("getOptions"));
+
+        startRequest();
+        assertTrue(api.logParamsAndCheck("getOptions"));
+    }
+
+    @Test
+    public void testDecisionNotKeptAfterFailedRequest() {
+        startRequest();
+        api.logParamsAndCheck("getOptions");
+        assertFalse(api.logParamsAndCheck("getOptions"));
+
+        // The previous request failed before its result was logged.
+        startRequest();
+        assertTrue(api.checkSampled());
+
+        RequestContextHolder.resetRequestAttributes();
+        assertTrue(api.checkSampled());
+    }
+
+    @Test
+    public void testStringifyTruncated() {
+        assertEquals("{\"a\":\"b\"}", api.stringifyValue(Map.of("a", "b")));
+        assertEquals("{\"key\":\"lo... (truncated after 10 chars)", api.stringifyValue(Map.of("key", "long value")));
+    }
+
+}
@@ -43,6 +43,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareMediaTypes;
 import de.hsesslingen.keim.efs.middleware.provider.credentials.AbstractCredentials;
 import de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsUtils;
 import de.hsesslingen.keim.efs.middleware.model.BookingState;
@@ -88,6 +89,24 @@ public class BookingAndOptionsApiTest extends MiddlewareTestBase {
                 .andDo(print());
     }
 
+    @Test
+    public void getOptionsTestSmile_200() throws Exception {
+        mockMvc.perform(get(OPTIONS_PATH).param("from", "1.234,2.345")
+                .header("x-credentials", CredentialsUtils.toJsonString(getDummyCredentials()))
+                .header("Accept", MiddlewareMediaTypes.ACCEPT_SMILE_OR_JSON))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentTypeCompatibleWith(MiddlewareMediaTypes.APPLICATION_SMILE));
+    }
+
+    @Test
+    public void getOptionsTestDefaultJson_200() throws Exception {
+        mockMvc.perform(get(OPTIONS_PATH).param("from", "1.234,2.345")
+                .header("x-credentials", CredentialsUtils.toJsonString(getDummyCredentials()))
+                .header("Accept", MediaType.ALL_VALUE))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
     @Test
     public void getOptionsTest_Invalid_Position_400() throws Exception {
         mockMvc.perform(get(OPTIONS_PATH).param("from", "1.234,2345"))
@@ -0,0 +1,44 @@
+package middleware.provider;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.BookingState;
+import de.hsesslingen.keim.efs.middleware.provider.BookingChangeFeed;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ *
+ * @author keim
+ */
+public class BookingChangeFeedTest {
+
+    @Test
+    public void testPublishCompletesWaitingResults() {
+        var feed = new BookingChangeFeed(10);
+        var first = new DeferredResult<Booking>();
+        var second = new DeferredResult<Booking>();
+        var other = new DeferredResult<Booking>();
+
+        feed.register("booking-1", first);
+        feed.register("booking-1", second);
+        feed.register("booking-2", other);
+
+        var booking = new Booking().setId("booking-1").setState(BookingState.STARTED);
+        feed.publish(booking);
+
+        assertSame(booking, first.getResult());
+        assertSame(booking, second.getResult());
+        assertFalse(other.hasResult());
+    }
+
+    @Test
+    public void testMaxSize() {
+        var feed = new BookingChangeFeed(1);
+
+        assertTrue(feed.register("booking-1", new DeferredResult<>()));
+        assertFalse(feed.register("booking-2", new DeferredResult<>()));
+    }
+}
@@ -0,0 +1,94 @@
+package middleware.provider;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.BookingState;
+import middleware.MiddlewareTestApplication;
+import middleware.MiddlewareTestBase;
+import static middleware.provider.TestBookingAndOptionsService.BOOKED_BOOKING_ID;
+import static middleware.provider.TestBookingAndOptionsService.CHANGING_BOOKING_ID;
+import static middleware.provider.TestBookingAndOptionsService.FAILING_BOOKING_ID;
+import static middleware.provider.TestBookingAndOptionsService.FAILURE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests waiting for booking changes with a service that calls listeners on
+ * changes.
+ *
+ * @author keim
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {MiddlewareTestApplication.class})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BookingChangesApiTest extends MiddlewareTestBase {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    private MvcResult awaitChange(String id, BookingState knownState, int timeoutSeconds) throws Exception {
+        return mockMvc.perform(get(BOOKINGS_PATH + "/{id}/changes", id)
+                .param("knownState", knownState.toString())
+                .param("timeoutSeconds", String.valueOf(timeoutSeconds)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private Booking dispatch(MvcResult result) throws Exception {
+        var content = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        return mapper.readValue(content, Booking.class);
+    }
+
+    @Test
+    public void testChangeWhileReading() throws Exception {
+        // The change is published after registering, but before the state is read.
+        var result = awaitChange(CHANGING_BOOKING_ID, BookingState.BOOKED, 30);
+
+        assertEquals(BookingState.STARTED, dispatch(result).getState());
+    }
+
+    @Test
+    public void testTimeoutReturnsCurrent() throws Exception {
+        var result = awaitChange(BOOKED_BOOKING_ID, BookingState.BOOKED, 30);
+
+        var asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (var listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+
+        var booking = dispatch(result);
+        assertEquals(BOOKED_BOOKING_ID, booking.getId());
+        assertEquals(BookingState.BOOKED, booking.getState());
+    }
+
+    @Test
+    public void testDifferentStateReturnsImmediately() throws Exception {
+        var result = awaitChange(BOOKED_BOOKING_ID, BookingState.STARTED, 30);
+
+        assertEquals(BookingState.BOOKED, dispatch(result).getState());
+    }
+
+    @Test
+    public void testFailureIsReturned() throws Exception {
+        var result = awaitChange(FAILING_BOOKING_ID, BookingState.BOOKED, 30);
+
+        assertSame(FAILURE, result.getAsyncResult());
+    }
+}
@@ -0,0 +1,120 @@
+package middleware.provider;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.model.Leg;
+import de.hsesslingen.keim.efs.middleware.model.NewBooking;
+import static de.hsesslingen.keim.efs.middleware.model.Place.fromCoordinates;
+import static de.hsesslingen.keim.efs.middleware.provider.IBookingApi.IDEMPOTENCY_KEY_HEADER;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsUtils;
+import static de.hsesslingen.keim.efs.mobility.requests.MiddlewareRequest.TOKEN_HEADER;
+import static de.hsesslingen.keim.efs.mobility.service.Mode.BICYCLE;
+import static java.time.ZonedDateTime.now;
+import java.util.UUID;
+import middleware.MiddlewareTestApplication;
+import middleware.MiddlewareTestBase;
+import middleware.provider.credentials.TestCredential;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the handling of the idempotency key header when creating bookings.
+ *
+ * @author keim
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {MiddlewareTestApplication.class})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BookingIdempotencyApiTest extends MiddlewareTestBase {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    private final NewBooking newBooking = createNewBooking(1000);
+
+    private static NewBooking createNewBooking(long startInSeconds) {
+        var place = fromCoordinates("1.23,2.34");
+        var start = now().withNano(0).plusSeconds(startInSeconds);
+
+        return new NewBooking().setLeg(new Leg()
+                .setMode(BICYCLE)
+                .setFrom(place)
+                .setTo(place)
+                .setStartTime(start)
+                .setEndTime(start.plusSeconds(9000)));
+    }
+
+    private static String token(String id, String key) {
+        return CredentialsUtils.toJsonString(new TestCredential(id, key));
+    }
+
+    private ResultActions create(NewBooking booking, String token, String idempotencyKey) throws Exception {
+        var request = post(BOOKINGS_PATH)
+                .content(mapper.writeValueAsBytes(booking))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(TOKEN_HEADER, token);
+
+        if (idempotencyKey != null) {
+            request.header(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+
+        return mockMvc.perform(request);
+    }
+
+    private String createdId(NewBooking booking, String token, String idempotencyKey) throws Exception {
+        var content = create(booking, token, idempotencyKey)
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        return mapper.readValue(content, Booking.class).getId();
+    }
+
+    @Test
+    public void testRepeatWithRefreshedToken() throws Exception {
+        var key = UUID.randomUUID().toString();
+
+        var first = createdId(newBooking, token("user-1", "token-a"), key);
+        var repeated = createdId(newBooking, token("user-1", "token-b"), key);
+
+        assertEquals(first, repeated);
+    }
+
+    @Test
+    public void testKeysScopedByUser() throws Exception {
+        var key = UUID.randomUUID().toString();
+
+        var first = createdId(newBooking, token("user-1", "token-a"), key);
+        var other = createdId(newBooking, token("user-2", "token-a"), key);
+
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    public void testDifferentRequest_422() throws Exception {
+        var key = UUID.randomUUID().toString();
+        createdId(newBooking, token("user-1", "token-a"), key);
+
+        create(createNewBooking(2000), token("user-1", "token-a"), key)
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void testWithoutKey() throws Exception {
+        var first = createdId(newBooking, token("user-1", "token-a"), null);
+        var second = createdId(newBooking, token("user-1", "token-a"), null);
+
+        assertNotEquals(first, second);
+    }
+}
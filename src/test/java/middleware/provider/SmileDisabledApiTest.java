@@ -0,0 +1,53 @@
+package middleware.provider;
+
+import de.hsesslingen.keim.efs.middleware.json.MiddlewareMediaTypes;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsUtils;
+import middleware.MiddlewareTestApplication;
+import middleware.MiddlewareTestBase;
+import middleware.provider.credentials.TestCredential;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Consumers that prefer Smile must get JSON from providers without the Smile
+ * converter.
+ *
+ * @author keim
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {MiddlewareTestApplication.class}, properties = "middleware.smile.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class SmileDisabledApiTest extends MiddlewareTestBase {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void getOptionsFallsBackToJson_200() throws Exception {
+        mockMvc.perform(get(OPTIONS_PATH).param("from", "1.234,2.345")
+                .header("x-credentials", CredentialsUtils.toJsonString(new TestCredential("uuid_001", "demoLoginKey_101010")))
+                .header("Accept", MiddlewareMediaTypes.ACCEPT_SMILE_OR_JSON))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void getOptionsSmileOnly_406() throws Exception {
+        mockMvc.perform(get(OPTIONS_PATH).param("from", "1.234,2.345")
+                .header("x-credentials", CredentialsUtils.toJsonString(new TestCredential("uuid_001", "demoLoginKey_101010")))
+                .header("Accept", MiddlewareMediaTypes.APPLICATION_SMILE_VALUE))
+                .andExpect(status().isNotAcceptable());
+    }
+
+}
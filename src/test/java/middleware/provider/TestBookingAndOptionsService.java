@@ -36,11 +36,23 @@ import de.hsesslingen.keim.efs.middleware.model.Place;
 import de.hsesslingen.keim.efs.middleware.provider.IOptionsService;
 import java.time.ZonedDateTime;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import middleware.provider.credentials.TestCredential;
 
 /**
  * @author k.sivarasah 6 Oct 2019
  */
-public class TestBookingAndOptionsService implements IBookingService, IOptionsService {
+public class TestBookingAndOptionsService implements IBookingService<AbstractCredentials>, IOptionsService {
+
+    public static final String CHANGING_BOOKING_ID = "booking-changing";
+    public static final String BOOKED_BOOKING_ID = "booking-booked";
+    public static final String FAILING_BOOKING_ID = "booking-failing";
+    public static final RuntimeException FAILURE = new IllegalStateException("Provider not available.");
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final List<Consumer<Booking>> listeners = new CopyOnWriteArrayList<>();
 
     /* (non-Javadoc)
 	 * @see de.hsesslingen.keim.efs.middleware.apis.IBookingService#getBookingsByState(de.hsesslingen.keim.efs.middleware.booking.BookingState)
@@ -55,7 +67,12 @@ public class TestBookingAndOptionsService implements IBookingService, IOptionsSe
      */
     @Override
     public Booking createNewBooking(NewBooking newBooking, String optionReference, AbstractCredentials credentials) {
-        return null;
+        return new Booking().setId("booking-" + created.incrementAndGet());
+    }
+
+    @Override
+    public String getUserIdentity(AbstractCredentials credentials) {
+        return credentials instanceof TestCredential ? ((TestCredential) credentials).getId() : null;
     }
 
     /* (non-Javadoc)
@@ -63,7 +80,24 @@ public class TestBookingAndOptionsService implements IBookingService, IOptionsSe
      */
     @Override
     public Booking getBookingById(String id, AbstractCredentials credentials) {
-        return null;
+        switch (id) {
+            case CHANGING_BOOKING_ID:
+                // Changes right after the state was read.
+                listeners.forEach(l -> l.accept(new Booking().setId(id).setState(BookingState.STARTED)));
+                return new Booking().setId(id).setState(BookingState.BOOKED);
+            case BOOKED_BOOKING_ID:
+                return new Booking().setId(id).setState(BookingState.BOOKED);
+            case FAILING_BOOKING_ID:
+                throw FAILURE;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public boolean addBookingChangeListener(Consumer<Booking> listener) {
+        listeners.add(listener);
+        return true;
     }
 
     /* (non-Javadoc)
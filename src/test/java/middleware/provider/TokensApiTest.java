@@ -0,0 +1,113 @@
+package middleware.provider;
+
+import de.hsesslingen.keim.efs.middleware.provider.ITokensService;
+import de.hsesslingen.keim.efs.middleware.provider.TokensApi;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.AbstractCredentials;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenCredentials;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenValidityCache;
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests the {@link TokensApi} with the {@link TokenValidityCache} enabled.
+ *
+ * @author keim
+ */
+public class TokensApiTest {
+
+    /**
+     * Knows all tokens that were created and not deleted yet. Checks of the
+     * token "slow" wait until they are released.
+     */
+    private static class TestTokensService implements ITokensService<AbstractCredentials> {
+
+        private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger checks = new AtomicInteger();
+        private final CountDownLatch checking = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public TokenCredentials createToken(String userId, String secret) {
+            tokens.add(userId);
+            return new TokenCredentials(userId, ZonedDateTime.now().plusHours(1));
+        }
+
+        @Override
+        public void deleteToken(String token) {
+            tokens.remove(token);
+        }
+
+        @Override
+        public boolean isTokenValid(String token) {
+            checks.incrementAndGet();
+            boolean valid = tokens.contains(token);
+
+            if ("slow".equals(token)) {
+                checking.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return valid;
+        }
+    }
+
+    private TestTokensService service;
+    private TokensApi api;
+
+    @Before
+    public void setUp() {
+        service = new TestTokensService();
+        api = new TokensApi();
+        ReflectionTestUtils.setField(api, "service", service);
+        ReflectionTestUtils.setField(api, "validityCache", new TokenValidityCache(30, 5, 100));
+    }
+
+    @Test
+    public void testValidityCached() {
+        api.createToken("token", "secret");
+
+        assertTrue(api.isTokenValid("token"));
+        assertTrue(api.isTokenValid("token"));
+        assertEquals(0, service.checks.get());
+    }
+
+    @Test
+    public void testDeletedTokenInvalidImmediately() {
+        api.createToken("token", "secret");
+        assertTrue(api.isTokenValid("token"));
+
+        api.deleteToken("token");
+
+        assertFalse(api.isTokenValid("token"));
+    }
+
+    @Test
+    public void testCheckDuringDeletionNotCached() throws Exception {
+        service.tokens.add("slow");
+
+        var check = CompletableFuture.supplyAsync(() -> api.isTokenValid("slow"));
+        assertTrue(service.checking.await(5, TimeUnit.SECONDS));
+
+        api.deleteToken("slow");
+        service.release.countDown();
+
+        // The check started before the deletion and may still report the token as valid itself.
+        assertTrue(check.get(5, TimeUnit.SECONDS));
+        assertFalse(api.isTokenValid("slow"));
+    }
+}
@@ -0,0 +1,127 @@
+package middleware.provider.config;
+
+import de.hsesslingen.keim.efs.middleware.provider.config.RegistrationPolicy;
+import java.time.Instant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the scheduling decisions of the provider registration.
+ *
+ * @author keim
+ */
+public class RegistrationPolicyTest {
+
+    private static final Instant NOW = Instant.parse("2020-05-01T12:00:00Z");
+
+    private final RegistrationPolicy policy = new RegistrationPolicy(5, 300, 30, 300);
+
+    @Test
+    public void testBackoffGrowsExponentially() {
+        for (int i = 0; i < 100; i++) {
+            long first = policy.backoff(1);
+            assertTrue(first >= 2500 && first <= 5000);
+
+            long third = policy.backoff(3);
+            assertTrue(third >= 10000 && third <= 20000);
+        }
+    }
+
+    @Test
+    public void testBackoffIsLimited() {
+        for (int failures : new int[]{7, 31, 64, Integer.MAX_VALUE}) {
+            long delay = policy.backoff(failures);
+            assertTrue(delay >= 150000 && delay <= 300000);
+        }
+    }
+
+    @Test
+    public void testJitter() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = RegistrationPolicy.jitter(10000L, 0.2);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+
+        assertTrue(min >= 8000);
+        assertTrue(max <= 12000);
+        // The delays are spread, so that providers do not run in lockstep.
+        assertTrue(max - min > 1000);
+    }
+
+    @Test
+    public void testChanged() {
+        assertTrue(policy.isChanged("a"));
+
+        policy.registered("a", NOW);
+        assertFalse(policy.isChanged("a"));
+        assertTrue(policy.isChanged("b"));
+
+        policy.deregistered();
+        assertTrue(policy.isChanged("a"));
+    }
+
+    @Test
+    public void testUnserializableServiceAlwaysChanged() {
+        policy.registered(null, NOW);
+        assertTrue(policy.isChanged(null));
+    }
+
+    @Test
+    public void testHeartbeatDue() {
+        assertFalse(policy.isHeartbeatDue(NOW));
+
+        policy.registered("a", NOW);
+        assertFalse(policy.isHeartbeatDue(NOW.plusSeconds(299)));
+        assertTrue(policy.isHeartbeatDue(NOW.plusSeconds(300)));
+
+        var withoutHeartbeat = new RegistrationPolicy(5, 300, 30, 0);
+        withoutHeartbeat.registered("a", NOW);
+        assertFalse(withoutHeartbeat.isHeartbeatDue(NOW.plusSeconds(3000)));
+    }
+
+    @Test
+    public void testNextDelayChecksRegularly() {
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.nextDelayMillis();
+            assertTrue(delay >= 24000 && delay <= 36000);
+        }
+    }
+
+    @Test
+    public void testNextDelayUsesHeartbeatWithoutChecks() {
+        var withoutChecks = new RegistrationPolicy(5, 300, 0, 300);
+
+        long delay = withoutChecks.nextDelayMillis();
+        assertTrue(delay >= 240000 && delay <= 360000);
+    }
+
+    @Test
+    public void testNextDelayBacksOffAfterFailures() {
+        policy.failed();
+        policy.failed();
+        assertEquals(2, policy.getFailures());
+
+        long delay = policy.nextDelayMillis();
+        assertTrue(delay >= 5000 && delay <= 10000);
+
+        policy.registered("a", NOW);
+        assertEquals(0, policy.getFailures());
+        assertTrue(policy.nextDelayMillis() >= 24000);
+    }
+
+    @Test
+    public void testNoFurtherRunWithoutChecksAndHeartbeat() {
+        var once = new RegistrationPolicy(5, 300, 0, 0);
+        assertEquals(-1, once.nextDelayMillis());
+
+        // Failed registrations are still retried.
+        once.failed();
+        assertTrue(once.nextDelayMillis() > 0);
+    }
+}
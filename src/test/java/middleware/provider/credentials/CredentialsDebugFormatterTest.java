@@ -0,0 +1,69 @@
+package middleware.provider.credentials;
+
+import de.hsesslingen.keim.efs.middleware.provider.credentials.AbstractCredentials;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.CredentialsDebugFormatter;
+import java.util.function.Function;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class CredentialsDebugFormatterTest {
+
+    private static class ParentCredentials extends AbstractCredentials {
+
+        private String parentSecret = "inherited";
+    }
+
+    private static class ChildCredentials extends ParentCredentials {
+
+        private static final String CONSTANT = "static";
+
+        private String secret = "private";
+        public int number = 42;
+    }
+
+    private static class EmptyCredentials extends AbstractCredentials {
+
+        private static final String CONSTANT = "static";
+    }
+
+    @Test
+    public void testPrivateFieldsAreFormatted() {
+        var output = CredentialsDebugFormatter.format(new ChildCredentials(), Function.identity());
+
+        assertTrue(output.startsWith("Parsed credentials with following values: "));
+        assertTrue(output.contains("secret=private"));
+        assertTrue(output.contains("number=42"));
+    }
+
+    @Test
+    public void testInheritedAndStaticFieldsAreSkipped() {
+        var output = CredentialsDebugFormatter.format(new ChildCredentials(), Function.identity());
+
+        // Only the fields declared by the credentials class itself are formatted.
+        assertFalse(output.contains("parentSecret"));
+        assertFalse(output.contains("CONSTANT"));
+    }
+
+    @Test
+    public void testValueMapper() {
+        var output = CredentialsDebugFormatter.format(new ChildCredentials(), v -> "***");
+
+        assertTrue(output.contains("secret=***"));
+        assertTrue(output.contains("number=***"));
+        assertFalse(output.contains("private"));
+    }
+
+    @Test
+    public void testNoValues() {
+        var output = CredentialsDebugFormatter.format(new EmptyCredentials(), Function.identity());
+
+        assertEquals("Parsed credentials with following values: (no values parsed)", output);
+    }
+
+}
@@ -0,0 +1,67 @@
+package middleware.provider.credentials;
+
+import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenCredentials;
+import de.hsesslingen.keim.efs.middleware.provider.credentials.TokenValidityCache;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class TokenValidityCacheTest {
+
+    @Test
+    public void testPositiveAndNegativeEntries() {
+        var cache = new TokenValidityCache(30, 5, 100);
+        cache.put("valid", true);
+        cache.put("invalid", false);
+
+        assertEquals(Boolean.TRUE, cache.get("valid"));
+        assertEquals(Boolean.FALSE, cache.get("invalid"));
+        assertNull(cache.get("unknown"));
+
+        cache.invalidate("valid");
+        assertEquals(Boolean.FALSE, cache.get("valid"));
+    }
+
+    @Test
+    public void testValidDoesNotReplaceDeleted() {
+        var cache = new TokenValidityCache(30, 5, 100);
+        var checkedSince = Instant.now();
+
+        cache.invalidate("deleted");
+        cache.put("deleted", true, checkedSince);
+
+        assertEquals(Boolean.FALSE, cache.get("deleted"));
+    }
+
+    @Test
+    public void testOldValidResultNotCached() {
+        var cache = new TokenValidityCache(30, 5, 100);
+        cache.put("slow", true, Instant.now().minusSeconds(31));
+
+        assertNull(cache.get("slow"));
+    }
+
+    @Test
+    public void testNoEntriesWithZeroDuration() {
+        var cache = new TokenValidityCache(30, 0, 100);
+        cache.put("invalid", false);
+
+        assertNull(cache.get("invalid"));
+    }
+
+    @Test
+    public void testCreatedTokensRespectValidUntil() {
+        var cache = new TokenValidityCache(30, 5, 100);
+        cache.putCreated(new TokenCredentials("created", ZonedDateTime.now().plusMinutes(5)));
+        cache.putCreated(new TokenCredentials("expired", ZonedDateTime.now().minusSeconds(1)));
+
+        assertEquals(Boolean.TRUE, cache.get("created"));
+        assertNull(cache.get("expired"));
+    }
+}
@@ -0,0 +1,98 @@
+package middleware.provider.idempotency;
+
+import de.hsesslingen.keim.efs.middleware.model.Booking;
+import de.hsesslingen.keim.efs.middleware.provider.idempotency.IdempotencyKeyReusedException;
+import de.hsesslingen.keim.efs.middleware.provider.idempotency.InMemoryIdempotencyStore;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+/**
+ *
+ * @author keim
+ */
+public class InMemoryIdempotencyStoreTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private Booking createBooking() {
+        return new Booking().setId("booking-" + created.incrementAndGet());
+    }
+
+    @Test
+    public void testRepeatReturnsStoredResult() {
+        var store = new InMemoryIdempotencyStore(Duration.ofMinutes(5), 100);
+
+        var first = store.getOrCreate("key", "hash", this::createBooking);
+        var repeated = store.getOrCreate("key", "hash", this::createBooking);
+        var other = store.getOrCreate("other", "hash", this::createBooking);
+
+        assertSame(first, repeated);
+        assertEquals("booking-2", other.getId());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void testDifferentRequestRejected() {
+        var store = new InMemoryIdempotencyStore(Duration.ofMinutes(5), 100);
+        store.getOrCreate("key", "hash", this::createBooking);
+
+        try {
+            store.getOrCreate("key", "other-hash", this::createBooking);
+            fail();
+        } catch (IdempotencyKeyReusedException ex) {
+            assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatus());
+        }
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testFailureIsNotStored() {
+        var store = new InMemoryIdempotencyStore(Duration.ofMinutes(5), 100);
+
+        try {
+            store.getOrCreate("key", "hash", () -> {
+                throw new IllegalStateException("timeout");
+            });
+            fail();
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+
+        assertEquals("booking-1", store.getOrCreate("key", "hash", this::createBooking).getId());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testConcurrentRepeatWaitsForFirst() throws Exception {
+        var store = new InMemoryIdempotencyStore(Duration.ofMinutes(5), 100);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var first = CompletableFuture.supplyAsync(() -> store.getOrCreate("key", "hash", () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return createBooking();
+        }));
+
+        started.await(5, TimeUnit.SECONDS);
+        var repeated = CompletableFuture.supplyAsync(() -> store.getOrCreate("key", "hash", this::createBooking));
+
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), repeated.get(5, TimeUnit.SECONDS));
+        assertEquals(1, created.get());
+    }
+}
@@ -0,0 +1,97 @@
+package middleware.provider.metrics;
+
+import de.hsesslingen.keim.efs.middleware.provider.ApiBase;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.MicrometerProviderMetrics;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderMetricsInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ *
+ * @author keim
+ */
+public class MicrometerProviderMetricsTest {
+
+    public static class TestApi extends ApiBase {
+
+        public void getThings() {
+        }
+    }
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerProviderMetrics metrics = new MicrometerProviderMetrics(registry, "test-service");
+
+    @Test
+    public void testServiceCall() {
+        metrics.recordServiceCall("getThings", () -> List.of(1, 2, 3));
+        metrics.recordServiceCall("getThings", () -> List.of(4));
+
+        var timer = registry.get("middleware.provider.service.calls")
+                .tags("service", "test-service", "endpoint", "getThings", "outcome", "success")
+                .timer();
+
+        assertEquals(2, timer.count());
+        assertEquals(4, registry.get("middleware.provider.result.size").summary().totalAmount(), 0);
+    }
+
+    @Test
+    public void testServiceError() {
+        try {
+            metrics.recordServiceCall("getThings", () -> {
+                throw new IllegalStateException();
+            });
+            fail("Exception expected.");
+        } catch (IllegalStateException ex) {
+        }
+
+        assertEquals(1, registry.get("middleware.provider.service.calls").tag("outcome", "error").timer().count());
+        assertEquals(1, registry.get("middleware.provider.service.errors").tag("exception", "IllegalStateException").counter().count(), 0);
+    }
+
+    @Test
+    public void testRequestMetersAreReused() {
+        metrics.recordRequest("getThings", 200, 1000, null);
+        var meters = registry.getMeters().size();
+
+        metrics.recordRequest("getThings", 200, 1000, null);
+        var timer = registry.get("middleware.provider.requests").tags("status", "200", "exception", "None").timer();
+
+        assertEquals(meters, registry.getMeters().size());
+        assertEquals(2, timer.count());
+
+        metrics.recordRequest("getThings", 200, 1000, null);
+
+        assertSame(timer, registry.get("middleware.provider.requests").tags("status", "200", "exception", "None").timer());
+        assertEquals(3, timer.count());
+    }
+
+    @Test
+    public void testInterceptorReportsResolvedException() throws Exception {
+        var interceptor = new ProviderMetricsInterceptor(metrics);
+        var handler = new HandlerMethod(new TestApi(), "getThings");
+        var request = new MockHttpServletRequest();
+        var response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+
+        // Exception resolvers expose the handled exception as request attribute and afterCompletion gets none.
+        request.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE, new IllegalArgumentException());
+        response.setStatus(400);
+        interceptor.afterCompletion(request, response, handler, null);
+
+        var timer = registry.get("middleware.provider.requests")
+                .tags("endpoint", "getThings", "status", "400", "exception", "IllegalArgumentException")
+                .timer();
+
+        assertEquals(1, timer.count());
+    }
+
+}
@@ -0,0 +1,65 @@
+package middleware.provider.metrics;
+
+import de.hsesslingen.keim.efs.middleware.provider.AssetsApi;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoad;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoadInterceptor;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoadTracker;
+import java.time.Duration;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ *
+ * @author keim
+ */
+public class ProviderLoadInterceptorTest {
+
+    private ProviderLoadTracker tracker;
+    private ProviderLoadInterceptor interceptor;
+    private HandlerMethod handler;
+
+    @Before
+    public void setUp() throws Exception {
+        tracker = new ProviderLoadTracker(1, Duration.ofMinutes(1));
+        interceptor = new ProviderLoadInterceptor(tracker);
+        handler = new HandlerMethod(new AssetsApi(), AssetsApi.class.getMethod("toString"));
+    }
+
+    private static ProviderLoad advertised(MockHttpServletResponse response) {
+        return ProviderLoad.parse(response.getHeader(ProviderLoad.HEADER));
+    }
+
+    @Test
+    public void testAcceptedRequestNotSaturatedAtLimit() {
+        var request = new MockHttpServletRequest();
+        var response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, handler));
+
+        var load = advertised(response);
+        assertEquals(0, load.getInFlight());
+        assertEquals(1, load.getMaxInFlight());
+        assertFalse(load.isSaturated(0.5));
+
+        interceptor.afterCompletion(request, response, handler, null);
+        assertEquals(0, tracker.getLoad().getInFlight());
+    }
+
+    @Test
+    public void testRejectedRequestSaturated() {
+        var first = new MockHttpServletRequest();
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), handler));
+
+        var response = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(new MockHttpServletRequest(), response, handler));
+
+        assertEquals(503, response.getStatus());
+        assertTrue(advertised(response).isSaturated(0.5));
+    }
+}
@@ -0,0 +1,77 @@
+package middleware.provider.metrics;
+
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoad;
+import de.hsesslingen.keim.efs.middleware.provider.metrics.ProviderLoadTracker;
+import java.time.Duration;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class ProviderLoadTrackerTest {
+
+    @Test
+    public void testLatencyAndShedRate() {
+        var tracker = new ProviderLoadTracker(0, Duration.ofMinutes(1));
+
+        for (int i = 1; i <= 100; ++i) {
+            assertTrue(tracker.tryStart());
+            tracker.finish(MILLISECONDS.toNanos(i), false);
+        }
+
+        for (int i = 0; i < 25; ++i) {
+            tracker.recordShed();
+        }
+
+        var load = tracker.getLoad();
+
+        assertEquals(0, load.getInFlight());
+        assertEquals(95, load.getP95LatencyMillis());
+        assertEquals(0.2, load.getShedRate(), 0.0001);
+    }
+
+    @Test
+    public void testMaxInFlight() {
+        var tracker = new ProviderLoadTracker(2, Duration.ofMinutes(1));
+
+        assertTrue(tracker.tryStart());
+        assertTrue(tracker.tryStart());
+        assertFalse(tracker.tryStart());
+        assertEquals(2, tracker.getLoad().getInFlight());
+        assertTrue(tracker.getLoad().isSaturated(1));
+
+        tracker.abandon();
+
+        assertTrue(tracker.tryStart());
+    }
+
+    @Test
+    public void testOwnRequestExcluded() {
+        var tracker = new ProviderLoadTracker(1, Duration.ofMinutes(1));
+
+        assertTrue(tracker.tryStart());
+        assertEquals(1, tracker.getLoad().getInFlight());
+        assertEquals(0, tracker.getLoadExcluding(1).getInFlight());
+        assertFalse(tracker.getLoadExcluding(1).isSaturated(0.5));
+        assertTrue(tracker.getLoad().isSaturated(0.5));
+    }
+
+    @Test
+    public void testHeaderValue() {
+        var load = new ProviderLoad(3, 10, 120, 0.25);
+        var parsed = ProviderLoad.parse(load.toHeaderValue() + ";unknown=1");
+
+        assertEquals(load, parsed);
+        assertTrue(parsed.isSaturated(0.2));
+        assertFalse(parsed.isSaturated(0.5));
+        assertNull(ProviderLoad.parse("inFlight=many"));
+        assertNull(ProviderLoad.parse(null));
+    }
+
+}
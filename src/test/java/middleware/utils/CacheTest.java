@@ -0,0 +1,61 @@
+package middleware.utils;
+
+import de.hsesslingen.keim.efs.middleware.utils.Cache;
+import java.time.Duration;
+import java.time.Instant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class CacheTest {
+
+    @Test
+    public void testGetAndRemove() {
+        var cache = new Cache<String, String>();
+        cache.set("a", "1");
+
+        assertEquals("1", cache.get("a").get());
+
+        cache.remove("a");
+
+        assertFalse(cache.get("a").isPresent());
+    }
+
+    @Test
+    public void testItemExpiry() {
+        var cache = new Cache<String, String>(Duration.ofMinutes(5));
+        cache.set("expired", "1", Instant.now().minusSeconds(1));
+        cache.set("valid", "2", Instant.now().plusSeconds(60));
+
+        assertFalse(cache.get("expired").isPresent());
+        assertTrue(cache.get("valid").isPresent());
+    }
+
+    @Test
+    public void testRefreshExpiredItem() {
+        var cache = new Cache<String, String>();
+        cache.set("a", "1", Instant.now().minusSeconds(1));
+        cache.set("a", "2");
+
+        assertEquals("2", cache.get("a").get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testMaxSize() {
+        var cache = new Cache<Integer, Integer>(null, 3);
+
+        for (int i = 0; i < 10; ++i) {
+            cache.set(i, i);
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(9, (int) cache.get(9).get());
+    }
+
+}
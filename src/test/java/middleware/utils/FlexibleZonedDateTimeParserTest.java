@@ -0,0 +1,63 @@
+package middleware.utils;
+
+import static de.hsesslingen.keim.efs.middleware.utils.FlexibleZonedDateTimeParser.tryParseZonedDateTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.TimeZone;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class FlexibleZonedDateTimeParserTest {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    @Test
+    public void testMillis() {
+        assertEquals(Instant.ofEpochMilli(1583935200000L).atZone(ZONE), tryParseZonedDateTime("1583935200000"));
+    }
+
+    @Test
+    public void testDateTimes() {
+        assertEquals(ZonedDateTime.parse("2020-03-11T15:00+01:00[Europe/Berlin]"), tryParseZonedDateTime("2020-03-11T15:00+01:00[Europe/Berlin]"));
+        assertEquals(ZonedDateTime.of(2020, 3, 11, 15, 0, 0, 0, ZoneOffset.UTC), tryParseZonedDateTime("2020-03-11T15:00:00Z"));
+        assertEquals(ZonedDateTime.of(2020, 3, 11, 15, 0, 0, 0, ZoneOffset.ofHours(-5)), tryParseZonedDateTime("2020-03-11T15:00:00-05:00"));
+        assertEquals(LocalDateTime.of(2020, 3, 11, 15, 0, 30).atZone(ZONE), tryParseZonedDateTime("2020-03-11T15:00:30"));
+        assertEquals(LocalDateTime.of(2020, 3, 11, 15, 0).atZone(ZONE), tryParseZonedDateTime("2020-03-11t15:00"));
+    }
+
+    @Test
+    public void testDatesAndTimes() {
+        assertEquals(LocalDate.of(2020, 3, 11).atStartOfDay(ZONE), tryParseZonedDateTime("2020-03-11"));
+        assertEquals(LocalTime.of(15, 0).atDate(LocalDate.now(ZONE)).atZone(ZONE), tryParseZonedDateTime("15:00"));
+        assertEquals(OffsetTime.of(15, 0, 0, 0, ZoneOffset.ofHours(2)).atDate(LocalDate.now(ZONE)).toZonedDateTime(), tryParseZonedDateTime("15:00+02:00"));
+    }
+
+    @Test
+    public void testChangedDefaultZone() {
+        var previous = TimeZone.getDefault();
+
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+
+            assertEquals(LocalDateTime.of(2020, 3, 11, 15, 0).atZone(ZoneId.of("America/New_York")), tryParseZonedDateTime("2020-03-11T15:00"));
+        } finally {
+            TimeZone.setDefault(previous);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalid() {
+        tryParseZonedDateTime("yesterday");
+    }
+
+}
@@ -0,0 +1,56 @@
+package middleware.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.hsesslingen.keim.efs.middleware.utils.LimitedStringWriter;
+import java.io.IOException;
+import java.util.Collections;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class LimitedStringWriterTest {
+
+    @Test
+    public void testLimitReached() {
+        var writer = new LimitedStringWriter(5);
+
+        try {
+            writer.write("abc");
+            writer.write("defg");
+            fail("Expected IOException.");
+        } catch (IOException ex) {
+            assertTrue(writer.isLimitReached());
+            assertEquals("abcde", writer.toString());
+        }
+    }
+
+    @Test
+    public void testLimitDisabled() throws IOException {
+        var writer = new LimitedStringWriter(0);
+        var value = "x".repeat(100_000);
+
+        writer.write(value);
+
+        assertFalse(writer.isLimitReached());
+        assertEquals(value, writer.toString());
+    }
+
+    @Test
+    public void testSerializationAborted() {
+        var writer = new LimitedStringWriter(100);
+        var list = Collections.nCopies(100_000, "value");
+
+        try {
+            new ObjectMapper().writeValue(writer, list);
+            fail("Expected IOException.");
+        } catch (IOException ex) {
+            assertTrue(writer.isLimitReached());
+            assertEquals(100, writer.toString().length());
+            assertTrue(writer.toString().startsWith("[\"value\",\"value\""));
+        }
+    }
+
+}
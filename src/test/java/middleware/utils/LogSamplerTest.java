@@ -0,0 +1,41 @@
+package middleware.utils;
+
+import de.hsesslingen.keim.efs.middleware.utils.LogSampler;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class LogSamplerTest {
+
+    @Test
+    public void testSampleRate() {
+        var sampler = new LogSampler(3, 0);
+        int accepted = 0;
+
+        for (int i = 0; i < 9; ++i) {
+            if (sampler.sample()) {
+                ++accepted;
+            }
+        }
+
+        assertEquals(3, accepted);
+    }
+
+    @Test
+    public void testMaxPerSecond() {
+        var sampler = new LogSampler(1, 2);
+        var now = System.nanoTime();
+
+        assertTrue(sampler.sample(now));
+        assertTrue(sampler.sample(now));
+        assertFalse(sampler.sample(now));
+
+        // Half a second later one more token has been refilled.
+        assertTrue(sampler.sample(now + 500_000_000L));
+        assertFalse(sampler.sample(now + 500_000_000L));
+    }
+
+}
@@ -0,0 +1,52 @@
+package middleware.utils;
+
+import de.hsesslingen.keim.efs.middleware.utils.StringPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ *
+ * @author keim
+ */
+public class StringPoolTest {
+
+    @Test
+    public void testSharedInstances() {
+        var pool = new StringPool(16, 64);
+        var first = pool.get(new String("service-a"));
+
+        assertSame(first, pool.get(new String("service-a")));
+        assertSame(first, pool.get("xservice-ax".toCharArray(), 1, 9));
+        assertNull(pool.get(null));
+    }
+
+    @Test
+    public void testCharactersCreateString() {
+        var pool = new StringPool(16, 64);
+        var s = pool.get("[\"Esslingen\"]".toCharArray(), 2, 9);
+
+        assertEquals("Esslingen", s);
+        assertSame(s, pool.get(new String("Esslingen")));
+    }
+
+    @Test
+    public void testLongStringsNotPooled() {
+        var pool = new StringPool(16, 4);
+        var s = new String("too long");
+
+        assertSame(s, pool.get(s));
+        assertNotSame(s, pool.get(new String("too long")));
+    }
+
+    @Test
+    public void testClear() {
+        var pool = new StringPool(16, 64);
+        var first = pool.get(new String("a"));
+        pool.clear();
+
+        assertNotSame(first, pool.get(new String("a")));
+    }
+}